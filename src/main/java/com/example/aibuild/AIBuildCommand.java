@@ -5,7 +5,14 @@ import com.example.aibuild.exception.OpenAIException;
 import com.example.aibuild.exception.PlanParseException;
 import com.example.aibuild.model.BuildPlan;
 import com.example.aibuild.service.ConfigService;
-import com.example.aibuild.service.PlanParser;
+import com.example.aibuild.service.GenerationScheduler;
+import com.example.aibuild.service.IncrementalPlanParser;
+import com.example.aibuild.service.ModelRouter;
+import com.example.aibuild.service.PlanCache;
+import com.example.aibuild.service.PlanGenerator;
+import com.example.aibuild.service.ProgressTicker;
+import com.example.aibuild.service.TiledGenerator;
+import com.example.aibuild.util.ApiKeyPool;
 import com.example.aibuild.util.DebugTimer;
 import org.bukkit.*;
 import org.bukkit.block.BlockFace;
@@ -13,27 +20,54 @@ import org.bukkit.command.*;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class AIBuildCommand implements CommandExecutor {
+    private static final Pattern FOOTPRINT = Pattern.compile("(\\d+)x(\\d+)", Pattern.CASE_INSENSITIVE);
+
     private final AIBuildPlugin plugin;
-    private final OpenAIClient client;
+    private final PlanGenerator planGenerator;
+    private final TiledGenerator tiledGenerator;
+    private final GenerationScheduler scheduler;
+    private final ProgressTicker progressTicker;
     private final BuildHistory history;
     private final ConfigService config;
-    private final PlanParser planParser;
     private final Logger logger;
 
-    public AIBuildCommand(AIBuildPlugin plugin, OpenAIClient client, BuildHistory history, ConfigService config) {
+    public AIBuildCommand(AIBuildPlugin plugin, PlanGenerator planGenerator, GenerationScheduler scheduler,
+                          ProgressTicker progressTicker, BuildHistory history, ConfigService config) {
         this.plugin = plugin;
-        this.client = client;
+        this.planGenerator = planGenerator;
+        this.tiledGenerator = new TiledGenerator(planGenerator, config.getTileSize(), config.getMaxParallelTiles());
+        this.scheduler = scheduler;
+        this.progressTicker = progressTicker;
         this.history = history;
         this.config = config;
-        this.planParser = new PlanParser();
         this.logger = plugin.getLogger();
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // /aibuild cache ... (console allowed)
+        if (args.length >= 1 && args[0].equalsIgnoreCase("cache")) {
+            handleCache(sender, args);
+            return true;
+        }
+        // /aibuild queue (console allowed)
+        if (args.length == 1 && args[0].equalsIgnoreCase("queue")) {
+            handleQueue(sender);
+            return true;
+        }
+        // /aibuild keys (console allowed)
+        if (args.length == 1 && args[0].equalsIgnoreCase("keys")) {
+            handleKeys(sender);
+            return true;
+        }
         if (!(sender instanceof Player p)) {
             sender.sendMessage("Players only.");
             return true;
@@ -43,7 +77,7 @@ public class AIBuildCommand implements CommandExecutor {
             return true;
         }
         if (args.length == 0) {
-            p.sendMessage(ChatColor.YELLOW + "Usage: /aibuild <description|undo>");
+            p.sendMessage(ChatColor.YELLOW + "Usage: /aibuild <description|tiled|undo|cache|queue|keys>");
             return true;
         }
 
@@ -66,78 +100,57 @@ public class AIBuildCommand implements CommandExecutor {
             return true;
         }
 
+        // /aibuild tiled <width>x<depth> <description>
+        if (args[0].equalsIgnoreCase("tiled")) {
+            handleTiled(p, args, placePerTick);
+            return true;
+        }
+
         String userPrompt = String.join(" ", args);
 
         int maxBlocks = config.getMaxBlocks();
         boolean replaceOnlyAir = config.isReplaceOnlyAir();
-        int forwardOffset = config.getForwardOffset();
         Set<Material> allowed = config.getAllowedMaterials();
 
-        // origin: in front of player
-        Location base = p.getLocation().getBlock().getLocation();
         BlockFace facing = yawToCardinal(p.getLocation().getYaw());
-        Location origin = base.clone().add(facing.getModX() * forwardOffset, 0, facing.getModZ() * forwardOffset);
+        Location origin = originFor(p, facing);
+
+        // Cached plans skip generation and place immediately
+        PlanCache.Hit cached = planGenerator.getCached(userPrompt, maxBlocks, allowed);
+        if (cached != null) {
+            p.sendMessage(ChatColor.AQUA + PlanGenerator.describeHit(cached));
+            BlockPlacer.placeBatched(plugin, origin, facing, cached.plan(), allowed, placePerTick, replaceOnlyAir, p, history);
+            return true;
+        }
 
         p.sendMessage(ChatColor.GRAY + "⚒ Generating build plan...");
 
         boolean debugEnabled = config.isDebugLoggingEnabled();
-        DebugTimer totalTimer = DebugTimer.start(logger, debugEnabled, "Total build generation");
 
-        // network call async
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                DebugTimer apiTimer = DebugTimer.start(logger, debugEnabled, "OpenAI API call");
-                String json = client.generateBuildPlanJsonStreaming(
-                        userPrompt,
-                        maxBlocks,
-                        allowed,
-                        msg -> sendSync(p, ChatColor.AQUA + msg)
-                );
-                apiTimer.stop();
-
-                // Parse with material names for compact format
-                String[] matArray = allowed.stream()
-                        .map(Enum::name)
-                        .sorted()
-                        .toArray(String[]::new);
-                
-                DebugTimer parseTimer = DebugTimer.start(logger, debugEnabled, "JSON parsing");
-                BuildPlan plan;
-                try {
-                    plan = planParser.parse(json, matArray);
-                } catch (PlanParseException e) {
-                    logger.warning("JSON parse error: " + e.getMessage());
-                    if (e.getJsonSnippet() != null && !e.getJsonSnippet().isBlank()) {
-                        logger.warning("JSON snippet: " + e.getJsonSnippet());
-                    }
-                    sendErrorSync(p, "Failed to parse AI response");
-                    return;
-                }
-                parseTimer.stop();
+        if (config.isIncrementalPlacement()) {
+            generateIncremental(p, userPrompt, maxBlocks, allowed, origin, facing,
+                    placePerTick, replaceOnlyAir, debugEnabled);
+            return true;
+        }
 
-                if (plan == null || plan.blocks == null || plan.size == null) {
-                    logger.warning("AI returned invalid plan structure");
-                    sendErrorSync(p, "AI returned invalid plan");
-                    return;
-                }
-                
-                if (plan.blocks.size() > maxBlocks) {
-                    logger.info(String.format("Plan rejected: %d blocks exceeds limit of %d", 
-                        plan.blocks.size(), maxBlocks));
-                    sendErrorSync(p, String.format("Plan too large: %d blocks (max %d)", 
-                        plan.blocks.size(), maxBlocks));
-                    return;
-                }
+        DebugTimer totalTimer = DebugTimer.start(logger, debugEnabled, "Total build generation");
 
-                DebugTimer validationTimer = DebugTimer.start(logger, debugEnabled, "Plan validation");
-                try {
-                    BuildValidator.validate(plan);
-                } catch (BuildValidationException e) {
-                    logger.warning("Build validation failed: " + e.getMessage());
-                    sendErrorSync(p, "Invalid plan: " + e.getMessage());
+        // network call on the generation scheduler
+        submitGeneration(p, progress -> {
+            CompletableFuture<BuildPlan> generation = planGenerator.generateAsync(
+                    userPrompt,
+                    maxBlocks,
+                    allowed,
+                    progress::message,
+                    // Placed only once the whole plan is valid, so an invalid one can still be escalated
+                    (PlanGenerator.BlockWatcher) block -> progress.onBlock()
+            );
+            // Returned un-chained so cancelling it reaches the generation itself
+            return progress.closeAfter(generation, (plan, error) -> {
+                if (error != null) {
+                    progress.message(formatError(describeFailure(error)));
                     return;
                 }
-                validationTimer.stop();
 
                 totalTimer.stop(String.format("%d blocks in %dx%dx%d", 
                     plan.blocks.size(), plan.size.x, plan.size.y, plan.size.z));
@@ -156,28 +169,304 @@ public class AIBuildCommand implements CommandExecutor {
                             history
                     );
                 });
+            });
+        });
+
+        return true;
+    }
+
+    /**
+     * Stream the plan and place blocks as they arrive instead of waiting for the full response.
+     * Must be called on the main thread; only the network call runs on the generation scheduler.
+     */
+    private void generateIncremental(
+            Player p,
+            String userPrompt,
+            int maxBlocks,
+            Set<Material> allowed,
+            Location origin,
+            BlockFace facing,
+            int placePerTick,
+            boolean replaceOnlyAir,
+            boolean debugEnabled
+    ) {
+        DebugTimer totalTimer = DebugTimer.start(logger, debugEnabled, "Total build generation");
+        DebugTimer firstBlockTimer = DebugTimer.start(logger, debugEnabled, "Time to first block");
+
+        PlacementQueue queue = new PlacementQueue();
+        IncrementalPlanParser.BlockSink sink = block -> {
+            if (queue.getOffered() == 0) firstBlockTimer.stop();
+            queue.offer(block);
+        };
+
+        boolean accepted = submitGeneration(p, progress -> {
+            CompletableFuture<BuildPlan> generation = planGenerator.generateAsync(
+                    userPrompt,
+                    maxBlocks,
+                    allowed,
+                    progress::message,
+                    block -> {
+                        progress.onBlock();
+                        sink.accept(block);
+                    }
+            );
+            return progress.closeAfter(generation, (plan, error) -> {
+                if (error != null) {
+                    queue.abort(describeFailure(error));
+                    return;
+                }
+
+                // Nothing streamed means the model used another format; queue the parsed plan instead
+                if (queue.getOffered() == 0) {
+                    plan.blocks.forEach(queue::offer);
+                }
+                queue.complete();
 
-            } catch (OpenAIException e) {
-                logger.severe("OpenAI API error: " + e.getMessage());
-                String userMsg;
-                if (e.isAuthError()) {
-                    userMsg = "API authentication failed - check server configuration";
-                } else if (e.isRateLimited()) {
-                    userMsg = "Rate limited - try again later";
-                } else if (e.isTimeout()) {
-                    userMsg = "Request timed out - try a simpler build";
+                totalTimer.stop(queue.getOffered() + " blocks (incremental)");
+            });
+        });
+        if (accepted) {
+            BlockPlacer.placeStreaming(plugin, origin, facing, queue, allowed, placePerTick, replaceOnlyAir, p, history);
+        }
+    }
+
+    /**
+     * Where a build starts: the configured distance in front of the player
+     */
+    private Location originFor(Player p, BlockFace facing) {
+        int forwardOffset = config.getForwardOffset();
+        Location base = p.getLocation().getBlock().getLocation();
+        return base.clone().add(facing.getModX() * forwardOffset, 0, facing.getModZ() * forwardOffset);
+    }
+
+    /**
+     * /aibuild tiled <width>x<depth> <description>: a site larger than one plan, generated as a
+     * grid of tiles that are placed as one job as soon as each tile has been validated
+     */
+    private void handleTiled(Player p, String[] args, int placePerTick) {
+        if (!p.hasPermission("aibuild.tiled")) {
+            sendError(p, "No permission.");
+            return;
+        }
+        Matcher footprint = args.length >= 3 ? FOOTPRINT.matcher(args[1]) : null;
+        if (footprint == null || !footprint.matches()) {
+            p.sendMessage(ChatColor.YELLOW + "Usage: /aibuild tiled <width>x<depth> <description>");
+            return;
+        }
+        int width = Integer.parseInt(footprint.group(1));
+        int depth = Integer.parseInt(footprint.group(2));
+        int maxFootprint = config.getTiledMaxFootprint();
+        if (width < 1 || depth < 1 || width > maxFootprint || depth > maxFootprint) {
+            sendError(p, "Footprint must be 1-" + maxFootprint + " blocks on each side");
+            return;
+        }
+
+        String userPrompt = String.join(" ", Arrays.copyOfRange(args, 2, args.length));
+        Set<Material> allowed = config.getAllowedMaterials();
+        BlockFace facing = yawToCardinal(p.getLocation().getYaw());
+        Location origin = originFor(p, facing);
+        int tiles = TiledGenerator.split(width, depth, config.getTileSize()).size();
+        p.sendMessage(ChatColor.GRAY + "⚒ Generating a " + width + "x" + depth + " site as " + tiles + " tiles...");
+
+        PlacementQueue queue = new PlacementQueue();
+        boolean accepted = submitGeneration(p, progress -> {
+            CompletableFuture<TiledGenerator.Result> generation = tiledGenerator.generate(
+                    userPrompt,
+                    width,
+                    depth,
+                    config.getMaxBlocks(),
+                    allowed,
+                    progress::message,
+                    block -> {
+                        progress.onBlock();
+                        queue.offer(block);
+                    }
+            );
+            return progress.closeAfter(generation, (result, error) -> {
+                if (error != null) {
+                    queue.abort(describeFailure(error));
+                } else if (result.failed() == result.tiles()) {
+                    queue.abort("No tile could be generated");
                 } else {
-                    userMsg = "AI service error - try again";
+                    if (result.failed() > 0) {
+                        progress.message(ChatColor.YELLOW + "⚠ " + result.failed() + " of " + result.tiles()
+                            + " tiles failed and were left empty");
+                    }
+                    queue.complete();
                 }
-                sendErrorSync(p, userMsg);
-            } catch (Exception e) {
-                logger.severe("Unexpected error: " + e.getMessage());
-                e.printStackTrace();
-                sendErrorSync(p, "An unexpected error occurred");
-            }
+            });
         });
+        if (accepted) {
+            BlockPlacer.placeStreaming(plugin, origin, facing, queue, allowed, placePerTick, config.isReplaceOnlyAir(), p, history);
+        }
+    }
 
-        return true;
+    /**
+     * Hand a generation to the scheduler, telling the player if it is queued or turned away.
+     * Messages for the player go through the shared progress ticker until the generation ends.
+     * The task returns its generation through {@link ProgressTicker.Handle#closeAfter}, which closes
+     * the handle once the task's own handler has had its say.
+     * @return false if the request was shed
+     */
+    private boolean submitGeneration(Player p, Function<ProgressTicker.Handle, CompletableFuture<?>> task) {
+        ProgressTicker.Handle progress = progressTicker.track(msg -> p.sendMessage(ChatColor.AQUA + msg));
+        GenerationScheduler.Admission admission = scheduler.submitAsync(p.getUniqueId(), () -> task.apply(progress), (position, etaMs) -> {
+            String eta = etaMs >= 0 ? ", about " + Math.max(1, (etaMs + 999) / 1000) + "s" : "";
+            progress.message(ChatColor.GRAY + "⏳ Queued: position " + (position + 1) + eta);
+        });
+        switch (admission) {
+            case QUEUE_FULL -> sendError(p, "Server is busy generating builds - try again shortly");
+            case PLAYER_QUEUE_FULL -> sendError(p, "You already have a build waiting in the queue");
+            default -> { }
+        }
+        if (!admission.isAccepted()) progress.close();
+        return admission.isAccepted();
+    }
+
+    /**
+     * Log a failed generation and turn it into a player-facing message
+     */
+    private String describeFailure(Throwable error) {
+        Throwable cause = PlanGenerator.unwrap(error);
+        if (cause instanceof OpenAIException e) {
+            logOpenAIError(e);
+            return describeError(e);
+        }
+        if (cause instanceof PlanParseException e) {
+            logParseError(e);
+            return "Failed to parse AI response";
+        }
+        if (cause instanceof BuildValidationException e) {
+            logger.warning("Build validation failed: " + e.getMessage());
+            return "Invalid plan: " + e.getMessage();
+        }
+        if (cause instanceof CancellationException) {
+            return "Generation cancelled";
+        }
+        logger.severe("Unexpected error: " + cause.getMessage());
+        cause.printStackTrace();
+        return "An unexpected error occurred";
+    }
+
+    /**
+     * /aibuild queue
+     */
+    private void handleQueue(CommandSender sender) {
+        if (!sender.hasPermission("aibuild.admin")) {
+            sender.sendMessage(formatError("No permission."));
+            return;
+        }
+        GenerationScheduler.Stats stats = scheduler.stats();
+        sender.sendMessage(ChatColor.GRAY + String.format(
+            "Generation: %d running, %d queued (%d players), %d done in the last minute",
+            stats.running(), stats.queued(), stats.queuedPlayers(), stats.completedLastMinute()));
+        sender.sendMessage(ChatColor.GRAY + String.format(
+            "Totals: %d submitted, %d completed, %d shed; queue wait p50 %dms, p95 %dms, max %dms",
+            stats.submitted(), stats.completed(), stats.shed(),
+            Math.max(0, stats.waitP50Ms()), Math.max(0, stats.waitP95Ms()), stats.maxWaitMs()));
+        OpenAIClient.TtftStats ttft = planGenerator.getTtftStats();
+        sender.sendMessage(ChatColor.GRAY + String.format(
+            "First token: warm p50 %dms, p95 %dms (%d); cold p50 %dms, p95 %dms (%d)",
+            Math.max(0, ttft.warmP50Ms()), Math.max(0, ttft.warmP95Ms()), ttft.warmSamples(),
+            Math.max(0, ttft.coldP50Ms()), Math.max(0, ttft.coldP95Ms()), ttft.coldSamples()));
+        for (ModelRouter.ModelStats model : planGenerator.getModelStats()) {
+            sender.sendMessage(ChatColor.GRAY + String.format(
+                "Model %s: %d requests, %.0f%% valid, %d invalid (%d escalated), %d errors; p50 %dms, p95 %dms",
+                model.model(), model.requests(), model.successRate() * 100, model.invalid(), model.escalated(),
+                model.errors(), Math.max(0, model.p50Ms()), Math.max(0, model.p95Ms())));
+        }
+    }
+
+    /**
+     * /aibuild cache <stats|clear|invalidate <prompt>>
+     */
+    private void handleCache(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("aibuild.admin")) {
+            sender.sendMessage(formatError("No permission."));
+            return;
+        }
+        PlanCache cache = planGenerator.getCache();
+        if (cache == null) {
+            sender.sendMessage(formatError("Plan cache is disabled."));
+            return;
+        }
+        String action = args.length >= 2 ? args[1].toLowerCase(Locale.ROOT) : "stats";
+        switch (action) {
+            case "stats" -> {
+                PlanCache.Stats stats = cache.stats();
+                sender.sendMessage(ChatColor.GRAY + String.format(
+                    "Plan cache: %d hits (%d memory, %d disk, %d similar), %d misses, %d evictions, %d entries / %d blocks in memory",
+                    stats.hits(), stats.memoryHits(), stats.diskHits(), stats.similarHits(), stats.misses(), stats.evictions(),
+                    stats.entries(), stats.blocks()));
+            }
+            case "clear" -> plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                int removed = cache.clear();
+                plugin.getServer().getScheduler().runTask(plugin, () ->
+                    sender.sendMessage(ChatColor.GREEN + "✓ Cleared " + removed + " cached plans"));
+            });
+            case "invalidate" -> {
+                if (args.length < 3) {
+                    sender.sendMessage(ChatColor.YELLOW + "Usage: /aibuild cache invalidate <description>");
+                    return;
+                }
+                String prompt = String.join(" ", Arrays.copyOfRange(args, 2, args.length));
+                plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                    int removed = cache.invalidate(prompt);
+                    plugin.getServer().getScheduler().runTask(plugin, () ->
+                        sender.sendMessage(ChatColor.GREEN + "✓ Invalidated " + removed + " cached plans"));
+                });
+            }
+            default -> sender.sendMessage(ChatColor.YELLOW + "Usage: /aibuild cache <stats|clear|invalidate <description>>");
+        }
+    }
+
+    /**
+     * /aibuild keys
+     */
+    private void handleKeys(CommandSender sender) {
+        if (!sender.hasPermission("aibuild.admin")) {
+            sender.sendMessage(formatError("No permission."));
+            return;
+        }
+        for (ApiKeyPool.KeyStats key : planGenerator.getKeyPool().stats()) {
+            String state = key.benchedForMs() > 0
+                ? ChatColor.RED + "benched " + ((key.benchedForMs() + 999) / 1000) + "s"
+                : ChatColor.GREEN + "active";
+            sender.sendMessage(ChatColor.GRAY + String.format(
+                "%s: %s" + ChatColor.GRAY + ", %d in flight, %d requests, %d errors (%.0f%% recent), last HTTP %d",
+                key.label(), state, key.inFlight(), key.requests(), key.errors(), key.errorRate() * 100, key.lastStatus()));
+        }
+    }
+
+    private void logParseError(PlanParseException e) {
+        logger.warning("JSON parse error: " + e.getMessage());
+        if (e.getJsonSnippet() != null && !e.getJsonSnippet().isBlank()) {
+            logger.warning("JSON snippet: " + e.getJsonSnippet());
+        }
+    }
+
+    private void logOpenAIError(OpenAIException e) {
+        if (e.isPlanRejected()) {
+            logger.warning("Plan rejected mid-stream: " + e.getMessage());
+        } else {
+            logger.severe("OpenAI API error: " + e.getMessage());
+        }
+    }
+
+    private String describeError(OpenAIException e) {
+        if (e.isPlanRejected()) {
+            return "Invalid plan: " + e.getCause().getMessage();
+        }
+        if (e.isAuthError()) {
+            return "API authentication failed - check server configuration";
+        } else if (e.isRateLimited()) {
+            return "Rate limited - try again later";
+        } else if (e.isStalled()) {
+            return "AI service stalled - try again";
+        } else if (e.isTimeout()) {
+            return "Request timed out - try a simpler build";
+        }
+        return "AI service error - try again";
     }
 
     private BlockFace yawToCardinal(float yaw) {
@@ -188,18 +477,10 @@ public class AIBuildCommand implements CommandExecutor {
         return BlockFace.EAST;
     }
 
-    private void sendSync(Player player, String message) {
-        plugin.getServer().getScheduler().runTask(plugin, () -> player.sendMessage(message));
-    }
-
     private void sendError(Player player, String message) {
         player.sendMessage(formatError(message));
     }
 
-    private void sendErrorSync(Player player, String message) {
-        sendSync(player, formatError(message));
-    }
-
     private String formatError(String message) {
         return ChatColor.DARK_RED + "[AIBuild] " + ChatColor.RED + message;
     }
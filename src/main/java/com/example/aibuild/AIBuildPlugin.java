@@ -1,10 +1,28 @@
 package com.example.aibuild;
 
 import com.example.aibuild.service.ConfigService;
+import com.example.aibuild.service.DirectoryPlanStore;
+import com.example.aibuild.service.GenerationScheduler;
+import com.example.aibuild.service.ModelRouter;
+import com.example.aibuild.service.PlanCache;
+import com.example.aibuild.service.PlanGenerator;
+import com.example.aibuild.service.ProgressTicker;
+import com.example.aibuild.service.PlanStore;
+import com.example.aibuild.service.SimilarPromptIndex;
+import com.example.aibuild.service.SqlitePlanStore;
+import com.example.aibuild.util.StreamWatchdog;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.sql.SQLException;
+
 public class AIBuildPlugin extends JavaPlugin {
     private OpenAIClient openAIClient;
+    private PlanGenerator planGenerator;
+    private GenerationScheduler generationScheduler;
+    private ProgressTicker progressTicker;
     private BuildHistory buildHistory;
     private ConfigService configService;
 
@@ -15,14 +33,21 @@ public class AIBuildPlugin extends JavaPlugin {
         this.configService = new ConfigService(getConfig());
 
         // Priority: 1) config.yml (for production), 2) env var (for development)
-        String apiKey = configService.getApiKey();
-        if (apiKey == null || apiKey.isBlank() || isPlaceholder(apiKey)) {
+        List<String> apiKeys = new ArrayList<>(configService.getApiKeys());
+        apiKeys.removeIf(this::isPlaceholder);
+        if (apiKeys.isEmpty()) {
             getLogger().warning("API key not found in config.yml, checking environment variables...");
-            apiKey = EnvConfig.getOpenAiApiKey();
+            String envKey = EnvConfig.getOpenAiApiKey();
+            if (envKey != null && !envKey.isBlank() && !isPlaceholder(envKey)) {
+                apiKeys.add(envKey);
+            }
         }
 
-        // Validate API key
-        if (apiKey == null || apiKey.isBlank() || isPlaceholder(apiKey)) {
+        // Validate API key; local servers configured as keyless run without one
+        String model = configService.getModel();
+        OpenAIClient.Settings settings = configService.getClientSettings();
+        boolean keyRequired = settings.modelProviders.getOrDefault(model, settings.provider).requiresApiKey();
+        if (apiKeys.isEmpty() && keyRequired) {
             getLogger().severe("========================================");
             getLogger().severe("ERROR: OpenAI API key not configured!");
             getLogger().severe("Please edit plugins/AIBuild/config.yml");
@@ -34,21 +59,99 @@ public class AIBuildPlugin extends JavaPlugin {
         }
 
         this.openAIClient = new OpenAIClient(
-                apiKey,
-                configService.getModel(),
-                configService.getTimeoutMs()
+                apiKeys,
+                model,
+                settings
         );
+        if (configService.isHttpWarmupEnabled()) {
+            openAIClient.warmUp().whenComplete((ms, error) -> {
+                if (error != null) {
+                    getLogger().warning("Could not pre-connect to the OpenAI API: " + error.getMessage());
+                } else {
+                    getLogger().info("Pre-connected to the OpenAI API in " + ms + "ms");
+                }
+            });
+        }
+        openAIClient.keepWarm(configService.getHttpKeepWarmIntervalMs());
 
+        this.planGenerator = new PlanGenerator(openAIClient, configService, getLogger(), createPlanCache(), createModelRouter());
+        this.generationScheduler = new GenerationScheduler(
+                configService.getMaxConcurrentGenerations(),
+                configService.getMaxQueuedGenerations(),
+                configService.getMaxQueuedPerPlayer()
+        );
+        // Flush player messages twice a second; a quiet request gets a progress line every 3s
+        this.progressTicker = new ProgressTicker(task -> getServer().getScheduler().runTask(this, task), 500, 3000);
+        progressTicker.start();
         this.buildHistory = new BuildHistory();
 
         if (getCommand("aibuild") != null) {
             getCommand("aibuild").setExecutor(
-                new AIBuildCommand(this, openAIClient, buildHistory, configService)
+                new AIBuildCommand(this, planGenerator, generationScheduler, progressTicker, buildHistory, configService)
             );
         }
 
         getLogger().info("AIBuild v2 enabled successfully.");
         getLogger().info("Using model: " + configService.getModel());
+        if (apiKeys.size() > 1) {
+            getLogger().info("Balancing requests across " + apiKeys.size() + " API keys");
+        }
+    }
+
+    @Override
+    public void onDisable() {
+        if (generationScheduler != null) {
+            generationScheduler.shutdown();
+        }
+        if (progressTicker != null) {
+            progressTicker.shutdown();
+        }
+        if (openAIClient != null) {
+            openAIClient.close();
+        }
+        OpenAIClient.shutdownScheduler();
+        StreamWatchdog.shutdown();
+        if (planGenerator != null && planGenerator.getCache() != null) {
+            planGenerator.getCache().close();
+        }
+    }
+
+    private ModelRouter createModelRouter() {
+        if (!configService.isRoutingEnabled()) return new ModelRouter(configService.getModel());
+        getLogger().info("Routing simple builds to " + configService.getRoutingSmallModel());
+        return new ModelRouter(
+            configService.getRoutingSmallModel(),
+            configService.getModel(),
+            configService.getRoutingComplexityThreshold(),
+            configService.isRoutingEscalationEnabled()
+        );
+    }
+
+    private PlanCache createPlanCache() {
+        if (!configService.isCacheEnabled()) return null;
+        PlanStore store = configService.isCacheDiskEnabled() ? createPlanStore() : null;
+        SimilarPromptIndex similar = configService.isCacheSimilarityEnabled()
+            ? new SimilarPromptIndex(configService.getCacheSimilarityThreshold(), configService.getCacheSimilarityMaxEntries())
+            : null;
+        return new PlanCache(configService.getCacheMemoryMaxBlocks(), store, similar);
+    }
+
+    private PlanStore createPlanStore() {
+        String type = configService.getCacheStoreType();
+        String path = configService.getCacheStorePath();
+        int maxEntries = configService.getCacheDiskMaxEntries();
+        if (type.equalsIgnoreCase("sqlite")) {
+            File file = path.isBlank() ? new File(getDataFolder(), "plan-cache.db") : new File(path);
+            try {
+                return new SqlitePlanStore(file, maxEntries, getLogger());
+            } catch (SQLException e) {
+                getLogger().warning("Could not open SQLite plan cache (" + e.getMessage() + "), using a directory instead");
+            }
+        } else if (!type.equalsIgnoreCase("directory")) {
+            getLogger().warning("Unknown cache.store.type '" + type + "', using a directory");
+        }
+        File dir = path.isBlank() || type.equalsIgnoreCase("sqlite") ? new File(getDataFolder(), "plan-cache") : new File(path);
+        return new DirectoryPlanStore(dir, maxEntries, getLogger());
     }
 
     private boolean isPlaceholder(String key) {
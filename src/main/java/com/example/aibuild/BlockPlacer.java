@@ -25,6 +25,7 @@ public class BlockPlacer {
     ) {
         List<BlockSpec> blocks = plan.blocks;
         Deque<BuildHistory.PlacedBlock> placed = new ArrayDeque<>(blocks.size());
+        Set<Long> own = new HashSet<>();
         
         // Pre-cache origin coordinates to avoid repeated access
         World world = origin.getWorld();
@@ -41,32 +42,10 @@ public class BlockPlacer {
                 int end = Math.min(idx + placePerTick, blocks.size());
 
                 for (int i = idx; i < end; i++) {
-                    BlockSpec b = blocks.get(i);
-
-                    Material m = safeMaterial(b.material, allowed);
-                    if (m == null) continue;
-
-                    int[] xz = Rotation.rotateXZ(b.dx, b.dz, facing);
-                    int rdx = xz[0];
-                    int rdz = xz[1];
-
-                    // Minimize Location allocations - get block directly by coordinates
-                    int blockX = originX + rdx;
-                    int blockY = originY + b.dy;
-                    int blockZ = originZ + rdz;
-                    
-                    Block block = world.getBlockAt(blockX, blockY, blockZ);
-
-                    if (replaceOnlyAir && block.getType() != Material.AIR) continue;
-
-                    Material prev = block.getType();
-                    if (prev == m) continue;
-
-                    block.setType(m, true); // Enable physics so blocks behave normally
-                    // Only create Location for history when actually placing a block
-                    placed.addLast(new BuildHistory.PlacedBlock(
-                        new Location(world, blockX, blockY, blockZ), prev
-                    ));
+                    BuildHistory.PlacedBlock pb = placeBlock(
+                        world, originX, originY, originZ, facing, blocks.get(i), allowed, replaceOnlyAir, own
+                    );
+                    if (pb != null) placed.addLast(pb);
                 }
 
                 idx = end;
@@ -90,6 +69,77 @@ public class BlockPlacer {
         }.runTaskTimer(plugin, 1L, 1L);
     }
 
+    /**
+     * Place blocks from a queue that is still being filled by a streaming generation.
+     * Drains up to placePerTick blocks per tick and finishes once the queue is
+     * complete and empty, or stops early if the stream was aborted.
+     */
+    public static void placeStreaming(
+            JavaPlugin plugin,
+            Location origin,
+            BlockFace facing,
+            PlacementQueue queue,
+            Set<Material> allowed,
+            int placePerTick,
+            boolean replaceOnlyAir,
+            Player player,
+            BuildHistory history
+    ) {
+        Deque<BuildHistory.PlacedBlock> placed = new ArrayDeque<>();
+        Set<Long> own = new HashSet<>();
+
+        World world = origin.getWorld();
+        int originX = origin.getBlockX();
+        int originY = origin.getBlockY();
+        int originZ = origin.getBlockZ();
+
+        new org.bukkit.scheduler.BukkitRunnable() {
+            int processed = 0;
+            long lastProgressMs = System.currentTimeMillis();
+
+            @Override
+            public void run() {
+                if (queue.isAborted()) {
+                    if (!placed.isEmpty()) {
+                        history.store(player.getUniqueId(), placed);
+                    }
+                    player.sendMessage(ChatColor.DARK_RED + "[AIBuild] " + ChatColor.RED + queue.getAbortReason());
+                    if (!placed.isEmpty()) {
+                        player.sendMessage(ChatColor.YELLOW + "Partial build of " + placed.size() +
+                            " blocks kept - use /aibuild undo to remove it.");
+                    }
+                    cancel();
+                    return;
+                }
+
+                // Read completion before draining so blocks offered just before complete() are not missed
+                boolean streamDone = queue.isComplete();
+                int n = 0;
+                BlockSpec b;
+                while (n < placePerTick && (b = queue.poll()) != null) {
+                    BuildHistory.PlacedBlock pb = placeBlock(
+                        world, originX, originY, originZ, facing, b, allowed, replaceOnlyAir, own
+                    );
+                    if (pb != null) placed.addLast(pb);
+                    n++;
+                }
+                processed += n;
+
+                long now = System.currentTimeMillis();
+                if (now - lastProgressMs > 5000 && !streamDone) {
+                    player.sendMessage(ChatColor.GRAY + "⚒ Building... " + processed + " blocks so far (still generating)");
+                    lastProgressMs = now;
+                }
+
+                if (streamDone && queue.isEmpty()) {
+                    history.store(player.getUniqueId(), placed);
+                    player.sendMessage(ChatColor.GREEN + "✓ Build complete: " + placed.size() + " blocks placed");
+                    cancel();
+                }
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+
     public static void undoLast(JavaPlugin plugin, Player player, BuildHistory history, int placePerTick) {
         Deque<BuildHistory.PlacedBlock> last = history.pop(player.getUniqueId());
         if (last == null || last.isEmpty()) {
@@ -114,6 +164,49 @@ public class BlockPlacer {
         }.runTaskTimer(plugin, 1L, 1L);
     }
 
+    /**
+     * Place a single plan block relative to the origin
+     * @param own positions already set by this build; later plan entries may replace them
+     *            even when only air is replaced, so details can go over a box
+     * @return the history entry, or null if nothing was changed
+     */
+    private static BuildHistory.PlacedBlock placeBlock(
+            World world,
+            int originX,
+            int originY,
+            int originZ,
+            BlockFace facing,
+            BlockSpec b,
+            Set<Material> allowed,
+            boolean replaceOnlyAir,
+            Set<Long> own
+    ) {
+        Material m = safeMaterial(b.material, allowed);
+        if (m == null) return null;
+
+        int[] xz = Rotation.rotateXZ(b.dx, b.dz, facing);
+        int rdx = xz[0];
+        int rdz = xz[1];
+
+        // Minimize Location allocations - get block directly by coordinates
+        int blockX = originX + rdx;
+        int blockY = originY + b.dy;
+        int blockZ = originZ + rdz;
+
+        Block block = world.getBlockAt(blockX, blockY, blockZ);
+
+        long position = ((long) blockX & 0x3FFFFFF) << 38 | ((long) blockZ & 0x3FFFFFF) << 12 | (blockY & 0xFFF);
+        if (replaceOnlyAir && block.getType() != Material.AIR && !own.contains(position)) return null;
+
+        Material prev = block.getType();
+        if (prev == m) return null;
+
+        block.setType(m, true); // Enable physics so blocks behave normally
+        own.add(position);
+        // Only create Location for history when actually placing a block
+        return new BuildHistory.PlacedBlock(new Location(world, blockX, blockY, blockZ), prev);
+    }
+
     private static Material safeMaterial(String materialName, Set<Material> allowed) {
         if (materialName == null) return null;
         try {
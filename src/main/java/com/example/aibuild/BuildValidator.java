@@ -1,7 +1,9 @@
 package com.example.aibuild;
 
 import com.example.aibuild.exception.BuildValidationException;
+import com.example.aibuild.model.BlockSpec;
 import com.example.aibuild.model.BuildPlan;
+import com.example.aibuild.model.Size;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -10,6 +12,7 @@ import java.util.Set;
  * Validates building plans for safety and correctness
  */
 public class BuildValidator {
+    public static final int MAX_DIMENSION = 80;
 
     /**
      * Validate a build plan
@@ -24,35 +27,12 @@ public class BuildValidator {
             throw new BuildValidationException("Missing blocks");
         }
 
-        int sx = plan.size.x;
-        int sy = plan.size.y;
-        int sz = plan.size.z;
-
-        if (sx <= 0 || sy <= 0 || sz <= 0) {
-            throw new BuildValidationException("Invalid size: dimensions must be positive");
-        }
-        if (sx > 80 || sy > 80 || sz > 80) {
-            throw new BuildValidationException("Size too large: maximum 80 blocks per dimension");
-        }
+        validateSize(plan.size);
 
         Set<String> blockSet = new HashSet<>(plan.blocks.size() * 2);
 
         for (var b : plan.blocks) {
-            if (b == null) {
-                throw new BuildValidationException("Null block entry found");
-            }
-            if (b.dx < 0 || b.dx >= sx) {
-                throw new BuildValidationException(String.format(
-                    "Block X coordinate %d out of bounds [0, %d)", b.dx, sx));
-            }
-            if (b.dy < 0 || b.dy >= sy) {
-                throw new BuildValidationException(String.format(
-                    "Block Y coordinate %d out of bounds [0, %d)", b.dy, sy));
-            }
-            if (b.dz < 0 || b.dz >= sz) {
-                throw new BuildValidationException(String.format(
-                    "Block Z coordinate %d out of bounds [0, %d)", b.dz, sz));
-            }
+            validateBlock(b, plan.size);
             blockSet.add(key(b.dx, b.dy, b.dz));
         }
 
@@ -72,6 +52,47 @@ public class BuildValidator {
         // Don't validate floating blocks - AI can create complex structures
     }
 
+    /**
+     * Validate the declared size of a plan
+     * @param size The plan size
+     * @throws BuildValidationException if any dimension is non-positive or too large
+     */
+    public static void validateSize(Size size) throws BuildValidationException {
+        if (size == null) {
+            throw new BuildValidationException("Missing size");
+        }
+        if (size.x <= 0 || size.y <= 0 || size.z <= 0) {
+            throw new BuildValidationException("Invalid size: dimensions must be positive");
+        }
+        if (size.x > MAX_DIMENSION || size.y > MAX_DIMENSION || size.z > MAX_DIMENSION) {
+            throw new BuildValidationException("Size too large: maximum " + MAX_DIMENSION + " blocks per dimension");
+        }
+    }
+
+    /**
+     * Validate a single block against the plan size
+     * @param b The block to check
+     * @param size The (already validated) plan size
+     * @throws BuildValidationException if the block is null or out of bounds
+     */
+    public static void validateBlock(BlockSpec b, Size size) throws BuildValidationException {
+        if (b == null) {
+            throw new BuildValidationException("Null block entry found");
+        }
+        if (b.dx < 0 || b.dx >= size.x) {
+            throw new BuildValidationException(String.format(
+                "Block X coordinate %d out of bounds [0, %d)", b.dx, size.x));
+        }
+        if (b.dy < 0 || b.dy >= size.y) {
+            throw new BuildValidationException(String.format(
+                "Block Y coordinate %d out of bounds [0, %d)", b.dy, size.y));
+        }
+        if (b.dz < 0 || b.dz >= size.z) {
+            throw new BuildValidationException(String.format(
+                "Block Z coordinate %d out of bounds [0, %d)", b.dz, size.z));
+        }
+    }
+
     private static String key(int x, int y, int z) {
         return x + "," + y + "," + z;
     }
@@ -1,6 +1,20 @@
 package com.example.aibuild;
 
+import com.example.aibuild.exception.BuildValidationException;
 import com.example.aibuild.exception.OpenAIException;
+import com.example.aibuild.exception.PlanParseException;
+import com.example.aibuild.provider.ModelProvider;
+import com.example.aibuild.service.IncrementalPlanParser;
+import com.example.aibuild.service.PaletteSelector;
+import com.example.aibuild.service.PlanFormat;
+import com.example.aibuild.service.PromptCompiler;
+import com.example.aibuild.util.ApiKeyPool;
+import com.example.aibuild.util.HedgeBudget;
+import com.example.aibuild.util.LatencyTracker;
+import com.example.aibuild.util.RateLimitHeaders;
+import com.example.aibuild.util.RetryPolicy;
+import com.example.aibuild.util.StreamWatchdog;
+import com.example.aibuild.util.TokenBudget;
 import com.google.gson.Gson;
 import okhttp3.*;
 import okhttp3.sse.EventSource;
@@ -11,71 +25,344 @@ import org.bukkit.Material;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.*;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 public class OpenAIClient {
-    private static final String RESPONSES_URL = "https://api.openai.com/v1/responses";
+    // Stands in for a key when a keyless local server is used, so leasing works unchanged
+    private static final String NO_KEY = "none";
+    // A [x,y,z,m] tuple is roughly 10 tokens; the overhead covers "s", braces and a name
+    private static final int TOKENS_PER_BLOCK = 10;
+    private static final int OUTPUT_TOKEN_OVERHEAD = 256;
+    // One outline section: name, corner, size and a one-line description
+    private static final int TOKENS_PER_SECTION = 60;
+    // Placement, size and description wrapped around the user prompt for each section
+    private static final int SECTION_PROMPT_TOKENS = 100;
+    // Hedges, retry backoff and stream deadlines are timers here, so no thread waits on a stream
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "AIBuild-stream-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
     private final OkHttpClient http;
+    private final EventSource.Factory eventSources;
     private final Gson gson = new Gson();
-    private final String apiKey;
+    private final ApiKeyPool keyPool;
     private final String model;
+    private final Settings settings;
+    // Recent time-to-first-token samples; the hedge delay is a percentile of these
+    private final LatencyTracker ttftHistory = new LatencyTracker(200);
+    // The same samples split by whether a pooled connection was already open
+    private final LatencyTracker warmTtft = new LatencyTracker(200);
+    private final LatencyTracker coldTtft = new LatencyTracker(200);
+    private volatile ScheduledFuture<?> keepWarmTask;
+    private final HedgeBudget hedgeBudget;
+    private final RetryPolicy retryPolicy;
+    private final TokenBudget tokenBudget;
+    private final PromptCompiler promptCompiler = new PromptCompiler();
+    private final PaletteSelector paletteSelector;
+
+    /**
+     * Network tuning for the client. Defaults suit the public OpenAI endpoint.
+     */
+    public static class Settings {
+        public int timeoutMs = 120000;
+        public int connectTimeoutMs = 10000;
+        // Stall watchdog: 0 disables the check
+        public int firstTokenTimeoutMs = 30000;
+        public int interTokenTimeoutMs = 15000;
+        // Hedging: race a second request if the first is slower than this TTFT percentile
+        public boolean hedgingEnabled = true;
+        public double hedgePercentile = 95;
+        public double hedgeMaxRate = 0.1;
+        public int hedgeMinSamples = 20;
+        public int hedgeMinDelayMs = 500;
+        // Retries for throttling, server errors and stalls
+        public int retryMaxAttempts = 4;
+        public int retryBaseDelayMs = 500;
+        public int retryMaxDelayMs = 20000;
+        public int retryDeadlineMs = 60000;
+        // Pacing against the account's rate-limit quota, driven by x-ratelimit-* headers
+        public boolean budgetEnabled = true;
+        public double budgetReserveFraction = 0.05;
+        public int budgetMinBlocks = 100;
+        public int budgetMaxWaitMs = 60000;
+
+        public int maxIdleConnections = 8;
+        public long keepAliveMs = 300000;
+        public int maxRequests = 64;
+        public int maxRequestsPerHost = 32;
+        public int pingIntervalMs = 15000;
+
+        // Plan encoding asked for, and how large a palette is sent whole
+        public String planFormat = "auto";
+        public double layerMinFill = 0.4;
+        public int paletteMaxMaterials = 60;
+
+        // Where requests go: the default, plus overrides by model name
+        public ModelProvider provider = ModelProvider.create(null, null, null);
+        public Map<String, ModelProvider> modelProviders = new HashMap<>();
+    }
 
     public OpenAIClient(String apiKey, String model, int timeoutMs) {
-        this.apiKey = apiKey;
-        this.model = model;
+        this(apiKey, model, settingsWithTimeout(timeoutMs));
+    }
 
-        int connectTimeoutMs = 120000;
-        int writeTimeoutMs = 120000;
-        int readTimeoutMs = timeoutMs;
-        int callTimeoutMs = timeoutMs;
+    public OpenAIClient(String apiKey, String model, Settings settings) {
+        this(apiKey != null ? List.of(apiKey) : List.of(), model, settings);
+    }
 
+    /**
+     * Client that spreads requests over several API keys
+     */
+    public OpenAIClient(List<String> apiKeys, String model, Settings settings) {
+        this.model = model;
+        this.settings = settings;
+        this.paletteSelector = new PaletteSelector(settings.paletteMaxMaterials);
+        boolean keyless = apiKeys.stream().allMatch(k -> k == null || k.isBlank()) && !providerFor(model).requiresApiKey();
+        this.keyPool = new ApiKeyPool(keyless ? List.of(NO_KEY) : apiKeys);
+        this.hedgeBudget = new HedgeBudget(settings.hedgeMaxRate, 100);
+        this.retryPolicy = new RetryPolicy(settings.retryMaxAttempts, settings.retryBaseDelayMs,
+                settings.retryMaxDelayMs, settings.retryDeadlineMs);
+        this.tokenBudget = settings.budgetEnabled
+                ? new TokenBudget(settings.budgetReserveFraction, settings.budgetMinBlocks, settings.budgetMaxWaitMs)
+                : null;
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(settings.maxRequests);
+        // Every stream to the API shares one host, so the per-host cap is the one that binds
+        dispatcher.setMaxRequestsPerHost(settings.maxRequestsPerHost);
         this.http = new OkHttpClient.Builder()
-                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
-                .readTimeout(Duration.ofMillis(readTimeoutMs))
-                .writeTimeout(Duration.ofMillis(writeTimeoutMs))
-                .callTimeout(Duration.ofMillis(callTimeoutMs))
+                .connectTimeout(Duration.ofMillis(settings.connectTimeoutMs))
+                .readTimeout(Duration.ofMillis(settings.timeoutMs))
+                .writeTimeout(Duration.ofMillis(settings.connectTimeoutMs))
+                .callTimeout(Duration.ofMillis(settings.timeoutMs))
+                .connectionPool(new ConnectionPool(settings.maxIdleConnections, settings.keepAliveMs, TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .pingInterval(Duration.ofMillis(settings.pingIntervalMs))
                 .build();
+        this.eventSources = EventSources.createFactory(http);
     }
 
-    public String generateBuildPlanJson(String userPrompt, int maxBlocks, Set<Material> allowed) throws OpenAIException {
-        if (apiKey == null || apiKey.isBlank() || apiKey.contains("PUT_YOUR_KEY")) {
+    public String getModel() {
+        return model;
+    }
+
+    public ApiKeyPool getKeyPool() {
+        return keyPool;
+    }
+
+    /**
+     * Shared quota governor, or null if pacing is disabled
+     */
+    public TokenBudget getTokenBudget() {
+        return tokenBudget;
+    }
+
+    public PromptCompiler getPromptCompiler() {
+        return promptCompiler;
+    }
+
+    /**
+     * Materials offered for a prompt, in ID order; a subset of allowed when the palette is large
+     */
+    public List<Material> paletteFor(String userPrompt, Set<Material> allowed) {
+        return paletteSelector.select(userPrompt, allowed);
+    }
+
+    /**
+     * Names that the IDs in a plan for this prompt refer to; shared, do not modify
+     */
+    public String[] materialNames(String userPrompt, Set<Material> allowed) {
+        List<Material> palette = paletteFor(userPrompt, allowed);
+        return palette.size() == allowed.size()
+            ? promptCompiler.materialNames(allowed)
+            : promptCompiler.materialNames(palette);
+    }
+
+    /**
+     * Encoding to ask for: the configured format, or the one suiting the prompt's expected fill
+     */
+    public PlanFormat formatFor(String userPrompt, Set<Material> allowed) {
+        return PlanFormat.choose(settings.planFormat, userPrompt, settings.layerMinFill, paletteFor(userPrompt, allowed).size());
+    }
+
+    private PromptCompiler.CompiledPrompt compile(String userPrompt, int maxBlocks, Set<Material> allowed) {
+        List<Material> palette = paletteFor(userPrompt, allowed);
+        PlanFormat format = PlanFormat.choose(settings.planFormat, userPrompt, settings.layerMinFill, palette.size());
+        // A whole palette goes through the shared entry, numbered by name like the selector returns it
+        return palette.size() == allowed.size()
+            ? promptCompiler.compile(allowed, maxBlocks, format)
+            : promptCompiler.compile(palette, maxBlocks, format);
+    }
+
+    /**
+     * API format and endpoint used for a model
+     */
+    public ModelProvider providerFor(String model) {
+        return settings.modelProviders.getOrDefault(model, settings.provider);
+    }
+
+    private static Request authorize(Request request, ApiKeyPool.Lease lease) {
+        if (NO_KEY.equals(lease.apiKey())) return request;
+        return request.newBuilder()
+                .header("Authorization", "Bearer " + lease.apiKey())
+                .build();
+    }
+
+    /**
+     * Time to first token, split by whether the request found an open connection
+     * @param warmP50Ms median on an open connection, -1 if no samples
+     * @param coldP50Ms median when a new connection had to be set up, -1 if no samples
+     */
+    public record TtftStats(long warmP50Ms, long warmP95Ms, int warmSamples,
+                            long coldP50Ms, long coldP95Ms, int coldSamples) {}
+
+    public TtftStats getTtftStats() {
+        return new TtftStats(warmTtft.percentile(50), warmTtft.percentile(95), warmTtft.sampleCount(),
+            coldTtft.percentile(50), coldTtft.percentile(95), coldTtft.sampleCount());
+    }
+
+    /**
+     * Open a pooled connection to the API host in the background, so the next request
+     * skips DNS, TCP and TLS setup
+     * @return completes with the time the round trip took
+     */
+    public CompletableFuture<Long> warmUp() {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        long start = System.nanoTime();
+        Request req = new Request.Builder().url(providerFor(model).warmupUrl()).head().build();
+        http.newCall(req).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                result.complete(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Warm up again whenever the pool has let every connection go, checked every intervalMs
+     */
+    public void keepWarm(long intervalMs) {
+        if (intervalMs <= 0 || keepWarmTask != null) return;
+        keepWarmTask = SCHEDULER.scheduleWithFixedDelay(() -> {
+            if (http.connectionPool().connectionCount() == 0) warmUp();
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop keeping connections warm and close idle ones
+     */
+    public void close() {
+        ScheduledFuture<?> task = keepWarmTask;
+        if (task != null) task.cancel(false);
+        http.connectionPool().evictAll();
+    }
+
+    /**
+     * Stop the timer thread shared by all clients so it does not outlive the plugin; call once on disable
+     */
+    public static void shutdownScheduler() {
+        SCHEDULER.shutdownNow();
+    }
+
+    /**
+     * Rough token cost of a request as the provider's rate limiter counts it:
+     * input at about 4 characters per token plus the full output allowance
+     */
+    public long estimateTokenCost(String userPrompt, int maxBlocks, Set<Material> allowed) {
+        return estimateTokenCost(compile(userPrompt, maxBlocks, allowed).instructions(), userPrompt, maxOutputTokens(maxBlocks));
+    }
+
+    /**
+     * Rough token cost of a fanned-out generation, summed per request: the outline call plus up to
+     * maxSections section requests, each paying for its own instructions and output overhead
+     */
+    public long estimateFanOutTokenCost(String userPrompt, int maxBlocks, Set<Material> allowed, int maxSections) {
+        int sections = Math.max(1, maxSections);
+        long cost = estimateTokenCost(promptCompiler.compileOutline(sections).instructions(), userPrompt,
+            sections * TOKENS_PER_SECTION + OUTPUT_TOKEN_OVERHEAD);
+        int share = (maxBlocks + sections - 1) / sections;
+        long section = estimateTokenCost(compile(userPrompt, share, allowed).instructions(), userPrompt, maxOutputTokens(share))
+            + SECTION_PROMPT_TOKENS;
+        return cost + sections * section;
+    }
+
+    private static long estimateTokenCost(String instructions, String userPrompt, int maxOutputTokens) {
+        return (instructions.length() + userPrompt.length()) / 4 + maxOutputTokens;
+    }
+
+    private void observeRateLimits(Response response, ApiKeyPool.Lease lease, long sentAtNanos) {
+        if (tokenBudget != null) tokenBudget.onHeaders(lease.id(), RateLimitHeaders.snapshot(response), sentAtNanos);
+    }
+
+    private void requireApiKey() throws OpenAIException {
+        if (keyPool.size() == 0) {
             throw new OpenAIException("OpenAI API key not set in plugins/AIBuild/config.yml");
         }
+    }
+
+    private static Settings settingsWithTimeout(int timeoutMs) {
+        Settings settings = new Settings();
+        settings.timeoutMs = timeoutMs;
+        return settings;
+    }
+
+    public String generateBuildPlanJson(String userPrompt, int maxBlocks, Set<Material> allowed) throws OpenAIException {
+        return withRetry(null, () -> false, () -> requestBuildPlanJson(userPrompt, maxBlocks, allowed));
+    }
 
-        String allowedList = allowed.stream().map(Enum::name).sorted().collect(Collectors.joining(", "));
-        String instructions = buildInstructions(maxBlocks, allowedList);
+    private String requestBuildPlanJson(String userPrompt, int maxBlocks, Set<Material> allowed) throws OpenAIException {
+        requireApiKey();
 
-        Map<String, Object> payload = new LinkedHashMap<>();
-        payload.put("model", model);
-        payload.put("instructions", instructions);
-        payload.put("input", userPrompt);
+        ModelProvider provider = providerFor(model);
+        PromptCompiler.CompiledPrompt prompt = compile(userPrompt, maxBlocks, allowed);
+        Map<String, Object> payload = provider.payload(model, prompt, userPrompt, maxOutputTokens(maxBlocks), false);
 
+        ApiKeyPool.Lease lease = keyPool.acquire();
         RequestBody body = RequestBody.create(gson.toJson(payload), MediaType.parse("application/json"));
-        Request req = new Request.Builder()
-                .url(RESPONSES_URL)
+        Request req = authorize(new Request.Builder()
+                .url(provider.endpoint())
                 .addHeader("Content-Type", "application/json")
-                .addHeader("Authorization", "Bearer " + apiKey)
                 .post(body)
-                .build();
+                .build(), lease);
 
+        long sentAtNanos = System.nanoTime();
         try (Response res = http.newCall(req).execute()) {
+            observeRateLimits(res, lease, sentAtNanos);
+            keyPool.release(lease, res.code(), RateLimitHeaders.retryAfterMs(res));
             String raw = res.body() != null ? res.body().string() : "";
             if (!res.isSuccessful()) {
-                throw new OpenAIException("OpenAI API error: HTTP " + res.code() + " " + raw, res.code());
+                throw new OpenAIException("OpenAI API error: HTTP " + res.code() + " " + raw,
+                        res.code(), RateLimitHeaders.retryAfterMs(res));
             }
-            String extracted = extractTextFromChatApi(raw);
+            String extracted = provider.responseText(raw);
             if (extracted == null || extracted.isBlank()) {
                 throw new OpenAIException("OpenAI returned empty text output. Raw: " + raw);
             }
             return extracted.trim();
         } catch (java.io.IOException e) {
+            keyPool.release(lease, -1, -1);
             throw new OpenAIException("Network error calling OpenAI API", e);
         }
     }
@@ -86,200 +373,498 @@ public class OpenAIClient {
             Set<Material> allowed,
             Consumer<String> onProgress
     ) throws OpenAIException {
-        if (apiKey == null || apiKey.isBlank() || apiKey.contains("PUT_YOUR_KEY")) {
-            throw new OpenAIException("OpenAI API key not set in plugins/AIBuild/config.yml");
+        return generateBuildPlanJsonStreaming(userPrompt, maxBlocks, allowed, onProgress, null);
+    }
+
+    /**
+     * Stream a plan, handing each validated block to onBlock as it arrives.
+     * Blocks the calling thread; see {@link #generateBuildPlanJsonAsync} for the non-blocking form.
+     */
+    public String generateBuildPlanJsonStreaming(
+            String userPrompt,
+            int maxBlocks,
+            Set<Material> allowed,
+            Consumer<String> onProgress,
+            IncrementalPlanParser.BlockSink onBlock
+    ) throws OpenAIException {
+        return await(generateBuildPlanJsonAsync(userPrompt, maxBlocks, allowed, onProgress, onBlock));
+    }
+
+    /**
+     * Stream a plan without holding a thread: the future is completed from OkHttp callbacks
+     * and fails with {@link OpenAIException}. Failed attempts are retried only while no block
+     * has reached onBlock. Cancelling the future cancels the live EventSource and any pending retry.
+     */
+    public CompletableFuture<String> generateBuildPlanJsonAsync(
+            String userPrompt,
+            int maxBlocks,
+            Set<Material> allowed,
+            Consumer<String> onProgress,
+            IncrementalPlanParser.BlockSink onBlock
+    ) {
+        return generateBuildPlanJsonAsync(model, userPrompt, maxBlocks, allowed, onProgress, onBlock);
+    }
+
+    /**
+     * Stream a plan from the given model instead of the configured one
+     * @see #generateBuildPlanJsonAsync(String, int, Set, Consumer, IncrementalPlanParser.BlockSink)
+     */
+    public CompletableFuture<String> generateBuildPlanJsonAsync(
+            String model,
+            String userPrompt,
+            int maxBlocks,
+            Set<Material> allowed,
+            Consumer<String> onProgress,
+            IncrementalPlanParser.BlockSink onBlock
+    ) {
+        AtomicInteger delivered = new AtomicInteger();
+        IncrementalPlanParser.BlockSink sink = block -> {
+            delivered.incrementAndGet();
+            if (onBlock != null) onBlock.accept(block);
+        };
+        PromptCompiler.CompiledPrompt prompt = compile(userPrompt, maxBlocks, allowed);
+        RetryingCall retrying = new RetryingCall(
+            onProgress,
+            () -> onBlock != null && delivered.get() > 0,
+            () -> streamJson(model, prompt, userPrompt, maxOutputTokens(maxBlocks), sink)
+        );
+        retrying.run(1, 0);
+        return retrying.result;
+    }
+
+    /**
+     * Stream the outline of a fanned-out generation: the bounding box and the sections to
+     * generate separately. Retried like a plan; the result is the raw outline JSON.
+     */
+    public CompletableFuture<String> generateOutlineJsonAsync(
+            String model,
+            String userPrompt,
+            int maxSections,
+            Consumer<String> onProgress
+    ) {
+        PromptCompiler.CompiledPrompt prompt = promptCompiler.compileOutline(maxSections);
+        RetryingCall retrying = new RetryingCall(
+            onProgress,
+            () -> false,
+            () -> streamJson(model, prompt, userPrompt, maxSections * TOKENS_PER_SECTION + OUTPUT_TOKEN_OVERHEAD, block -> { })
+        );
+        retrying.run(1, 0);
+        return retrying.result;
+    }
+
+    /**
+     * Wait for an async call, rethrowing its failure as-is
+     */
+    static String await(CompletableFuture<String> future) throws OpenAIException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new OpenAIException("OpenAI stream interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof OpenAIException oe) throw oe;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new OpenAIException("OpenAI stream failed", cause);
         }
+    }
 
-        String allowedList = allowed.stream().map(Enum::name).sorted().collect(Collectors.joining(", "));
-        String instructions = buildInstructions(maxBlocks, allowedList);
+    private CompletableFuture<String> streamJson(
+            String model,
+            PromptCompiler.CompiledPrompt prompt,
+            String userPrompt,
+            int maxOutputTokens,
+            IncrementalPlanParser.BlockSink onBlock
+    ) {
+        try {
+            requireApiKey();
+        } catch (OpenAIException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-        Map<String, Object> payload = new LinkedHashMap<>();
-        payload.put("model", model);
-        payload.put("instructions", instructions);
-        payload.put("input", userPrompt);
-        payload.put("stream", true);
+        ModelProvider provider = providerFor(model);
+        Map<String, Object> payload = provider.payload(model, prompt, userPrompt, maxOutputTokens, true);
 
         RequestBody body = RequestBody.create(gson.toJson(payload), MediaType.parse("application/json"));
         Request req = new Request.Builder()
-                .url(RESPONSES_URL)
+                .url(provider.endpoint())
                 .addHeader("Content-Type", "application/json")
                 .addHeader("Accept", "text/event-stream")
-                .addHeader("Authorization", "Bearer " + apiKey)
                 .post(body)
                 .build();
 
-        CountDownLatch done = new CountDownLatch(1);
-        StringBuilder text = new StringBuilder();
-        AtomicReference<OpenAIException> error = new AtomicReference<>(null);
-        AtomicInteger animFrame = new AtomicInteger(0);
-        AtomicReference<Boolean> started = new AtomicReference<>(false);
-        
-        String[] animMessages = {
-            "⚒ Gathering materials...",
-            "⚒ Crafting blocks...",
-            "⚒ Assembling structure..."
-        };
+        // Count tuples and bounds-check them as they arrive so a runaway plan is cut off mid-stream
+        IncrementalPlanParser guard = new IncrementalPlanParser(prompt.materialNames(), prompt.maxBlocks(), onBlock);
+
+        StreamCall call = new StreamCall(req, provider, guard, estimateTokenCost(prompt.instructions(), userPrompt, maxOutputTokens));
+        ScheduledFuture<?> deadline = SCHEDULER.schedule(
+            () -> call.fail(new OpenAIException("OpenAI stream timed out")),
+            http.callTimeoutMillis() + 5000L, TimeUnit.MILLISECONDS);
+        call.result.whenComplete((json, e) -> {
+            deadline.cancel(false);
+            if (call.result.isCancelled()) call.fail(new OpenAIException("OpenAI stream cancelled"));
+        });
+        call.start();
+        return call.result;
+    }
 
-        // Recurring animation timer
-        Timer animTimer = new Timer(true);
-        animTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                if (started.get()) {
-                    int frame = animFrame.getAndIncrement();
-                    onProgress.accept(animMessages[frame % animMessages.length]);
+    /**
+     * One logical streaming generation. Usually a single attempt; with hedging a
+     * second identical request may be raced against the first, and whichever
+     * produces output first wins while the other is cancelled.
+     */
+    private final class StreamCall {
+        private final Request request;
+        private final ModelProvider provider;
+        private final IncrementalPlanParser guard;
+        private final long estimatedCost;
+        private final List<StreamAttempt> attempts = new CopyOnWriteArrayList<>();
+        private final AtomicReference<StreamAttempt> winner = new AtomicReference<>();
+        private final AtomicReference<OpenAIException> error = new AtomicReference<>();
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+        // Only the winning attempt appends, so no further locking is needed
+        private final StringBuilder text = new StringBuilder();
+        private StreamWatchdog watchdog;
+        private volatile ScheduledFuture<?> hedgeTask;
+
+        StreamCall(Request request, ModelProvider provider, IncrementalPlanParser guard, long estimatedCost) {
+            this.request = request;
+            this.provider = provider;
+            this.guard = guard;
+            this.estimatedCost = estimatedCost;
+        }
+
+        void start() {
+            // Abort quickly if the provider goes quiet instead of holding the thread until callTimeout
+            watchdog = StreamWatchdog.start(
+                settings.firstTokenTimeoutMs,
+                settings.interTokenTimeoutMs,
+                (beforeFirstDelta, waitedMs) -> fail(beforeFirstDelta
+                    ? new OpenAIException("OpenAI stream stalled: no output after " + waitedMs + "ms",
+                        OpenAIException.Category.FIRST_TOKEN_TIMEOUT, null)
+                    : new OpenAIException("OpenAI stream stalled: no output for " + waitedMs + "ms after "
+                        + text.length() + " chars", OpenAIException.Category.STREAM_STALLED, null))
+            );
+
+            long requestSeq = hedgeBudget.onRequest();
+            launch(false);
+            scheduleHedge(requestSeq);
+        }
+
+        private void scheduleHedge(long requestSeq) {
+            if (!settings.hedgingEnabled || ttftHistory.sampleCount() < settings.hedgeMinSamples) return;
+            long delayMs = Math.max(settings.hedgeMinDelayMs, ttftHistory.percentile(settings.hedgePercentile));
+            hedgeTask = SCHEDULER.schedule(() -> {
+                if (completed.get() || winner.get() != null) return;
+                // A hedge spends quota twice; skip it rather than push other players into a 429
+                if (tokenBudget != null && !tokenBudget.hasHeadroom(estimatedCost)) return;
+                if (!hedgeBudget.tryAcquire(requestSeq)) return;
+                launch(true);
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void launch(boolean hedge) {
+            // Each attempt leases its own key, so a hedge usually goes out on a different one
+            ApiKeyPool.Lease lease = keyPool.acquire();
+            StreamAttempt attempt = new StreamAttempt(this, hedge, lease);
+            attempts.add(attempt);
+            attempt.source = eventSources.newEventSource(authorize(request, lease), attempt);
+        }
+
+        void onDelta(StreamAttempt attempt, String delta) {
+            if (winner.get() != attempt) {
+                if (!winner.compareAndSet(null, attempt)) {
+                    attempt.cancel();
+                    return;
+                }
+                // First output wins: record its latency and drop the other attempt
+                long ttft = attempt.elapsedMs();
+                ttftHistory.record(ttft);
+                (attempt.warm ? warmTtft : coldTtft).record(ttft);
+                ScheduledFuture<?> pending = hedgeTask;
+                if (pending != null) pending.cancel(false);
+                for (StreamAttempt other : attempts) {
+                    if (other != attempt) other.cancel();
                 }
             }
-        }, 0, 3000); // Update every 3 seconds
 
-        EventSourceListener listener = new EventSourceListener() {
-            @Override
-            public void onOpen(EventSource eventSource, Response response) {
-                // Connection established - stream is starting
+            watchdog.onDelta();
+            text.append(delta);
+            try {
+                guard.feed(delta);
+            } catch (PlanParseException | BuildValidationException e) {
+                // Plan is already unusable - stop paying for the rest of the stream
+                fail(new OpenAIException(
+                    "Stream aborted: " + e.getMessage(), OpenAIException.Category.PLAN_REJECTED, e));
             }
+        }
 
-            @Override
-            public void onEvent(EventSource eventSource, String id, String type, String data) {
-                if (data == null || data.isBlank() || "[DONE]".equals(data)) {
-                    if ("[DONE]".equals(data)) {
-                        eventSource.cancel();
-                        animTimer.cancel();
-                        done.countDown();
-                    }
-                    return;
-                }
+        void onAttemptFinished(StreamAttempt attempt, OpenAIException failure) {
+            StreamAttempt won = winner.get();
+            if (won != null && won != attempt) return;
+            // Before any output, a failed or empty attempt only ends the call if nothing else is running
+            if (won == null && attempts.stream().anyMatch(a -> !a.finished)) return;
 
-                // Start animation on first data
-                if (!started.get()) {
-                    started.set(true);
-                }
+            if (failure != null) {
+                fail(failure);
+            } else {
+                complete();
+            }
+        }
+
+        void fail(OpenAIException e) {
+            // Keep the first cause if we cancelled the stream ourselves
+            error.compareAndSet(null, e);
+            cancel();
+            complete();
+        }
+
+        private void complete() {
+            if (!completed.compareAndSet(false, true)) return;
+            watchdog.stop();
+            // Close the EventSource proactively as soon as we're done to speed up shutdown
+            cancel();
 
-                // Extract content delta from Responses API streaming format
-                String delta = extractDeltaText(data);
-                if (delta != null && !delta.isEmpty()) {
-                    text.append(delta);
+            OpenAIException failure = error.get();
+            if (failure != null) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            String extracted = text.toString().trim();
+            if (extracted.isBlank()) {
+                result.completeExceptionally(new OpenAIException("OpenAI returned empty streaming output."));
+                return;
+            }
+            // Zero tuples means the model used another format; leave that to PlanParser
+            if (guard.getBlockCount() > 0) {
+                try {
+                    guard.finish();
+                } catch (PlanParseException | BuildValidationException e) {
+                    result.completeExceptionally(new OpenAIException(
+                        "Plan rejected: " + e.getMessage(), OpenAIException.Category.PLAN_REJECTED, e));
+                    return;
                 }
             }
+            result.complete(extracted);
+        }
 
-            @Override
-            public void onClosed(EventSource eventSource) {
-                // Stream closed normally - finish processing
-                animTimer.cancel();
-                done.countDown();
+        void cancel() {
+            ScheduledFuture<?> pending = hedgeTask;
+            if (pending != null) pending.cancel(false);
+            for (StreamAttempt attempt : attempts) {
+                attempt.cancel();
             }
+        }
+    }
 
-            @Override
-            public void onFailure(EventSource eventSource, Throwable t, Response response) {
-                animTimer.cancel();
-                String msg = t != null ? t.getMessage() : "Unknown streaming error";
-                int code = -1;
-                if (response != null) {
-                    code = response.code();
-                    try {
-                        String body = response.body() != null ? response.body().string() : "";
-                        msg = (body.isBlank() ? response.message() : body);
-                    } catch (Exception e) {
-                        msg = response.message();
-                    }
+    /**
+     * Listener for a single HTTP streaming request within a {@link StreamCall}
+     */
+    private final class StreamAttempt extends EventSourceListener {
+        private final StreamCall call;
+        private final boolean hedge;
+        private final ApiKeyPool.Lease lease;
+        private final long startNanos = System.nanoTime();
+        // An open pooled connection means no DNS/TCP/TLS setup before the request goes out
+        private final boolean warm = http.connectionPool().connectionCount() > 0;
+        private volatile EventSource source;
+        private volatile boolean finished;
+
+        StreamAttempt(StreamCall call, boolean hedge, ApiKeyPool.Lease lease) {
+            this.call = call;
+            this.hedge = hedge;
+            this.lease = lease;
+        }
+
+        long elapsedMs() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+
+        void cancel() {
+            finished = true;
+            // No-op if the outcome was already recorded
+            keyPool.releaseCancelled(lease);
+            EventSource es = source;
+            if (es != null) es.cancel();
+        }
+
+        @Override
+        public void onOpen(EventSource eventSource, Response response) {
+            // Connection established - stream is starting
+            observeRateLimits(response, lease, startNanos);
+        }
+
+        @Override
+        public void onEvent(EventSource eventSource, String id, String type, String data) {
+            if (finished || call.error.get() != null) return;
+            if (data == null || data.isBlank() || "[DONE]".equals(data)) {
+                if ("[DONE]".equals(data)) {
+                    keyPool.releaseSuccess(lease);
+                    eventSource.cancel();
+                    finished = true;
+                    call.onAttemptFinished(this, null);
                 }
-                error.set(new OpenAIException("OpenAI stream error: " + msg, code));
-                done.countDown();
+                return;
             }
-        };
-
-        EventSource.Factory factory = EventSources.createFactory(http);
-        EventSource es = factory.newEventSource(req, listener);
 
-        boolean finished;
-        try {
-            finished = done.await(http.callTimeoutMillis() + 5000L, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            es.cancel();
-            throw new OpenAIException("OpenAI stream interrupted", e);
+            // Other events are skipped without being parsed
+            String delta = call.provider.streamDelta(type, data);
+            if (delta != null && !delta.isEmpty()) {
+                call.onDelta(this, delta);
+            }
         }
 
-        // Close the EventSource proactively as soon as we're done to speed up shutdown
-        es.cancel();
+        @Override
+        public void onClosed(EventSource eventSource) {
+            // Stream closed normally - finish processing
+            if (finished) return;
+            finished = true;
+            keyPool.releaseSuccess(lease);
+            call.onAttemptFinished(this, null);
+        }
 
-        if (!finished) {
-            throw new OpenAIException("OpenAI stream timed out");
+        @Override
+        public void onFailure(EventSource eventSource, Throwable t, Response response) {
+            if (finished) return;
+            finished = true;
+            String msg = t != null ? t.getMessage() : "Unknown streaming error";
+            String prefix = "OpenAI stream error" + (hedge ? " (hedge)" : "") + ": ";
+            if (response == null) {
+                // Network-level failure; keep the IOException so it is classed as retryable
+                keyPool.release(lease, -1, -1);
+                call.onAttemptFinished(this, new OpenAIException(prefix + msg, t));
+                return;
+            }
+            observeRateLimits(response, lease, startNanos);
+            keyPool.release(lease, response.code(), RateLimitHeaders.retryAfterMs(response));
+            try {
+                String body = response.body() != null ? response.body().string() : "";
+                msg = (body.isBlank() ? response.message() : body);
+            } catch (Exception e) {
+                msg = response.message();
+            }
+            call.onAttemptFinished(this, new OpenAIException(
+                prefix + msg, response.code(), RateLimitHeaders.retryAfterMs(response)));
         }
-        if (error.get() != null) throw error.get();
+    }
 
-        String extracted = text.toString().trim();
-        if (extracted.isBlank()) {
-            throw new OpenAIException("OpenAI returned empty streaming output.");
+    @FunctionalInterface
+    private interface Attempt {
+        String run() throws OpenAIException;
+    }
+
+    /**
+     * Run a request, retrying transient failures with jittered backoff until
+     * the attempt limit or the per-request deadline is reached
+     * @param onProgress receives a notice before each backoff, may be null
+     * @param committed returns true once output has been handed on and a retry would duplicate it
+     */
+    private String withRetry(Consumer<String> onProgress, BooleanSupplier committed, Attempt attempt)
+            throws OpenAIException {
+        long deadline = System.currentTimeMillis() + retryPolicy.getDeadlineMs();
+        long delayMs = 0;
+        for (int n = 1; ; n++) {
+            try {
+                return attempt.run();
+            } catch (OpenAIException e) {
+                delayMs = retryDelayMs(e, n, delayMs, onProgress, committed, deadline);
+                if (delayMs < 0) throw e;
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new OpenAIException("OpenAI retry interrupted", ie);
+                }
+            }
         }
-        return extracted;
     }
 
-    private String buildInstructions(int maxBlocks, String allowedList) {
-        // Create material ID mapping for compact protocol
-        String[] mats = allowedList.split(", ");
-        StringBuilder matMapping = new StringBuilder();
-        for (int i = 0; i < mats.length; i++) {
-            matMapping.append(i).append("=").append(mats[i]);
-            if (i < mats.length - 1) matMapping.append(", ");
+    /**
+     * Backoff before the next attempt, or -1 if the failure should be surfaced.
+     * Announces the retry through onProgress.
+     */
+    private long retryDelayMs(OpenAIException e, int attempt, long previousDelayMs,
+                              Consumer<String> onProgress, BooleanSupplier committed, long deadline) {
+        // A key that was rejected or throttled is benched; another key may still succeed
+        boolean otherKey = (e.isAuthError() || e.isRateLimited()) && keyPool.availableCount() > 0;
+        if (!(e.isRetryable() || otherKey) || committed.getAsBoolean() || attempt >= retryPolicy.getMaxAttempts()) return -1;
+        long delayMs = retryPolicy.nextDelayMs(previousDelayMs, otherKey ? -1 : e.getRetryAfterMs());
+        if (System.currentTimeMillis() + delayMs > deadline) return -1;
+
+        if (onProgress != null) {
+            onProgress.accept("⚒ AI service busy, retrying in " + ((delayMs + 999) / 1000) + "s...");
         }
-        
-        return "You generate Minecraft building plans as STRICT JSON only.\n" +
-                "OPTIMIZED COMPACT PROTOCOL (70% smaller):\n" +
-                "{\n" +
-                "  \"s\": [x, y, z],\n" +
-                "  \"b\": [[x,y,z,m], [x,y,z,m], ...]\n" +
-                "}\n" +
-                "Where:\n" +
-                "- s = size [width, height, depth]\n" +
-                "- b = blocks array, each block is [x, y, z, material_id]\n" +
-                "- Material IDs: " + matMapping + "\n" +
-                "Rules:\n" +
-                "- b.length <= " + maxBlocks + "\n" +
-                "- x in [0..s[0]-1], y in [0..s[1]-1], z in [0..s[2]-1]\n" +
-                "- Include foundation blocks at y=0 where structure touches ground\n" +
-                "- Use material IDs only (integers 0-" + (mats.length - 1) + ")\n" +
-                "- Output JSON only. No markdown, no commentary. Use compact format.";
-    }
-
-    @SuppressWarnings("unchecked")
-    private String extractDeltaText(String rawJson) {
-        Object rootObj = gson.fromJson(rawJson, Object.class);
-        if (!(rootObj instanceof Map<?, ?> root)) return null;
-
-        // Responses API streaming format: {"type":"response.output_text.delta","delta":"..."}
-        Object type = root.get("type");
-        if ("response.output_text.delta".equals(type)) {
-            Object delta = root.get("delta");
-            if (delta instanceof String s) return s;
+        return delayMs;
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #withRetry}: backoff is a scheduled task rather than
+     * a sleeping thread, and cancelling {@link #result} cancels whichever attempt or backoff is pending
+     */
+    private final class RetryingCall {
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final Consumer<String> onProgress;
+        private final BooleanSupplier committed;
+        private final Supplier<CompletableFuture<String>> attempt;
+        private final long deadline = System.currentTimeMillis() + retryPolicy.getDeadlineMs();
+        private volatile Future<?> pending;
+
+        RetryingCall(Consumer<String> onProgress, BooleanSupplier committed, Supplier<CompletableFuture<String>> attempt) {
+            this.onProgress = onProgress;
+            this.committed = committed;
+            this.attempt = attempt;
+            result.whenComplete((json, e) -> {
+                if (result.isCancelled()) cancelPending();
+            });
         }
 
-        return null;
-    }
-
-    @SuppressWarnings("unchecked")
-    private String extractTextFromChatApi(String rawJson) {
-        Object rootObj = gson.fromJson(rawJson, Object.class);
-        if (!(rootObj instanceof Map<?, ?> root)) return null;
-
-        // Responses API format: {"response":{"output":[{"content":[{"text":"..."}]}]}}
-        Object response = root.get("response");
-        if (response instanceof Map<?, ?> responseMap) {
-            Object output = responseMap.get("output");
-            if (output instanceof List<?> outputList && !outputList.isEmpty()) {
-                Object firstOutput = outputList.get(0);
-                if (firstOutput instanceof Map<?, ?> outputItem) {
-                    Object content = outputItem.get("content");
-                    if (content instanceof List<?> contentList && !contentList.isEmpty()) {
-                        Object firstContent = contentList.get(0);
-                        if (firstContent instanceof Map<?, ?> contentItem) {
-                            Object text = contentItem.get("text");
-                            if (text instanceof String s && !s.isBlank()) return s;
-                        }
-                    }
-                }
+        void run(int n, long previousDelayMs) {
+            if (result.isDone()) return;
+            CompletableFuture<String> current;
+            try {
+                current = attempt.get();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
             }
+            pending = current;
+            // Cancelled between the check above and publishing the attempt
+            if (result.isCancelled()) cancelPending();
+
+            current.whenComplete((json, t) -> {
+                if (t == null) {
+                    result.complete(json);
+                    return;
+                }
+                Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                if (!(cause instanceof OpenAIException e) || result.isDone()) {
+                    result.completeExceptionally(cause);
+                    return;
+                }
+                long delayMs = retryDelayMs(e, n, previousDelayMs, onProgress, committed, deadline);
+                if (delayMs < 0) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                pending = SCHEDULER.schedule(() -> run(n + 1, delayMs), delayMs, TimeUnit.MILLISECONDS);
+                if (result.isCancelled()) cancelPending();
+            });
         }
 
-        return null;
+        private void cancelPending() {
+            Future<?> current = pending;
+            if (current != null) current.cancel(false);
+        }
     }
+
+    /**
+     * Output token budget for a plan of at most maxBlocks tuples, so the provider
+     * also stops a runaway generation
+     */
+    static int maxOutputTokens(int maxBlocks) {
+        return maxBlocks * TOKENS_PER_BLOCK + OUTPUT_TOKEN_OVERHEAD;
+    }
+
 }
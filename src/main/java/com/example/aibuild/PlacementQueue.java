@@ -0,0 +1,60 @@
+package com.example.aibuild;
+
+import com.example.aibuild.model.BlockSpec;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe hand-off between a streaming generation and the tick-driven placer.
+ * The network thread offers blocks as they are parsed; the main thread drains them.
+ */
+public class PlacementQueue {
+    private final ConcurrentLinkedQueue<BlockSpec> blocks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger offered = new AtomicInteger();
+    private volatile boolean complete;
+    private volatile String abortReason;
+
+    public void offer(BlockSpec block) {
+        blocks.add(block);
+        offered.incrementAndGet();
+    }
+
+    public BlockSpec poll() {
+        return blocks.poll();
+    }
+
+    public boolean isEmpty() {
+        return blocks.isEmpty();
+    }
+
+    /**
+     * Mark the stream as finished: no more blocks will be offered
+     */
+    public void complete() {
+        complete = true;
+    }
+
+    /**
+     * Stop placement early; blocks still queued are discarded
+     */
+    public void abort(String reason) {
+        abortReason = reason;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public boolean isAborted() {
+        return abortReason != null;
+    }
+
+    public String getAbortReason() {
+        return abortReason;
+    }
+
+    public int getOffered() {
+        return offered.get();
+    }
+}
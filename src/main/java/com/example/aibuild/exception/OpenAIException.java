@@ -6,29 +6,64 @@ import java.io.IOException;
  * Thrown when OpenAI API calls fail
  */
 public class OpenAIException extends IOException {
+    /**
+     * Failure categories that are not derived from the HTTP status
+     */
+    public enum Category {
+        GENERAL,
+        PLAN_REJECTED,
+        FIRST_TOKEN_TIMEOUT,
+        STREAM_STALLED
+    }
+
     private final int httpCode;
+    private final Category category;
+    private final long retryAfterMs;
     
     public OpenAIException(String message) {
-        super(message);
-        this.httpCode = -1;
+        this(message, -1);
     }
     
     public OpenAIException(String message, int httpCode) {
+        this(message, httpCode, -1);
+    }
+    
+    public OpenAIException(String message, int httpCode, long retryAfterMs) {
         super(message);
         this.httpCode = httpCode;
+        this.category = Category.GENERAL;
+        this.retryAfterMs = retryAfterMs;
     }
     
     public OpenAIException(String message, Throwable cause) {
+        this(message, Category.GENERAL, cause);
+    }
+    
+    public OpenAIException(String message, Category category, Throwable cause) {
         super(message, cause);
         this.httpCode = -1;
+        this.category = category;
+        this.retryAfterMs = -1;
     }
     
     public int getHttpCode() {
         return httpCode;
     }
     
+    public Category getCategory() {
+        return category;
+    }
+    
+    /**
+     * Server-requested wait before retrying (Retry-After / x-ratelimit-reset-*), or -1
+     */
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+    
     public boolean isTimeout() {
-        return getMessage() != null && getMessage().contains("timeout");
+        String msg = getMessage();
+        return msg != null && (msg.contains("timeout") || msg.contains("timed out"));
     }
     
     public boolean isAuthError() {
@@ -38,4 +73,31 @@ public class OpenAIException extends IOException {
     public boolean isRateLimited() {
         return httpCode == 429;
     }
+    
+    /**
+     * The stream was cancelled because the plan broke a hard limit (block count, bounds)
+     */
+    public boolean isPlanRejected() {
+        return category == Category.PLAN_REJECTED;
+    }
+    
+    /**
+     * The stream watchdog gave up: no first delta in time, or too long a gap between deltas
+     */
+    public boolean isStalled() {
+        return category == Category.FIRST_TOKEN_TIMEOUT || category == Category.STREAM_STALLED;
+    }
+    
+    /**
+     * Whether the same request may succeed if sent again: throttling, server errors,
+     * network failures and stalls. Auth errors, bad requests, exhausted quota and
+     * rejected plans are permanent.
+     */
+    public boolean isRetryable() {
+        if (category == Category.PLAN_REJECTED) return false;
+        if (isStalled()) return true;
+        if (getMessage() != null && getMessage().contains("insufficient_quota")) return false;
+        if (httpCode == 408 || httpCode == 409 || httpCode == 429 || httpCode >= 500) return true;
+        return httpCode == -1 && getCause() instanceof IOException;
+    }
 }
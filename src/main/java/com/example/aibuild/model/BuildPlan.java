@@ -1,7 +1,9 @@
 package com.example.aibuild.model;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents a Minecraft building plan with size and block specifications
@@ -13,31 +15,104 @@ public class BuildPlan {
     
     // Compact format parsing
     public List<Double> s;  // [x, y, z]
-    public List<List<Number>> b;  // [[x,y,z,m], ...]
+    public List<List<Number>> b;  // [[x,y,z,m], [x1,y1,z1,x2,y2,z2,m(,k)], ...]
+    public List<PlanGroup> g;  // mirrored or repeated groups
+    public List<List<String>> l;  // layer grid, l[y][z] has one palette character per x
+
+    // Far above anything the validator accepts; stops a malformed shape or repeat
+    // from exhausting memory before the plan is validated
+    static final int MAX_EXPANDED_BLOCKS = 1 << 20;
+
+    // Section order when the document's is unknown
+    private static final List<String> DEFAULT_ORDER = List.of("l", "b", "g");
     
     /**
      * Convert compact format to expanded format
-     * Compact format: s=[x,y,z], b=[[x,y,z,m],...]
+     * Compact format: s=[x,y,z], b=[[x,y,z,m], box or line shapes, ...], g=[groups, ...]
+     * or the layer grid l=[["row", ...], ...], optionally followed by b and g
      * Expanded format: size={x,y,z}, blocks=[{dx,dy,dz,material},...]
+     * @see CompactShapes
+     * @see PlanGroup
+     * @see LayerGrid
+     * @throws IllegalArgumentException if a tuple or group is malformed or expands past MAX_EXPANDED_BLOCKS
      */
     public void expandCompact(String[] materialNames) {
-        if (s != null && b != null) {
+        expandCompact(materialNames, DEFAULT_ORDER);
+    }
+
+    /**
+     * Expand sections in the order the document lists them, which is the order the streaming
+     * parser places them in; later entries replace earlier ones, so the order decides overlaps
+     * @param sectionOrder keys "l", "b" and "g" in document order; sections not listed follow in default order
+     */
+    public void expandCompact(String[] materialNames, List<String> sectionOrder) {
+        if (s != null && (b != null || g != null || l != null)) {
             size = new Size();
             size.x = s.get(0).intValue();
             size.y = s.get(1).intValue();
             size.z = s.get(2).intValue();
             
-            blocks = new ArrayList<>(b.size());
-            for (List<Number> block : b) {
-                BlockSpec spec = new BlockSpec();
-                spec.dx = block.get(0).intValue();
-                spec.dy = block.get(1).intValue();
-                spec.dz = block.get(2).intValue();
-                int matId = block.get(3).intValue();
-                spec.material = (matId >= 0 && matId < materialNames.length) 
-                    ? materialNames[matId] : materialNames[0];
-                blocks.add(spec);
+            blocks = new ArrayList<>(b != null ? b.size() : 16);
+            Set<String> order = new LinkedHashSet<>(sectionOrder);
+            order.addAll(DEFAULT_ORDER);
+            for (String section : order) {
+                switch (section) {
+                    case "l" -> expandLayers(materialNames);
+                    case "b" -> expandTuples(materialNames);
+                    case "g" -> expandGroups(materialNames);
+                    default -> { }
+                }
+            }
+        }
+    }
+
+    private void expandLayers(String[] materialNames) {
+        if (l == null) return;
+        // Rows expand straight into the block list
+        for (int y = 0; y < l.size(); y++) {
+            List<String> rows = l.get(y);
+            if (rows == null) continue;
+            for (int z = 0; z < rows.size(); z++) {
+                String row = rows.get(z);
+                if (row == null) continue;
+                checkExpanded(LayerGrid.blockCount(row));
+                LayerGrid.expandRow(row, y, z, materialNames, blocks);
+            }
+        }
+    }
+
+    private void expandTuples(String[] materialNames) {
+        if (b == null) return;
+        for (List<Number> tuple : b) {
+            double[] values = CompactShapes.values(tuple);
+            checkExpanded(CompactShapes.blockCount(values, values.length));
+            blocks.addAll(CompactShapes.expand(values, values.length, materialNames));
+        }
+    }
+
+    private void expandGroups(String[] materialNames) {
+        if (g == null) return;
+        for (PlanGroup group : g) {
+            if (group == null || group.b == null) continue;
+            for (List<Number> tuple : group.b) {
+                double[] values = CompactShapes.values(tuple);
+                checkExpanded(group.maxBlockCount(values, values.length));
+                blocks.addAll(group.expand(values, values.length, materialNames, size));
             }
         }
     }
+
+    private void checkExpanded(long count) {
+        if (count > MAX_EXPANDED_BLOCKS - blocks.size()) {
+            throw new IllegalArgumentException("Plan expands to more than " + MAX_EXPANDED_BLOCKS + " blocks");
+        }
+    }
+
+    /**
+     * Resolve a compact material ID, falling back to the first material when out of range
+     */
+    public static String materialFor(int matId, String[] materialNames) {
+        return (matId >= 0 && matId < materialNames.length)
+            ? materialNames[matId] : materialNames[0];
+    }
 }
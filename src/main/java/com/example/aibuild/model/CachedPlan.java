@@ -0,0 +1,68 @@
+package com.example.aibuild.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, already-validated form of a build plan for caching.
+ * Blocks are stored as a flat int array of (x, y, z, paletteIndex) quadruples.
+ */
+public class CachedPlan {
+    public String prompt;
+    public String name;
+    public int sx, sy, sz;
+    public String[] palette;
+    public int[] blocks;
+
+    /**
+     * Pack a validated plan
+     * @param prompt normalized prompt, kept so entries can be invalidated by prompt
+     */
+    public static CachedPlan from(String prompt, BuildPlan plan) {
+        CachedPlan cached = new CachedPlan();
+        cached.prompt = prompt;
+        cached.name = plan.name;
+        cached.sx = plan.size.x;
+        cached.sy = plan.size.y;
+        cached.sz = plan.size.z;
+
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> palette = new ArrayList<>();
+        cached.blocks = new int[plan.blocks.size() * 4];
+        int i = 0;
+        for (BlockSpec b : plan.blocks) {
+            Integer id = ids.get(b.material);
+            if (id == null) {
+                id = palette.size();
+                ids.put(b.material, id);
+                palette.add(b.material);
+            }
+            cached.blocks[i++] = b.dx;
+            cached.blocks[i++] = b.dy;
+            cached.blocks[i++] = b.dz;
+            cached.blocks[i++] = id;
+        }
+        cached.palette = palette.toArray(new String[0]);
+        return cached;
+    }
+
+    /**
+     * Expand back into a plan ready for placement
+     */
+    public BuildPlan toBuildPlan() {
+        BuildPlan plan = new BuildPlan();
+        plan.name = name;
+        plan.size = new Size(sx, sy, sz);
+        plan.blocks = new ArrayList<>(blockCount());
+        for (int i = 0; i + 3 < blocks.length; i += 4) {
+            plan.blocks.add(new BlockSpec(blocks[i], blocks[i + 1], blocks[i + 2], palette[blocks[i + 3]]));
+        }
+        return plan;
+    }
+
+    public int blockCount() {
+        return blocks.length / 4;
+    }
+}
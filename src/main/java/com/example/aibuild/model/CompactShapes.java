@@ -0,0 +1,112 @@
+package com.example.aibuild.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entries of the compact protocol's "b" array, told apart by length:
+ * [x,y,z,m] one block, [x1,y1,z1,x2,y2,z2,m] a filled box between two corners, and
+ * [x1,y1,z1,x2,y2,z2,m,k] where k selects a filled box (0), a hollow box (1) or a line (2).
+ * Shapes cost one tuple of output instead of one per block and are expanded here.
+ */
+public final class CompactShapes {
+    public static final int FILLED = 0;
+    public static final int HOLLOW = 1;
+    public static final int LINE = 2;
+
+    // Far beyond any valid plan; only keeps counts of nonsense coordinates from overflowing
+    private static final long MAX_EXTENT = 1 << 20;
+
+    private CompactShapes() { }
+
+    /**
+     * Number of blocks a tuple expands to, so limits can be checked before expanding
+     * @throws IllegalArgumentException if the tuple is not a block or a known shape
+     */
+    public static long blockCount(double[] tuple, int length) {
+        if (length == 4) return 1;
+        int kind = kind(tuple, length);
+        long w = extent(tuple[0], tuple[3]);
+        long h = extent(tuple[1], tuple[4]);
+        long d = extent(tuple[2], tuple[5]);
+        return switch (kind) {
+            case FILLED -> w * h * d;
+            case HOLLOW -> w * h * d - Math.max(0, w - 2) * Math.max(0, h - 2) * Math.max(0, d - 2);
+            default -> Math.max(w, Math.max(h, d));
+        };
+    }
+
+    /**
+     * Expand a tuple into blocks, in a stable order
+     * @throws IllegalArgumentException if the tuple is not a block or a known shape
+     */
+    public static List<BlockSpec> expand(double[] tuple, int length, String[] materialNames) {
+        if (length == 4) {
+            return List.of(new BlockSpec((int) tuple[0], (int) tuple[1], (int) tuple[2],
+                BuildPlan.materialFor((int) tuple[3], materialNames)));
+        }
+        int kind = kind(tuple, length);
+        String material = BuildPlan.materialFor((int) tuple[6], materialNames);
+        List<BlockSpec> blocks = new ArrayList<>((int) Math.min(blockCount(tuple, length), 4096));
+        if (kind == LINE) {
+            line((int) tuple[0], (int) tuple[1], (int) tuple[2], (int) tuple[3], (int) tuple[4], (int) tuple[5], material, blocks);
+            return blocks;
+        }
+
+        int x1 = (int) Math.min(tuple[0], tuple[3]), x2 = (int) Math.max(tuple[0], tuple[3]);
+        int y1 = (int) Math.min(tuple[1], tuple[4]), y2 = (int) Math.max(tuple[1], tuple[4]);
+        int z1 = (int) Math.min(tuple[2], tuple[5]), z2 = (int) Math.max(tuple[2], tuple[5]);
+        boolean hollow = kind == HOLLOW;
+        // Bottom layer first, so foundations are placed before what stands on them
+        for (int y = y1; y <= y2; y++) {
+            for (int x = x1; x <= x2; x++) {
+                for (int z = z1; z <= z2; z++) {
+                    if (hollow && x > x1 && x < x2 && y > y1 && y < y2 && z > z1 && z < z2) continue;
+                    blocks.add(new BlockSpec(x, y, z, material));
+                }
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Values of a tuple parsed by Gson; anything past the eighth is ignored like the streaming parser does
+     */
+    public static double[] values(List<Number> tuple) {
+        double[] values = new double[Math.min(tuple.size(), 8)];
+        for (int i = 0; i < values.length; i++) values[i] = tuple.get(i).doubleValue();
+        return values;
+    }
+
+    /**
+     * Blocks along one axis, capped so the product of three can never overflow
+     */
+    private static long extent(double from, double to) {
+        return Math.min(Math.abs((long) to - (long) from) + 1, MAX_EXTENT);
+    }
+
+    private static int kind(double[] tuple, int length) {
+        if (length == 7) return FILLED;
+        if (length == 8) {
+            int kind = (int) tuple[7];
+            if (kind == FILLED || kind == HOLLOW || kind == LINE) return kind;
+            throw new IllegalArgumentException("Unknown shape kind " + kind);
+        }
+        throw new IllegalArgumentException("Malformed block tuple with " + length + " values");
+    }
+
+    /**
+     * Straight line between two points, one block per step along the longest axis
+     */
+    private static void line(int x1, int y1, int z1, int x2, int y2, int z2, String material, List<BlockSpec> out) {
+        int steps = Math.max(Math.abs(x2 - x1), Math.max(Math.abs(y2 - y1), Math.abs(z2 - z1)));
+        for (int i = 0; i <= steps; i++) {
+            double t = steps == 0 ? 0 : (double) i / steps;
+            out.add(new BlockSpec(
+                (int) Math.round(x1 + (x2 - x1) * t),
+                (int) Math.round(y1 + (y2 - y1) * t),
+                (int) Math.round(z1 + (z2 - z1) * t),
+                material));
+        }
+    }
+}
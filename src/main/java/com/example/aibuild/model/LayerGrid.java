@@ -0,0 +1,60 @@
+package com.example.aibuild.model;
+
+import java.util.List;
+
+/**
+ * Layer encoding of the compact protocol: "l" holds one array per y-layer, each of one string
+ * per z-row with one character per x-cell. A cell is the palette character of its material or
+ * '.' for air. Dense builds cost about a character per cell instead of a tuple per block.
+ */
+public final class LayerGrid {
+    public static final char AIR = '.';
+
+    // Material ID i is written as SYMBOLS.charAt(i)
+    static final String SYMBOLS = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private LayerGrid() { }
+
+    /**
+     * Largest palette that has a character for every material
+     */
+    public static int maxPalette() {
+        return SYMBOLS.length();
+    }
+
+    public static char symbol(int materialId) {
+        return SYMBOLS.charAt(materialId);
+    }
+
+    /**
+     * Non-air cells in a row, so limits can be checked before expanding it
+     */
+    public static int blockCount(CharSequence row) {
+        int count = 0;
+        for (int x = 0; x < row.length(); x++) {
+            if (!isAir(row.charAt(x))) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Append the blocks of one row to out
+     * @throws IllegalArgumentException if a cell is not a palette character or air
+     */
+    public static void expandRow(CharSequence row, int y, int z, String[] materialNames, List<BlockSpec> out) {
+        for (int x = 0; x < row.length(); x++) {
+            char cell = row.charAt(x);
+            if (isAir(cell)) continue;
+            int id = SYMBOLS.indexOf(cell);
+            if (id < 0 || id >= materialNames.length) {
+                throw new IllegalArgumentException("Unknown palette character '" + cell + "' at x=" + x + ", y=" + y + ", z=" + z);
+            }
+            out.add(new BlockSpec(x, y, z, materialNames[id]));
+        }
+    }
+
+    // Spaces are accepted as air; models sometimes pad rows with them
+    private static boolean isAir(char cell) {
+        return cell == AIR || cell == ' ';
+    }
+}
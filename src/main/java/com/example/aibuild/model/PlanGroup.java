@@ -0,0 +1,111 @@
+package com.example.aibuild.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry of the compact protocol's "g" array: blocks and shapes written once and copied by operators.
+ * {"repeat":[dx,dy,dz,n], "mirror":"xz", "b":[...]} places each entry n times, stepping by
+ * (dx,dy,dz), then mirrors every copy across the centre of the plan on each listed axis.
+ * Symmetric builds only need one half (or quarter) spelled out, and rows of windows or
+ * columns only one motif.
+ */
+public class PlanGroup {
+    public String mirror;  // axes to mirror across, any of "x", "y", "z"
+    public List<Number> repeat;  // [dx, dy, dz, n]
+    public List<List<Number>> b;  // same tuples as the plan's "b"
+
+    /**
+     * Number of copies the repeat operator makes, 1 without one
+     * @throws IllegalArgumentException if the operator is malformed
+     */
+    public int repeats() {
+        if (repeat == null) return 1;
+        if (repeat.size() != 4) {
+            throw new IllegalArgumentException("Repeat must be [dx, dy, dz, n]");
+        }
+        int n = repeat.get(3).intValue();
+        if (n < 1) {
+            throw new IllegalArgumentException("Repeat count must be at least 1");
+        }
+        if (n > 1 && repeat.get(0).intValue() == 0 && repeat.get(1).intValue() == 0 && repeat.get(2).intValue() == 0) {
+            throw new IllegalArgumentException("Repeat stride must not be zero");
+        }
+        return n;
+    }
+
+    /**
+     * Check the mirror axes
+     * @throws IllegalArgumentException if an axis is not x, y or z, or is listed twice
+     */
+    public void checkMirror() {
+        if (mirror == null) return;
+        for (int i = 0; i < mirror.length(); i++) {
+            char axis = mirror.charAt(i);
+            if (axis != 'x' && axis != 'y' && axis != 'z') {
+                throw new IllegalArgumentException("Unknown mirror axis '" + axis + "'");
+            }
+            if (mirror.indexOf(axis) != i) {
+                throw new IllegalArgumentException("Mirror axis '" + axis + "' is listed twice");
+            }
+        }
+    }
+
+    /**
+     * Most blocks one tuple of this group can expand to, so limits can be checked before expanding
+     * @throws IllegalArgumentException if the tuple or an operator is malformed
+     */
+    public long maxBlockCount(double[] tuple, int length) {
+        checkMirror();
+        int mirrors = mirror == null ? 0 : mirror.length();
+        long count = CompactShapes.blockCount(tuple, length);
+        int n = repeats();
+        // Saturate rather than overflow, so nonsense counts still fail the caller's limit
+        return count > (Long.MAX_VALUE >> 3) / n ? Long.MAX_VALUE : count * n << mirrors;
+    }
+
+    /**
+     * Expand one tuple of this group into all of its copies.
+     * A copy that mirrors onto itself (on the centre line of an odd size) is only placed once.
+     * @param size plan size, which mirroring is relative to
+     * @throws IllegalArgumentException if the tuple or an operator is malformed
+     */
+    public List<BlockSpec> expand(double[] tuple, int length, String[] materialNames, Size size) {
+        int n = repeats();
+        checkMirror();
+        List<BlockSpec> base = CompactShapes.expand(tuple, length, materialNames);
+        List<BlockSpec> blocks = new ArrayList<>((int) Math.min((long) base.size() * n, 4096));
+        for (BlockSpec block : base) {
+            for (int i = 0; i < n; i++) {
+                int from = blocks.size();
+                blocks.add(i == 0 ? block : new BlockSpec(
+                    block.dx + i * repeat.get(0).intValue(),
+                    block.dy + i * repeat.get(1).intValue(),
+                    block.dz + i * repeat.get(2).intValue(),
+                    block.material));
+                if (mirror != null) mirrorCopies(blocks, from, size);
+            }
+        }
+        return blocks;
+    }
+
+
+    /**
+     * Reflect blocks[from..] on each mirror axis in turn. Reflecting on a new axis either
+     * moves a block to a new position or leaves it where it is, so only the latter needs skipping.
+     */
+    private void mirrorCopies(List<BlockSpec> blocks, int from, Size size) {
+        for (char axis : mirror.toCharArray()) {
+            int to = blocks.size();
+            for (int i = from; i < to; i++) {
+                BlockSpec b = blocks.get(i);
+                BlockSpec m = switch (axis) {
+                    case 'x' -> new BlockSpec(size.x - 1 - b.dx, b.dy, b.dz, b.material);
+                    case 'y' -> new BlockSpec(b.dx, size.y - 1 - b.dy, b.dz, b.material);
+                    default -> new BlockSpec(b.dx, b.dy, size.z - 1 - b.dz, b.material);
+                };
+                if (m.dx != b.dx || m.dy != b.dy || m.dz != b.dz) blocks.add(m);
+            }
+        }
+    }
+}
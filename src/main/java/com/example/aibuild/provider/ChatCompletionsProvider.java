@@ -0,0 +1,63 @@
+package com.example.aibuild.provider;
+
+import com.example.aibuild.service.PromptCompiler;
+import com.example.aibuild.util.SseEventDecoder;
+import com.google.gson.Gson;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chat Completions format, which most local OpenAI-compatible servers
+ * (vLLM, llama.cpp, Ollama, LM Studio) expose
+ */
+public record ChatCompletionsProvider(String baseUrl, boolean requiresApiKey) implements ModelProvider {
+    public static final String API = "chat_completions";
+    private static final Gson GSON = new Gson();
+
+    @Override
+    public String api() {
+        return API;
+    }
+
+    @Override
+    public String endpoint() {
+        return baseUrl + "/chat/completions";
+    }
+
+    @Override
+    public Map<String, Object> payload(String model, PromptCompiler.CompiledPrompt prompt, String userPrompt,
+                                       int maxOutputTokens, boolean stream) {
+        // System message first, so servers with prefix caching can reuse it
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("model", model);
+        payload.put("messages", List.of(
+            Map.of("role", "system", "content", prompt.instructions()),
+            Map.of("role", "user", "content", userPrompt)
+        ));
+        payload.put("max_tokens", maxOutputTokens);
+        if (stream) payload.put("stream", true);
+        return payload;
+    }
+
+    @Override
+    public String streamDelta(String eventType, String data) {
+        return SseEventDecoder.chatDelta(data);
+    }
+
+    @Override
+    public String responseText(String rawJson) {
+        Object rootObj = GSON.fromJson(rawJson, Object.class);
+        if (!(rootObj instanceof Map<?, ?> root)) return null;
+
+        // {"choices":[{"message":{"content":"..."}}]}
+        if (root.get("choices") instanceof List<?> choices && !choices.isEmpty()
+                && choices.get(0) instanceof Map<?, ?> choice
+                && choice.get("message") instanceof Map<?, ?> message
+                && message.get("content") instanceof String s && !s.isBlank()) {
+            return s;
+        }
+        return null;
+    }
+}
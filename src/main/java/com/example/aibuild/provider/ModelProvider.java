@@ -0,0 +1,77 @@
+package com.example.aibuild.provider;
+
+import com.example.aibuild.service.PromptCompiler;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Wire format of one model API. Everything after text extraction (the streaming guard,
+ * PlanParser, validation) is shared, so a provider only shapes requests and pulls plan
+ * text out of responses.
+ */
+public interface ModelProvider {
+    String OPENAI_BASE_URL = "https://api.openai.com/v1";
+
+    /**
+     * Name used for this format in config.yml
+     */
+    String api();
+
+    /**
+     * API root, e.g. https://api.openai.com/v1 or http://10.0.0.5:8000/v1
+     */
+    String baseUrl();
+
+    /**
+     * Whether requests need an API key; local servers usually accept none
+     */
+    boolean requiresApiKey();
+
+    /**
+     * Endpoint that generations are posted to
+     */
+    String endpoint();
+
+    /**
+     * Cheap request that opens a connection to the host; any HTTP status will do
+     */
+    default String warmupUrl() {
+        return baseUrl() + "/models";
+    }
+
+    /**
+     * Request body for one generation
+     */
+    Map<String, Object> payload(String model, PromptCompiler.CompiledPrompt prompt, String userPrompt,
+                                int maxOutputTokens, boolean stream);
+
+    /**
+     * Plan text carried by one stream event, or null if the event carries none
+     * @param eventType the SSE "event:" name, or null
+     */
+    String streamDelta(String eventType, String data);
+
+    /**
+     * Plan text of a complete, non-streaming response body, or null if there is none
+     */
+    String responseText(String rawJson);
+
+    /**
+     * @param api "responses" or "chat_completions"
+     * @param baseUrl API root; blank for the public OpenAI endpoint
+     * @param requiresApiKey null to decide from the host: only the public endpoint needs a key
+     */
+    static ModelProvider create(String api, String baseUrl, Boolean requiresApiKey) {
+        String root = baseUrl == null || baseUrl.isBlank() ? OPENAI_BASE_URL : baseUrl.trim();
+        while (root.endsWith("/")) root = root.substring(0, root.length() - 1);
+        boolean keyed = requiresApiKey != null ? requiresApiKey : root.equals(OPENAI_BASE_URL);
+        String kind = api == null ? ResponsesProvider.API : api.trim().toLowerCase(Locale.ROOT);
+        return switch (kind) {
+            case ResponsesProvider.API -> new ResponsesProvider(root, keyed);
+            case ChatCompletionsProvider.API -> new ChatCompletionsProvider(root, keyed);
+            default -> throw new IllegalArgumentException(
+                "Unknown API \"" + api + "\" (expected " + ResponsesProvider.API + " or " + ChatCompletionsProvider.API + ")");
+        };
+    }
+}
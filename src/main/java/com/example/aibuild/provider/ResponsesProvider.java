@@ -0,0 +1,74 @@
+package com.example.aibuild.provider;
+
+import com.example.aibuild.service.PromptCompiler;
+import com.example.aibuild.util.SseEventDecoder;
+import com.google.gson.Gson;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OpenAI Responses API: instructions plus input, streamed as typed events
+ */
+public record ResponsesProvider(String baseUrl, boolean requiresApiKey) implements ModelProvider {
+    public static final String API = "responses";
+    private static final Gson GSON = new Gson();
+
+    @Override
+    public String api() {
+        return API;
+    }
+
+    @Override
+    public String endpoint() {
+        return baseUrl + "/responses";
+    }
+
+    @Override
+    public Map<String, Object> payload(String model, PromptCompiler.CompiledPrompt prompt, String userPrompt,
+                                       int maxOutputTokens, boolean stream) {
+        // Instructions first, so the cached prefix is sent unchanged
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("model", model);
+        payload.put("instructions", prompt.instructions());
+        payload.put("input", userPrompt);
+        payload.put("max_output_tokens", maxOutputTokens);
+        // Routes requests sharing a palette to the same prompt cache
+        payload.put("prompt_cache_key", prompt.cacheKey());
+        if (stream) payload.put("stream", true);
+        return payload;
+    }
+
+    @Override
+    public String streamDelta(String eventType, String data) {
+        return SseEventDecoder.textDelta(eventType, data);
+    }
+
+    @Override
+    public String responseText(String rawJson) {
+        Object rootObj = GSON.fromJson(rawJson, Object.class);
+        if (!(rootObj instanceof Map<?, ?> root)) return null;
+
+        // Responses API format: {"response":{"output":[{"content":[{"text":"..."}]}]}}
+        Object response = root.get("response");
+        if (response instanceof Map<?, ?> responseMap) {
+            Object output = responseMap.get("output");
+            if (output instanceof List<?> outputList && !outputList.isEmpty()) {
+                Object firstOutput = outputList.get(0);
+                if (firstOutput instanceof Map<?, ?> outputItem) {
+                    Object content = outputItem.get("content");
+                    if (content instanceof List<?> contentList && !contentList.isEmpty()) {
+                        Object firstContent = contentList.get(0);
+                        if (firstContent instanceof Map<?, ?> contentItem) {
+                            Object text = contentItem.get("text");
+                            if (text instanceof String s && !s.isBlank()) return s;
+                        }
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+}
@@ -1,9 +1,18 @@
 package com.example.aibuild.service;
 
+import com.example.aibuild.BuildValidator;
 import com.example.aibuild.EnvConfig;
+import com.example.aibuild.OpenAIClient;
+import com.example.aibuild.provider.ModelProvider;
+import com.example.aibuild.provider.ResponsesProvider;
 import org.bukkit.Material;
 import org.bukkit.configuration.file.FileConfiguration;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -30,6 +39,21 @@ public class ConfigService {
         return config.getInt("build.cooldown_seconds", 30);
     }
     
+    /**
+     * Largest tile edge for /aibuild tiled; capped at the validator's dimension limit
+     */
+    public int getTileSize() {
+        return Math.min(BuildValidator.MAX_DIMENSION, Math.max(8, config.getInt("build.tiling.tile_size", 64)));
+    }
+
+    public int getTiledMaxFootprint() {
+        return config.getInt("build.tiling.max_footprint", 320);
+    }
+
+    public int getMaxParallelTiles() {
+        return Math.max(1, config.getInt("build.tiling.max_parallel", 4));
+    }
+
     public int getForwardOffset() {
         return config.getInt("build.forward_offset_blocks", 3);
     }
@@ -38,6 +62,17 @@ public class ConfigService {
         return config.getBoolean("build.replace_only_air", true);
     }
     
+    public boolean isIncrementalPlacement() {
+        return config.getBoolean("build.incremental_placement", true);
+    }
+    
+    /**
+     * Largest palette sent whole; larger ones are cut to a prompt-relevant subset this size (0 sends everything)
+     */
+    public int getPaletteMaxMaterials() {
+        return Math.max(0, config.getInt("build.palette.max_materials", 60));
+    }
+
     public Set<Material> getAllowedMaterials() {
         return config.getStringList("build.allowed_materials").stream()
                 .map(name -> {
@@ -54,17 +89,282 @@ public class ConfigService {
     public String getApiKey() {
         return config.getString("openai.api_key");
     }
+
+    /**
+     * Keys for load balancing: openai.api_keys followed by openai.api_key, without duplicates
+     */
+    public List<String> getApiKeys() {
+        Set<String> keys = new LinkedHashSet<>(config.getStringList("openai.api_keys"));
+        String single = getApiKey();
+        if (single != null) keys.add(single);
+        keys.removeIf(key -> key == null || key.isBlank());
+        return new ArrayList<>(keys);
+    }
     
     public String getModel() {
         return config.getString("openai.model", "gpt-4o");
     }
     
+    public boolean isRoutingEnabled() {
+        return config.getBoolean("openai.routing.enabled", false);
+    }
+
+    /**
+     * Fast model for simple builds; openai.model serves complex builds and escalations
+     */
+    public String getRoutingSmallModel() {
+        return config.getString("openai.routing.small_model", "gpt-4.1-nano");
+    }
+
+    public double getRoutingComplexityThreshold() {
+        return config.getDouble("openai.routing.complexity_threshold", 0.5);
+    }
+
+    public boolean isRoutingEscalationEnabled() {
+        return config.getBoolean("openai.routing.escalate_on_invalid", true);
+    }
+
+    /**
+     * Generate large builds as an outline plus concurrently streamed sections
+     */
+    public boolean isFanOutEnabled() {
+        return config.getBoolean("openai.fan_out.enabled", false);
+    }
+
+    /**
+     * Block limit from which a build is fanned out; smaller builds stay a single stream
+     */
+    public int getFanOutMinBlocks() {
+        return Math.max(1, config.getInt("openai.fan_out.min_blocks", 1500));
+    }
+
+    public int getFanOutMaxSections() {
+        return Math.max(2, config.getInt("openai.fan_out.max_sections", 8));
+    }
+
+    /**
+     * Plan encoding: "tuples", "layers" or "auto" to pick by the prompt's expected fill
+     */
+    public String getPlanFormat() {
+        return config.getString("openai.plan_format.mode", "auto");
+    }
+
+    /**
+     * Expected fill of the bounding box, in [0, 1], from which "auto" uses the layer grid
+     */
+    public double getLayerMinFill() {
+        return Math.max(0, Math.min(1, config.getDouble("openai.plan_format.layer_min_fill", 0.4)));
+    }
+
     public int getTimeoutMs() {
         Integer envTimeout = EnvConfig.getOpenAiTimeoutMs();
         if (envTimeout != null) return envTimeout;
         return config.getInt("openai.timeout_ms", 120000);
     }
     
+    public int getConnectTimeoutMs() {
+        return config.getInt("openai.connect_timeout_ms", 10000);
+    }
+    
+    public int getFirstTokenTimeoutMs() {
+        return config.getInt("openai.first_token_timeout_ms", 30000);
+    }
+    
+    public int getInterTokenTimeoutMs() {
+        return config.getInt("openai.inter_token_timeout_ms", 15000);
+    }
+    
+    public boolean isHedgingEnabled() {
+        return config.getBoolean("openai.hedging.enabled", true);
+    }
+    
+    public double getHedgePercentile() {
+        return config.getDouble("openai.hedging.percentile", 95);
+    }
+    
+    public double getHedgeMaxRate() {
+        return config.getDouble("openai.hedging.max_rate", 0.1);
+    }
+    
+    public int getHedgeMinSamples() {
+        return config.getInt("openai.hedging.min_samples", 20);
+    }
+    
+    public int getRetryMaxAttempts() {
+        return config.getInt("openai.retry.max_attempts", 4);
+    }
+    
+    public int getRetryBaseDelayMs() {
+        return config.getInt("openai.retry.base_delay_ms", 500);
+    }
+    
+    public int getRetryMaxDelayMs() {
+        return config.getInt("openai.retry.max_delay_ms", 20000);
+    }
+    
+    public int getRetryDeadlineMs() {
+        return config.getInt("openai.retry.deadline_ms", 60000);
+    }
+    
+    public boolean isBudgetEnabled() {
+        return config.getBoolean("openai.budget.enabled", true);
+    }
+
+    public double getBudgetReserveFraction() {
+        return config.getDouble("openai.budget.reserve_fraction", 0.05);
+    }
+
+    public int getBudgetMinBlocks() {
+        return config.getInt("openai.budget.min_blocks", 100);
+    }
+
+    public int getBudgetMaxWaitMs() {
+        return config.getInt("openai.budget.max_wait_ms", 60000);
+    }
+
+    public int getHttpMaxIdleConnections() {
+        return config.getInt("openai.http.max_idle_connections", 8);
+    }
+
+    public long getHttpKeepAliveMs() {
+        return config.getLong("openai.http.keep_alive_ms", 300000);
+    }
+
+    public int getHttpMaxRequests() {
+        return config.getInt("openai.http.max_requests", 64);
+    }
+
+    public int getHttpMaxRequestsPerHost() {
+        return config.getInt("openai.http.max_requests_per_host", 32);
+    }
+
+    public int getHttpPingIntervalMs() {
+        return config.getInt("openai.http.ping_interval_ms", 15000);
+    }
+
+    /**
+     * Default API format and endpoint, from openai.api and openai.base_url
+     */
+    public ModelProvider getDefaultProvider() {
+        String baseUrl = config.getString("openai.base_url", ModelProvider.OPENAI_BASE_URL);
+        try {
+            return ModelProvider.create(config.getString("openai.api", ResponsesProvider.API), baseUrl, null);
+        } catch (IllegalArgumentException e) {
+            return ModelProvider.create(ResponsesProvider.API, baseUrl, null);
+        }
+    }
+
+    /**
+     * Per-model overrides from the openai.providers list; entries with an unknown API are skipped
+     */
+    public Map<String, ModelProvider> getModelProviders() {
+        Map<String, ModelProvider> providers = new HashMap<>();
+        for (Map<?, ?> entry : config.getMapList("openai.providers")) {
+            Object model = entry.get("model");
+            if (model == null) continue;
+            Object api = entry.get("api");
+            Object baseUrl = entry.get("base_url");
+            Object keyRequired = entry.get("api_key_required");
+            try {
+                providers.put(model.toString(), ModelProvider.create(
+                    api != null ? api.toString() : null,
+                    baseUrl != null ? baseUrl.toString() : null,
+                    keyRequired instanceof Boolean b ? b : null
+                ));
+            } catch (IllegalArgumentException ignored) {
+                // Unknown API name; the model falls back to the default provider
+            }
+        }
+        return providers;
+    }
+
+    public boolean isHttpWarmupEnabled() {
+        return config.getBoolean("openai.http.warmup", true);
+    }
+
+    public long getHttpKeepWarmIntervalMs() {
+        return config.getLong("openai.http.keep_warm_interval_ms", 60000);
+    }
+
+    public OpenAIClient.Settings getClientSettings() {
+        OpenAIClient.Settings settings = new OpenAIClient.Settings();
+        settings.timeoutMs = getTimeoutMs();
+        settings.connectTimeoutMs = getConnectTimeoutMs();
+        settings.firstTokenTimeoutMs = getFirstTokenTimeoutMs();
+        settings.interTokenTimeoutMs = getInterTokenTimeoutMs();
+        settings.hedgingEnabled = isHedgingEnabled();
+        settings.hedgePercentile = getHedgePercentile();
+        settings.hedgeMaxRate = getHedgeMaxRate();
+        settings.hedgeMinSamples = getHedgeMinSamples();
+        settings.retryMaxAttempts = getRetryMaxAttempts();
+        settings.retryBaseDelayMs = getRetryBaseDelayMs();
+        settings.retryMaxDelayMs = getRetryMaxDelayMs();
+        settings.retryDeadlineMs = getRetryDeadlineMs();
+        settings.budgetEnabled = isBudgetEnabled();
+        settings.budgetReserveFraction = getBudgetReserveFraction();
+        settings.budgetMinBlocks = getBudgetMinBlocks();
+        settings.budgetMaxWaitMs = getBudgetMaxWaitMs();
+        settings.maxIdleConnections = getHttpMaxIdleConnections();
+        settings.keepAliveMs = getHttpKeepAliveMs();
+        settings.maxRequests = getHttpMaxRequests();
+        settings.maxRequestsPerHost = getHttpMaxRequestsPerHost();
+        settings.pingIntervalMs = getHttpPingIntervalMs();
+        settings.planFormat = getPlanFormat();
+        settings.layerMinFill = getLayerMinFill();
+        settings.paletteMaxMaterials = getPaletteMaxMaterials();
+        settings.provider = getDefaultProvider();
+        settings.modelProviders = getModelProviders();
+        return settings;
+    }
+    
+    public boolean isCacheEnabled() {
+        return config.getBoolean("cache.enabled", true);
+    }
+
+    public long getCacheMemoryMaxBlocks() {
+        return config.getLong("cache.memory_max_blocks", 250000);
+    }
+
+    public boolean isCacheDiskEnabled() {
+        return config.getBoolean("cache.disk_enabled", true);
+    }
+
+    public int getCacheDiskMaxEntries() {
+        return config.getInt("cache.disk_max_entries", 1000);
+    }
+
+    public int getMaxConcurrentGenerations() {
+        return config.getInt("scheduler.max_concurrent", 4);
+    }
+
+    public int getMaxQueuedGenerations() {
+        return config.getInt("scheduler.max_queue", 20);
+    }
+
+    public int getMaxQueuedPerPlayer() {
+        return config.getInt("scheduler.max_queued_per_player", 1);
+    }
+
+    public String getCacheStoreType() {
+        return config.getString("cache.store.type", "directory");
+    }
+
+    public String getCacheStorePath() {
+        return config.getString("cache.store.path", "");
+    }
+
+    public boolean isCacheSimilarityEnabled() {
+        return config.getBoolean("cache.similarity.enabled", true);
+    }
+
+    public double getCacheSimilarityThreshold() {
+        return config.getDouble("cache.similarity.threshold", 0.8);
+    }
+
+    public int getCacheSimilarityMaxEntries() {
+        return config.getInt("cache.similarity.max_entries", 50000);
+    }
+
     public boolean isDebugLoggingEnabled() {
         return config.getBoolean("debug.enabled", false);
     }
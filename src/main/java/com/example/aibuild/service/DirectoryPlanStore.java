@@ -0,0 +1,140 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.model.CachedPlan;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Plan store backed by a directory of JSON files, one per content-addressed key.
+ * Files are written to a uniquely named temp file and renamed into place, so a directory
+ * shared between servers (same host or NFS) never exposes a half-written plan.
+ * The least recently used files are deleted once the entry limit is exceeded.
+ */
+public class DirectoryPlanStore implements PlanStore {
+    private static final String SUFFIX = ".json";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long STALE_TEMP_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final Path dir;
+    private final int maxEntries;
+    private final Logger logger;
+    private final Gson gson = new Gson();
+
+    public DirectoryPlanStore(File dir, int maxEntries, Logger logger) {
+        this.dir = dir.toPath();
+        this.maxEntries = maxEntries;
+        this.logger = logger;
+    }
+
+    @Override
+    public CachedPlan load(String key) {
+        Path file = fileFor(key);
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            CachedPlan plan = gson.fromJson(reader, CachedPlan.class);
+            // Touch so eviction keeps recently used plans
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return plan;
+        } catch (NoSuchFileException e) {
+            // Absent, or evicted by another server in the meantime
+            return null;
+        } catch (Exception e) {
+            logger.warning("Discarding unreadable cached plan " + file.getFileName() + ": " + e.getMessage());
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    @Override
+    public int save(String key, CachedPlan plan) {
+        try {
+            Files.createDirectories(dir);
+            Path target = fileFor(key);
+            Path tmp = Files.createTempFile(dir, "plan", TEMP_SUFFIX);
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                gson.toJson(plan, writer);
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return evictOverflow();
+        } catch (IOException e) {
+            logger.warning("Failed to write cached plan: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public int removeIf(Predicate<CachedPlan> predicate) {
+        int removed = 0;
+        for (File file : listEntries()) {
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                CachedPlan plan = gson.fromJson(reader, CachedPlan.class);
+                if (plan == null || !predicate.test(plan)) continue;
+            } catch (Exception e) {
+                // unreadable entries are removed as well
+            }
+            if (file.delete()) removed++;
+        }
+        return removed;
+    }
+
+    private int evictOverflow() {
+        deleteStaleTempFiles();
+        File[] files = listEntries();
+        if (files.length <= maxEntries) return 0;
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        int evicted = 0;
+        for (int i = 0; i < files.length - maxEntries; i++) {
+            // Another server may have deleted it first
+            if (files[i].delete()) evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Temp files left behind by a server that crashed mid-write
+     */
+    private void deleteStaleTempFiles() {
+        File[] temps = dir.toFile().listFiles((d, name) -> name.endsWith(TEMP_SUFFIX));
+        if (temps == null) return;
+        long cutoff = System.currentTimeMillis() - STALE_TEMP_MS;
+        for (File temp : temps) {
+            if (temp.lastModified() < cutoff) temp.delete();
+        }
+    }
+
+    private File[] listEntries() {
+        File[] files = dir.toFile().listFiles((d, name) -> name.endsWith(SUFFIX));
+        return files != null ? files : new File[0];
+    }
+
+    private Path fileFor(String key) {
+        return dir.resolve(PlanStore.address(key) + SUFFIX);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // best effort
+        }
+    }
+}
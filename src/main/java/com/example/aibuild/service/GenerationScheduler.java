@@ -0,0 +1,345 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.util.LatencyTracker;
+import com.example.aibuild.util.VirtualThreads;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs plan generations off Bukkit's shared async workers.
+ * At most maxConcurrent generations are in flight at once; a slot is held until the
+ * generation's future completes, not for the life of a thread. Waiting requests are queued per player
+ * and dispatched round-robin, so one player's burst cannot starve everyone else.
+ * Requests beyond the queue limits are rejected immediately rather than piling up.
+ */
+public class GenerationScheduler {
+    private static final long POSITION_UPDATE_INTERVAL_MS = 5000;
+
+    /**
+     * Receives queue position updates for a waiting request, on a scheduler thread
+     */
+    @FunctionalInterface
+    public interface QueueListener {
+        /**
+         * @param position number of requests that will start before this one
+         * @param etaMs estimated wait until it starts, or -1 if unknown
+         */
+        void onQueued(int position, long etaMs);
+    }
+
+    public enum Admission {
+        STARTED, QUEUED, QUEUE_FULL, PLAYER_QUEUE_FULL;
+
+        public boolean isAccepted() {
+            return this == STARTED || this == QUEUED;
+        }
+    }
+
+    /**
+     * @param waitP50Ms median queue wait of recently started requests, -1 if none
+     * @param waitP95Ms 95th percentile queue wait, -1 if none
+     * @param completedLastMinute generations finished in the last 60 seconds
+     */
+    public record Stats(int running, int queued, int queuedPlayers, long submitted, long completed, long shed,
+                        long waitP50Ms, long waitP95Ms, long maxWaitMs, int completedLastMinute) {}
+
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final int maxQueuedPerPlayer;
+    private final long positionUpdateIntervalMs;
+    private final ExecutorService executor = VirtualThreads.newExecutor("AIBuild-generation");
+    private final Set<CompletableFuture<?>> inFlight = new HashSet<>();
+
+    private final Map<UUID, ArrayDeque<Job>> queues = new HashMap<>();
+    private final ArrayDeque<UUID> rotation = new ArrayDeque<>();
+    private int queued;
+    private int running;
+    private boolean trailingUpdateScheduled;
+
+    private long submitted;
+    private long completed;
+    private long shed;
+    private long maxWaitMs;
+    private final LatencyTracker waits = new LatencyTracker(500);
+    private final LatencyTracker durations = new LatencyTracker(100);
+    private final ArrayDeque<Long> completions = new ArrayDeque<>();
+
+    private static final class Job {
+        final UUID owner;
+        final Supplier<? extends CompletionStage<?>> task;
+        final QueueListener listener;
+        final long enqueuedAt = System.currentTimeMillis();
+        int lastPosition = -1;
+        long lastUpdateAt;
+
+        Job(UUID owner, Supplier<? extends CompletionStage<?>> task, QueueListener listener) {
+            this.owner = owner;
+            this.task = task;
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * @param maxConcurrent generations allowed to run at once
+     * @param maxQueue waiting requests allowed across all players
+     * @param maxQueuedPerPlayer waiting requests allowed per player
+     */
+    public GenerationScheduler(int maxConcurrent, int maxQueue, int maxQueuedPerPlayer) {
+        this(maxConcurrent, maxQueue, maxQueuedPerPlayer, POSITION_UPDATE_INTERVAL_MS);
+    }
+
+    GenerationScheduler(int maxConcurrent, int maxQueue, int maxQueuedPerPlayer, long positionUpdateIntervalMs) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxQueuedPerPlayer = Math.max(0, maxQueuedPerPlayer);
+        this.positionUpdateIntervalMs = positionUpdateIntervalMs;
+    }
+
+    /**
+     * Run a blocking generation; the slot is held until the task returns.
+     * @see #submitAsync
+     */
+    public Admission submit(UUID owner, Runnable task, QueueListener listener) {
+        return submitAsync(owner, () -> {
+            task.run();
+            return CompletableFuture.completedFuture(null);
+        }, listener);
+    }
+
+    /**
+     * Start a generation now if a slot is free, otherwise queue it behind other players' requests.
+     * The task is called on a virtual thread where available and should return quickly;
+     * its slot is freed when the returned stage completes.
+     * A queued request is told its position and ETA immediately and again as it moves up.
+     * @return whether the task was started, queued, or shed
+     */
+    public Admission submitAsync(UUID owner, Supplier<? extends CompletionStage<?>> task, QueueListener listener) {
+        Job job = new Job(owner, task, listener);
+        int position;
+        long eta;
+        synchronized (this) {
+            if (running < maxConcurrent && queued == 0) {
+                submitted++;
+                start(job);
+                return Admission.STARTED;
+            }
+            if (queued >= maxQueue) {
+                shed++;
+                return Admission.QUEUE_FULL;
+            }
+            ArrayDeque<Job> playerQueue = queues.get(owner);
+            if (playerQueue != null && playerQueue.size() >= maxQueuedPerPlayer) {
+                shed++;
+                return Admission.PLAYER_QUEUE_FULL;
+            }
+            submitted++;
+            if (playerQueue == null) {
+                playerQueue = new ArrayDeque<>();
+                queues.put(owner, playerQueue);
+                rotation.add(owner);
+            }
+            playerQueue.add(job);
+            queued++;
+            position = positionOf(job);
+            eta = etaMs(position);
+            job.lastPosition = position;
+            job.lastUpdateAt = job.enqueuedAt;
+        }
+        if (listener != null) listener.onQueued(position, eta);
+        return Admission.QUEUED;
+    }
+
+    public synchronized Stats stats() {
+        long now = System.currentTimeMillis();
+        pruneCompletions(now);
+        return new Stats(running, queued, queues.size(), submitted, completed, shed,
+            waits.percentile(50), waits.percentile(95), maxWaitMs, completions.size());
+    }
+
+    /**
+     * Stop accepting work; queued requests are dropped and running ones are cancelled
+     */
+    public void shutdown() {
+        List<CompletableFuture<?>> running;
+        synchronized (this) {
+            queues.clear();
+            rotation.clear();
+            queued = 0;
+            running = new ArrayList<>(inFlight);
+        }
+        // Cancellation travels back through the generation to its open stream
+        running.forEach(future -> future.cancel(true));
+        executor.shutdownNow();
+    }
+
+    /**
+     * Start the job on a worker; caller holds the lock and has checked a slot is free
+     */
+    private void start(Job job) {
+        running++;
+        long waited = System.currentTimeMillis() - job.enqueuedAt;
+        waits.record(waited);
+        maxWaitMs = Math.max(maxWaitMs, waited);
+        executor.execute(() -> run(job));
+    }
+
+    private void run(Job job) {
+        long startedAt = System.currentTimeMillis();
+        CompletableFuture<?> future;
+        try {
+            future = job.task.get().toCompletableFuture();
+        } catch (RuntimeException | Error e) {
+            finished(startedAt);
+            throw e;
+        }
+        synchronized (this) {
+            inFlight.add(future);
+        }
+        future.whenComplete((result, error) -> {
+            synchronized (this) {
+                inFlight.remove(future);
+            }
+            finished(startedAt);
+        });
+    }
+
+    private void finished(long startedAt) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            running--;
+            completed++;
+            durations.record(now - startedAt);
+            completions.add(now);
+            pruneCompletions(now);
+        }
+        dispatch();
+    }
+
+    /**
+     * Fill free slots from the queues, taking one request per player in turn
+     */
+    private void dispatch() {
+        synchronized (this) {
+            while (running < maxConcurrent && !rotation.isEmpty()) {
+                UUID owner = rotation.poll();
+                ArrayDeque<Job> playerQueue = queues.get(owner);
+                Job job = playerQueue.poll();
+                queued--;
+                if (playerQueue.isEmpty()) {
+                    queues.remove(owner);
+                } else {
+                    rotation.add(owner);
+                }
+                start(job);
+            }
+        }
+        notifyPositions();
+    }
+
+    /**
+     * Tell waiting requests whose position changed. Changes inside a request's throttle window
+     * are held back and sent as one trailing update when the earliest window closes.
+     */
+    private void notifyPositions() {
+        Map<Job, long[]> updates = new HashMap<>();
+        long now = System.currentTimeMillis();
+        long trailingDelay = Long.MAX_VALUE;
+        synchronized (this) {
+            for (ArrayDeque<Job> playerQueue : queues.values()) {
+                for (Job job : playerQueue) {
+                    if (job.listener == null) continue;
+                    int position = positionOf(job);
+                    if (position == job.lastPosition) continue;
+                    long sinceUpdate = now - job.lastUpdateAt;
+                    if (sinceUpdate < positionUpdateIntervalMs) {
+                        trailingDelay = Math.min(trailingDelay, positionUpdateIntervalMs - sinceUpdate);
+                        continue;
+                    }
+                    job.lastPosition = position;
+                    job.lastUpdateAt = now;
+                    updates.put(job, new long[]{position, etaMs(position)});
+                }
+            }
+            if (trailingDelay != Long.MAX_VALUE && !trailingUpdateScheduled && !executor.isShutdown()) {
+                trailingUpdateScheduled = true;
+                CompletableFuture.runAsync(this::trailingUpdate,
+                    CompletableFuture.delayedExecutor(trailingDelay, TimeUnit.MILLISECONDS, executor));
+            }
+        }
+        updates.forEach((job, update) -> job.listener.onQueued((int) update[0], update[1]));
+    }
+
+    private void trailingUpdate() {
+        synchronized (this) {
+            trailingUpdateScheduled = false;
+        }
+        notifyPositions();
+    }
+
+    /**
+     * Requests that will start before this one under round-robin dispatch:
+     * every player's first k requests, plus the (k+1)th of players ahead in the rotation
+     */
+    private int positionOf(Job job) {
+        int k = indexIn(queues.get(job.owner), job);
+        int position = k;
+        int rotationIndex = 0;
+        int ownIndex = rotationIndexOf(job.owner);
+        for (UUID other : rotation) {
+            if (!other.equals(job.owner)) {
+                int size = queues.get(other).size();
+                position += Math.min(size, k);
+                if (rotationIndex < ownIndex && size > k) position++;
+            }
+            rotationIndex++;
+        }
+        return position;
+    }
+
+    private int rotationIndexOf(UUID owner) {
+        int i = 0;
+        for (UUID id : rotation) {
+            if (id.equals(owner)) return i;
+            i++;
+        }
+        return i;
+    }
+
+    private static int indexIn(ArrayDeque<Job> queue, Job job) {
+        int i = 0;
+        Iterator<Job> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next() == job) return i;
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Slots free up at roughly maxConcurrent per median generation time
+     */
+    private long etaMs(int position) {
+        long median = durations.percentile(50);
+        if (median < 0) return -1;
+        return (position / maxConcurrent + 1) * median;
+    }
+
+    private void pruneCompletions(long now) {
+        while (!completions.isEmpty() && now - completions.peekFirst() > 60_000) {
+            completions.pollFirst();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.BuildValidator;
+import com.example.aibuild.exception.BuildValidationException;
+import com.example.aibuild.exception.PlanParseException;
+import com.example.aibuild.model.BlockSpec;
+import com.example.aibuild.model.CompactShapes;
+import com.example.aibuild.model.LayerGrid;
+import com.example.aibuild.model.PlanGroup;
+import com.example.aibuild.model.Size;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental parser for the compact plan protocol: {"s":[x,y,z],"b":[[x,y,z,m],...],"g":[...]}
+ * Consumes streamed text deltas and emits each block tuple as soon as its closing
+ * bracket arrives, so placement can start while the model is still generating.
+ * Box and line shapes are expanded into their blocks as they arrive; see {@link CompactShapes}.
+ * Tuples of a mirrored or repeated group are emitted with all their copies, which needs the
+ * group's operators to come before its "b"; see {@link PlanGroup}.
+ * The layer grid {"s":[x,y,z],"l":[["row",...],...]} is emitted a row at a time; see {@link LayerGrid}.
+ * Not thread-safe: feed deltas from a single thread in arrival order.
+ */
+public class IncrementalPlanParser {
+
+    /**
+     * Receives blocks as soon as they are complete and bounds-checked
+     */
+    @FunctionalInterface
+    public interface BlockSink {
+        void accept(BlockSpec block);
+    }
+
+    private static final int MAX_TUPLE = 8;
+
+    private final String[] materialNames;
+    private final int maxBlocks;
+    private final BlockSink sink;
+
+    private boolean started;
+    private boolean closed;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private final StringBuilder string = new StringBuilder();
+    private final StringBuilder number = new StringBuilder();
+    private String lastKey;
+    private String section;
+    private boolean afterColon;
+
+    // Group of "g" being read; its operators are fixed once its "b" starts
+    private PlanGroup group;
+    private String groupKey;
+    private boolean groupBlocks;
+    private final double[] repeatValues = new double[4];
+    private int repeatLen;
+
+    // Position in "l": layers started so far and rows read in the current one
+    private int layers;
+    private int rows;
+
+    private final double[] sizeValues = new double[3];
+    private int sizeLen;
+    private final double[] tuple = new double[MAX_TUPLE];
+    private int tupleLen;
+
+    private Size size;
+    private final List<BlockSpec> pending = new ArrayList<>();
+    private int blockCount;
+    private boolean hasFoundation;
+    private final StringBuilder snippet = new StringBuilder();
+
+    public IncrementalPlanParser(String[] materialNames, int maxBlocks, BlockSink sink) {
+        this.materialNames = materialNames;
+        this.maxBlocks = maxBlocks;
+        this.sink = sink;
+    }
+
+    /**
+     * Feed the next chunk of streamed text
+     * @throws PlanParseException if the text is not valid compact protocol
+     * @throws BuildValidationException if the size or a block breaks a limit
+     */
+    public void feed(CharSequence delta) throws PlanParseException, BuildValidationException {
+        if (snippet.length() < 500) {
+            snippet.append(delta, 0, Math.min(delta.length(), 500 - snippet.length()));
+        }
+        for (int i = 0; i < delta.length(); i++) {
+            accept(delta.charAt(i));
+        }
+    }
+
+    /**
+     * Check the stream ended with a complete plan
+     * @throws PlanParseException if the plan was truncated or had no size
+     * @throws BuildValidationException if the plan has no foundation
+     */
+    public void finish() throws PlanParseException, BuildValidationException {
+        if (!started) {
+            throw new PlanParseException("No JSON object in stream", snippet.toString());
+        }
+        if (size == null) {
+            throw new PlanParseException("Missing size", snippet.toString());
+        }
+        if (!closed) {
+            throw new PlanParseException("Truncated plan: stream ended after " + blockCount + " blocks", snippet.toString());
+        }
+        if (!hasFoundation) {
+            throw new BuildValidationException("No foundation: structure must have at least one block at ground level (dy=0)");
+        }
+    }
+
+    public Size getSize() {
+        return size;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    private void accept(char c) throws PlanParseException, BuildValidationException {
+        if (closed) return;
+        if (!started) {
+            // Skip anything before the first object (e.g. a markdown fence)
+            if (c == '{') {
+                started = true;
+                depth = 1;
+            }
+            return;
+        }
+
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+                string.append(c);
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                inString = false;
+                if (depth == 1) {
+                    lastKey = string.toString();
+                } else if (depth == 3 && group != null) {
+                    groupString(string.toString());
+                } else if (depth == 3 && "l".equals(section)) {
+                    emitRow(string);
+                }
+            } else {
+                string.append(c);
+            }
+            return;
+        }
+
+        switch (c) {
+            case '"' -> {
+                flushNumber();
+                inString = true;
+                string.setLength(0);
+            }
+            case '[' -> {
+                depth++;
+                afterColon = false;
+                if (depth == 2 && ("s".equals(lastKey) || "b".equals(lastKey) || "g".equals(lastKey) || "l".equals(lastKey))) {
+                    section = lastKey;
+                    lastKey = null;
+                } else if (depth == 3 && "b".equals(section)) {
+                    tupleLen = 0;
+                } else if (depth == 3 && "l".equals(section)) {
+                    layers++;
+                    rows = 0;
+                } else if (depth == 4 && group != null) {
+                    startGroupValue();
+                } else if (depth == 5 && groupBlocks) {
+                    tupleLen = 0;
+                }
+            }
+            case ']' -> {
+                flushNumber();
+                if (depth == 3 && "b".equals(section)) {
+                    emitTuple(null);
+                } else if (depth == 2 && "s".equals(section)) {
+                    finishSize();
+                } else if (depth == 5 && groupBlocks) {
+                    emitTuple(group);
+                } else if (depth == 4 && group != null && "repeat".equals(groupKey)) {
+                    finishRepeat();
+                }
+                if (depth == 2) section = null;
+                depth--;
+            }
+            case '{' -> {
+                depth++;
+                afterColon = false;
+                if (depth == 3 && "g".equals(section)) {
+                    group = new PlanGroup();
+                    groupKey = null;
+                    groupBlocks = false;
+                }
+            }
+            case '}' -> {
+                flushNumber();
+                if (depth == 3) {
+                    group = null;
+                    groupBlocks = false;
+                }
+                depth--;
+                if (depth == 0) closed = true;
+            }
+            case ':' -> {
+                flushNumber();
+                afterColon = true;
+            }
+            case ',' -> {
+                flushNumber();
+                afterColon = false;
+            }
+            case ' ', '\n', '\r', '\t' -> flushNumber();
+            default -> {
+                if (section != null) number.append(c);
+            }
+        }
+    }
+
+    private void flushNumber() throws PlanParseException {
+        if (number.length() == 0) return;
+        double value;
+        try {
+            value = Double.parseDouble(number.toString());
+        } catch (NumberFormatException e) {
+            throw new PlanParseException("Invalid number in plan: " + number, e, snippet.toString());
+        }
+        number.setLength(0);
+
+        if ("s".equals(section) && depth == 2) {
+            if (sizeLen < sizeValues.length) sizeValues[sizeLen++] = value;
+        } else if ("b".equals(section) && depth == 3 || groupBlocks && depth == 5) {
+            if (tupleLen < MAX_TUPLE) tuple[tupleLen++] = value;
+        } else if (group != null && depth == 4 && "repeat".equals(groupKey)) {
+            if (repeatLen < repeatValues.length) repeatValues[repeatLen++] = value;
+        }
+    }
+
+    private void finishSize() throws PlanParseException, BuildValidationException {
+        if (sizeLen < 3) {
+            throw new PlanParseException("Size must have 3 dimensions", snippet.toString());
+        }
+        size = new Size((int) sizeValues[0], (int) sizeValues[1], (int) sizeValues[2]);
+        BuildValidator.validateSize(size);
+
+        // Blocks streamed before the size can only be checked now
+        for (BlockSpec b : pending) {
+            emit(b);
+        }
+        pending.clear();
+    }
+
+    /**
+     * One z-row of the current layer
+     */
+    private void emitRow(CharSequence row) throws PlanParseException, BuildValidationException {
+        int y = layers - 1;
+        int z = rows++;
+        checkBlockCount(LayerGrid.blockCount(row));
+        List<BlockSpec> blocks = new ArrayList<>(row.length());
+        try {
+            LayerGrid.expandRow(row, y, z, materialNames, blocks);
+        } catch (IllegalArgumentException e) {
+            throw new PlanParseException(e.getMessage(), snippet.toString());
+        }
+        blockCount += blocks.size();
+        emitAll(blocks);
+    }
+
+    /**
+     * A key or string value inside a group object
+     */
+    private void groupString(String value) throws PlanParseException {
+        if (!afterColon) {
+            groupKey = value;
+            if (groupBlocks && ("mirror".equals(value) || "repeat".equals(value))) {
+                throw new PlanParseException("Group operators must come before the group's \"b\"", snippet.toString());
+            }
+        } else if ("mirror".equals(groupKey)) {
+            group.mirror = value;
+        }
+    }
+
+    private void startGroupValue() throws PlanParseException, BuildValidationException {
+        if ("repeat".equals(groupKey)) {
+            repeatLen = 0;
+        } else if ("b".equals(groupKey)) {
+            try {
+                group.repeats();
+                group.checkMirror();
+            } catch (IllegalArgumentException e) {
+                throw new PlanParseException(e.getMessage(), snippet.toString());
+            }
+            // Mirroring is relative to the plan, so its copies cannot be placed before the size is known
+            if (group.mirror != null && size == null) {
+                throw new PlanParseException("Size must come before mirrored groups", snippet.toString());
+            }
+            groupBlocks = true;
+        }
+    }
+
+    private void finishRepeat() {
+        List<Number> values = new ArrayList<>(repeatLen);
+        for (int i = 0; i < repeatLen; i++) values.add(repeatValues[i]);
+        group.repeat = values;
+    }
+
+    /**
+     * @param from group the tuple belongs to, null for the plan's own "b"
+     */
+    private void emitTuple(PlanGroup from) throws PlanParseException, BuildValidationException {
+        List<BlockSpec> blocks;
+        try {
+            long count = CompactShapes.blockCount(tuple, tupleLen);
+            if (from != null && count <= maxBlocks) count *= from.repeats();
+            // Checked before expanding, so one oversized box or repeat cannot allocate a huge list
+            checkBlockCount(count);
+            blocks = from == null
+                ? CompactShapes.expand(tuple, tupleLen, materialNames)
+                : from.expand(tuple, tupleLen, materialNames, size);
+        } catch (IllegalArgumentException e) {
+            throw new PlanParseException(e.getMessage(), snippet.toString());
+        }
+        // Mirror copies are only known once expanded
+        checkBlockCount(blocks.size());
+        blockCount += blocks.size();
+        emitAll(blocks);
+    }
+
+    private void emitAll(List<BlockSpec> blocks) throws BuildValidationException {
+        for (BlockSpec spec : blocks) {
+            if (size == null) {
+                pending.add(spec);
+            } else {
+                emit(spec);
+            }
+        }
+    }
+
+    private void checkBlockCount(long count) throws BuildValidationException {
+        if (count > maxBlocks - blockCount) {
+            throw new BuildValidationException(String.format(
+                "Plan too large: more than %d blocks", maxBlocks));
+        }
+    }
+
+    private void emit(BlockSpec spec) throws BuildValidationException {
+        BuildValidator.validateBlock(spec, size);
+        if (spec.dy == 0) hasFoundation = true;
+        sink.accept(spec);
+    }
+}
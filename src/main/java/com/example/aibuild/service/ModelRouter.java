@@ -0,0 +1,189 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.util.LatencyTracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the model for a prompt. Simple builds go to a small, fast model and complex ones to the
+ * large model; a small-model plan that fails parsing or validation is escalated to the large one.
+ * Success rate and latency are kept per model so the threshold can be tuned from real traffic.
+ */
+public class ModelRouter {
+    private static final Set<String> COMPLEX_SUBJECTS = Set.of(
+        "castle", "cathedral", "church", "palace", "mansion", "fortress", "fort", "temple", "city",
+        "village", "ship", "airship", "bridge", "skyscraper", "pyramid", "monument", "statue", "arena", "colosseum"
+    );
+    private static final Set<String> SIMPLE_SUBJECTS = Set.of(
+        "fence", "wall", "pillar", "column", "path", "road", "floor", "platform", "cube", "box",
+        "block", "stairs", "staircase", "bench", "table", "well", "lamp", "post", "sign"
+    );
+    private static final Set<String> LARGE_WORDS = Set.of(
+        "huge", "giant", "massive", "enormous", "large", "big", "tall", "grand", "detailed", "ornate", "gothic"
+    );
+    private static final Set<String> SMALL_WORDS = Set.of("small", "tiny", "little", "simple", "basic", "plain");
+    private static final Pattern DIMENSIONS = Pattern.compile("(\\d+)\\s*x\\s*(\\d+)(?:\\s*x\\s*(\\d+))?");
+    private static final Pattern FEATURE = Pattern.compile("\\b(with|and)\\b|,");
+
+    /**
+     * Model choice for one request
+     * @param complexity score in [0, 1] the choice was based on
+     */
+    public record Route(String model, double complexity) {}
+
+    /**
+     * Outcome counts and latency for one model
+     * @param invalid responses that failed parsing or validation
+     * @param errors requests that failed before a plan came back
+     * @param escalated invalid responses that were retried on the large model
+     */
+    public record ModelStats(String model, long requests, long successes, long invalid, long errors,
+                             long escalated, long p50Ms, long p95Ms) {
+        public double successRate() {
+            long finished = successes + invalid;
+            return finished == 0 ? 0 : (double) successes / finished;
+        }
+    }
+
+    private final String smallModel;
+    private final String largeModel;
+    private final double complexityThreshold;
+    private final boolean escalate;
+    private final Map<String, Counters> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Routing disabled: every request goes to model
+     */
+    public ModelRouter(String model) {
+        this(null, model, 0, false);
+    }
+
+    /**
+     * @param smallModel model for simple builds, or null to disable routing
+     * @param largeModel model for complex builds and escalations
+     * @param complexityThreshold prompts scoring at or above this go straight to the large model
+     * @param escalate retry invalid small-model plans on the large model
+     */
+    public ModelRouter(String smallModel, String largeModel, double complexityThreshold, boolean escalate) {
+        this.smallModel = smallModel == null || smallModel.isBlank() || smallModel.equals(largeModel) ? null : smallModel;
+        this.largeModel = largeModel;
+        this.complexityThreshold = complexityThreshold;
+        this.escalate = escalate;
+    }
+
+    public boolean isEnabled() {
+        return smallModel != null;
+    }
+
+    public Route route(String prompt, int maxBlocks) {
+        if (smallModel == null) return new Route(largeModel, 0);
+        double complexity = complexity(prompt, maxBlocks);
+        return new Route(complexity >= complexityThreshold ? largeModel : smallModel, complexity);
+    }
+
+    /**
+     * Model to retry an invalid plan from model on, or null if there is none
+     */
+    public String escalationFor(String model) {
+        return escalate && smallModel != null && smallModel.equals(model) ? largeModel : null;
+    }
+
+    /**
+     * Heuristic complexity of a prompt in [0, 1]: the kind of structure, size and detail words,
+     * the number of features asked for, and explicit dimensions relative to the block limit
+     */
+    public static double complexity(String prompt, int maxBlocks) {
+        String text = prompt.toLowerCase(Locale.ROOT);
+        String[] words = text.split("[^\\p{L}\\p{N}]+");
+
+        double score = Math.min(words.length, 40) / 40.0 * 0.25;
+        boolean complexSubject = false;
+        boolean simpleSubject = false;
+        boolean largeWord = false;
+        boolean smallWord = false;
+        for (String word : words) {
+            String singular = word.endsWith("s") && word.length() > 3 ? word.substring(0, word.length() - 1) : word;
+            complexSubject |= COMPLEX_SUBJECTS.contains(word) || COMPLEX_SUBJECTS.contains(singular);
+            simpleSubject |= SIMPLE_SUBJECTS.contains(word) || SIMPLE_SUBJECTS.contains(singular);
+            largeWord |= LARGE_WORDS.contains(word);
+            smallWord |= SMALL_WORDS.contains(word);
+        }
+        if (complexSubject) score += 0.5;
+        else if (simpleSubject) score -= 0.2;
+        if (largeWord) score += 0.2;
+        if (smallWord) score -= 0.15;
+
+        int features = 0;
+        Matcher feature = FEATURE.matcher(text);
+        while (feature.find() && features < 3) features++;
+        score += features * 0.1;
+
+        // Explicit size: footprint for AxB, shell area for AxBxC, against the block limit
+        Matcher dims = DIMENSIONS.matcher(text);
+        if (dims.find() && maxBlocks > 0) {
+            long a = Long.parseLong(dims.group(1));
+            long b = Long.parseLong(dims.group(2));
+            long blocks = dims.group(3) == null ? a * b : 2 * (a * b + b * Long.parseLong(dims.group(3)) + a * Long.parseLong(dims.group(3)));
+            score += Math.min(1.0, (double) blocks / maxBlocks) * 0.5;
+        }
+        return Math.max(0, Math.min(1, score));
+    }
+
+    public void recordRequest(String model) {
+        counters(model).requests.incrementAndGet();
+    }
+
+    public void recordSuccess(String model, long latencyMs) {
+        Counters counters = counters(model);
+        counters.successes.incrementAndGet();
+        counters.latency.record(latencyMs);
+    }
+
+    public void recordInvalid(String model, boolean escalated) {
+        Counters counters = counters(model);
+        counters.invalid.incrementAndGet();
+        if (escalated) counters.escalated.incrementAndGet();
+    }
+
+    public void recordError(String model) {
+        counters(model).errors.incrementAndGet();
+    }
+
+    /**
+     * Per-model statistics, small model first
+     */
+    public List<ModelStats> getStats() {
+        List<ModelStats> out = new ArrayList<>();
+        for (String model : new String[] { smallModel, largeModel }) {
+            if (model != null) out.add(snapshot(model));
+        }
+        return out;
+    }
+
+    private ModelStats snapshot(String model) {
+        Counters c = counters(model);
+        return new ModelStats(model, c.requests.get(), c.successes.get(), c.invalid.get(), c.errors.get(),
+            c.escalated.get(), c.latency.percentile(50), c.latency.percentile(95));
+    }
+
+    private Counters counters(String model) {
+        return stats.computeIfAbsent(model, m -> new Counters());
+    }
+
+    private static final class Counters {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong successes = new AtomicLong();
+        final AtomicLong invalid = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong escalated = new AtomicLong();
+        final LatencyTracker latency = new LatencyTracker(200);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.BuildValidator;
+import com.example.aibuild.exception.PlanParseException;
+import com.example.aibuild.model.BlockSpec;
+import com.example.aibuild.model.BuildPlan;
+import com.example.aibuild.model.Size;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Two-stage generation: a short outline call splits a build into sections (foundation,
+ * walls per floor, roof, ...) that are then generated concurrently and merged.
+ * This class holds the pure parts: reading the outline, sharing the block budget,
+ * writing the per-section prompts and merging the section plans at their offsets.
+ */
+public class OutlinePlanner {
+    private final Gson gson = new Gson();
+
+    /**
+     * One sub-volume of the build; x, y, z is its minimum corner within the outline box
+     */
+    public record Section(String name, int x, int y, int z, Size size, String description) {
+        /**
+         * Surface area of the section's box, a proxy for how many blocks it needs
+         */
+        long shellArea() {
+            return 2L * ((long) size.x * size.y + (long) size.y * size.z + (long) size.x * size.z);
+        }
+    }
+
+    public record Outline(Size box, List<Section> sections) {}
+
+    // Shape the model returns; fields are lenient so a loose answer still parses
+    private static final class RawOutline {
+        List<Double> box;
+        List<RawSection> parts;
+    }
+
+    private static final class RawSection {
+        String name;
+        List<Double> at;
+        List<Double> size;
+        String desc;
+    }
+
+    /**
+     * Parse an outline, clamping the box to the size limit and each section into the box.
+     * Sections with no volume left after clamping are dropped, and at most maxSections are kept.
+     */
+    public Outline parse(String json, int maxSections) throws PlanParseException {
+        RawOutline raw;
+        try {
+            JsonReader reader = new JsonReader(new StringReader(json));
+            reader.setLenient(true);
+            raw = gson.fromJson(reader, RawOutline.class);
+        } catch (RuntimeException e) {
+            throw new PlanParseException("Failed to parse outline: " + e.getMessage(), e, snippet(json));
+        }
+        if (raw == null || raw.box == null || raw.box.size() < 3 || raw.parts == null) {
+            throw new PlanParseException("Outline is missing box or parts", snippet(json));
+        }
+
+        Size box = new Size(clamp(raw.box.get(0), 1, BuildValidator.MAX_DIMENSION),
+                            clamp(raw.box.get(1), 1, BuildValidator.MAX_DIMENSION),
+                            clamp(raw.box.get(2), 1, BuildValidator.MAX_DIMENSION));
+        List<Section> sections = new ArrayList<>();
+        for (RawSection part : raw.parts) {
+            if (sections.size() >= maxSections) break;
+            if (part == null || part.at == null || part.size == null || part.at.size() < 3 || part.size.size() < 3) continue;
+            int x = clamp(part.at.get(0), 0, box.x - 1);
+            int y = clamp(part.at.get(1), 0, box.y - 1);
+            int z = clamp(part.at.get(2), 0, box.z - 1);
+            Size size = new Size(clamp(part.size.get(0), 0, box.x - x),
+                                 clamp(part.size.get(1), 0, box.y - y),
+                                 clamp(part.size.get(2), 0, box.z - z));
+            if (size.x == 0 || size.y == 0 || size.z == 0) continue;
+            String name = part.name == null || part.name.isBlank() ? "section " + (sections.size() + 1) : part.name;
+            sections.add(new Section(name, x, y, z, size, part.desc == null ? "" : part.desc));
+        }
+        return new Outline(box, sections);
+    }
+
+    /**
+     * Split maxBlocks across sections in proportion to their surface area; the shares never sum past maxBlocks
+     */
+    public int[] blockShares(Outline outline, int maxBlocks) {
+        List<Section> sections = outline.sections();
+        long total = 0;
+        for (Section section : sections) total += section.shellArea();
+        int[] shares = new int[sections.size()];
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = (int) Math.max(1, maxBlocks * sections.get(i).shellArea() / Math.max(1, total));
+        }
+        return shares;
+    }
+
+    /**
+     * Request for one section, with enough of the whole build that sections agree on style
+     */
+    public String sectionPrompt(String prompt, Outline outline, Section section) {
+        Size box = outline.box();
+        Size size = section.size();
+        return String.format(
+            "Build one section of a larger structure: %s\n" +
+            "The whole structure is %dx%dx%d; this section \"%s\" sits at [%d,%d,%d] within it.\n" +
+            "Build only this section: %s\n" +
+            "Use s = [%d, %d, %d] and local coordinates inside the section.",
+            prompt, box.x, box.y, box.z, section.name(), section.x(), section.y(), section.z(),
+            section.description(), size.x, size.y, size.z);
+    }
+
+    /**
+     * A section block moved into whole-build coordinates, or null if it falls outside its section
+     */
+    public BlockSpec place(BlockSpec block, Section section) {
+        Size size = section.size();
+        if (block.dx < 0 || block.dy < 0 || block.dz < 0
+                || block.dx >= size.x || block.dy >= size.y || block.dz >= size.z) {
+            return null;
+        }
+        return new BlockSpec(block.dx + section.x(), block.dy + section.y(), block.dz + section.z(), block.material);
+    }
+
+    /**
+     * Combine section plans into one plan the size of the outline box.
+     * Blocks outside their section are dropped; where sections overlap, the later one wins.
+     * @param plans one plan per outline section, in outline order
+     */
+    public BuildPlan merge(Outline outline, List<BuildPlan> plans) {
+        Map<Long, BlockSpec> merged = new LinkedHashMap<>();
+        for (int i = 0; i < plans.size(); i++) {
+            Section section = outline.sections().get(i);
+            for (BlockSpec block : plans.get(i).blocks) {
+                BlockSpec placed = place(block, section);
+                if (placed != null) merged.put(key(placed), placed);
+            }
+        }
+        BuildPlan plan = new BuildPlan();
+        plan.size = new Size(outline.box().x, outline.box().y, outline.box().z);
+        plan.blocks = new ArrayList<>(merged.values());
+        return plan;
+    }
+
+    private static long key(BlockSpec block) {
+        return ((long) block.dx << 32) | ((long) block.dy << 16) | block.dz;
+    }
+
+    private static int clamp(Double value, int min, int max) {
+        if (value == null) return min;
+        return (int) Math.max(min, Math.min(max, value));
+    }
+
+    private static String snippet(String json) {
+        if (json == null) return "";
+        return json.substring(0, Math.min(500, json.length()));
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.aibuild.service;
+
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Picks the part of a large palette a prompt is likely to use, most likely first, so the
+ * material table in the instructions stays short and common materials get one-digit IDs.
+ * Materials are scored on the words of their names: each word the prompt names, belonging to a
+ * theme the prompt mentions, or being a basic building material. Ties go to basic materials in
+ * priority order, then full blocks over their stair, slab and other shape variants, then names with
+ * fewer unmatched words, and only then to name order.
+ * The choice is a pure function of (prompt, palette), so the request and the parser that
+ * reads its IDs back always agree on the numbering.
+ * Palettes no larger than the limit are left whole and in name order, which keeps their
+ * instructions identical across prompts for provider-side prompt caching.
+ */
+public class PaletteSelector {
+    private static final int NAMED = 3;
+    private static final int THEMED = 2;
+    private static final int BASIC_SCORE = 1;
+
+    // Prompt words that point at materials without naming them, and the name words they mean
+    private static final Map<String, Set<String>> THEMES = Map.ofEntries(
+        Map.entry("wooden", Set.of("planks", "log", "wood", "stairs", "slab", "fence", "door")),
+        Map.entry("wood", Set.of("planks", "log", "wood", "stairs", "slab", "fence", "door")),
+        Map.entry("window", Set.of("glass", "pane")),
+        Map.entry("light", Set.of("torch", "lantern", "glowstone", "lamp")),
+        Map.entry("lamp", Set.of("torch", "lantern", "glowstone", "lamp")),
+        Map.entry("roof", Set.of("stairs", "slab")),
+        Map.entry("medieval", Set.of("cobblestone", "stone", "bricks", "oak", "spruce", "log", "lantern")),
+        Map.entry("castle", Set.of("stone", "bricks", "cobblestone", "deepslate", "banner", "torch")),
+        Map.entry("modern", Set.of("concrete", "glass", "quartz", "iron", "white", "gray", "smooth")),
+        Map.entry("desert", Set.of("sand", "sandstone", "terracotta", "cactus")),
+        Map.entry("egyptian", Set.of("sand", "sandstone", "terracotta", "gold")),
+        Map.entry("snow", Set.of("snow", "ice", "spruce", "packed")),
+        Map.entry("winter", Set.of("snow", "ice", "spruce", "packed")),
+        Map.entry("nether", Set.of("nether", "blackstone", "basalt", "crimson", "warped", "magma", "soul")),
+        Map.entry("ocean", Set.of("prismarine", "sea", "sand", "water", "coral")),
+        Map.entry("underwater", Set.of("prismarine", "sea", "sand", "water", "coral", "glass")),
+        Map.entry("japanese", Set.of("cherry", "bamboo", "dark", "spruce", "lantern", "paper")),
+        Map.entry("jungle", Set.of("jungle", "moss", "vine", "leaves", "mossy")),
+        Map.entry("garden", Set.of("leaves", "flower", "grass", "potted", "poppy", "moss", "hedge")),
+        Map.entry("tree", Set.of("log", "leaves", "wood")),
+        Map.entry("farm", Set.of("hay", "farmland", "fence", "gate", "barrel", "composter")),
+        Map.entry("library", Set.of("bookshelf", "lectern", "carpet", "lantern")),
+        Map.entry("interior", Set.of("carpet", "bookshelf", "painting", "frame", "pot", "bed")),
+        Map.entry("ruin", Set.of("mossy", "cracked", "cobblestone", "vine")),
+        Map.entry("dark", Set.of("deepslate", "blackstone", "dark", "obsidian")),
+        Map.entry("spooky", Set.of("deepslate", "blackstone", "dark", "cobweb", "soul", "lantern"))
+    );
+
+    // Materials most structures need whatever the prompt says, most needed first
+    private static final List<String> BASIC = List.of(
+        "OAK_PLANKS", "STONE", "COBBLESTONE", "GLASS", "STONE_BRICKS", "OAK_LOG", "GLASS_PANE", "OAK_STAIRS",
+        "OAK_SLAB", "OAK_DOOR", "TORCH", "BRICKS", "SPRUCE_PLANKS", "LANTERN", "OAK_FENCE"
+    );
+
+    // Last name words that make a material a partial-block variant of another
+    private static final Set<String> SHAPE_WORDS = Set.of(
+        "stairs", "slab", "wall", "fence", "gate", "door", "trapdoor", "button", "plate", "sign", "pane"
+    );
+
+    // Name words too generic to count as the prompt naming a material
+    private static final Set<String> NOISE_WORDS = Set.of("block", "of", "on", "the", "wall", "a");
+
+    /**
+     * How well a material fits a prompt; compared in field order
+     * @param basicRank position in the basic list, or its size for other materials
+     * @param shape whether this is a stair, slab or other partial variant
+     * @param unmatched name words neither named nor themed
+     */
+    record Rank(int score, int basicRank, boolean shape, int unmatched) {}
+
+    private static final Comparator<Rank> BEST_FIRST = Comparator.comparingInt(Rank::score).reversed()
+        .thenComparingInt(Rank::basicRank)
+        .thenComparing(Rank::shape)
+        .thenComparingInt(Rank::unmatched);
+
+    private final int maxMaterials;
+
+    /**
+     * @param maxMaterials largest palette sent whole; larger ones are cut to this many. 0 disables selection
+     */
+    public PaletteSelector(int maxMaterials) {
+        this.maxMaterials = maxMaterials;
+    }
+
+    /**
+     * Palette for a prompt, in ID order
+     */
+    public List<Material> select(String prompt, Set<Material> allowed) {
+        Comparator<Material> byName = Comparator.comparing(Enum::name);
+        if (maxMaterials <= 0 || allowed.size() <= maxMaterials) {
+            return allowed.stream().sorted(byName).toList();
+        }
+
+        Set<String> words = words(prompt);
+        Set<String> themed = new HashSet<>();
+        for (String word : words) {
+            Set<String> theme = THEMES.get(word);
+            if (theme != null) themed.addAll(theme);
+        }
+
+        Map<Material, Rank> ranks = new HashMap<>();
+        for (Material material : allowed) {
+            ranks.put(material, rank(material, words, themed));
+        }
+        List<Material> ranked = new ArrayList<>(allowed);
+        ranked.sort(Comparator.<Material, Rank>comparing(ranks::get, BEST_FIRST).thenComparing(byName));
+        return List.copyOf(ranked.subList(0, maxMaterials));
+    }
+
+    /**
+     * Relevance of a material, from the words of its name. Each named word counts once and a
+     * theme counts once, however many name words it covers, so a variant's extra words add nothing.
+     */
+    static Rank rank(Material material, Set<String> promptWords, Set<String> themed) {
+        String[] parts = material.name().toLowerCase(Locale.ROOT).split("_");
+        Set<String> named = new HashSet<>();
+        boolean inTheme = false;
+        int unmatched = 0;
+        for (String part : parts) {
+            boolean hit = false;
+            if (!NOISE_WORDS.contains(part) && (promptWords.contains(part) || promptWords.contains(singular(part)))) {
+                named.add(singular(part));
+                hit = true;
+            }
+            if (themed.contains(part)) {
+                inTheme = true;
+                hit = true;
+            }
+            if (!hit) unmatched++;
+        }
+        int basicRank = BASIC.indexOf(material.name());
+        int score = named.size() * NAMED + (inTheme ? THEMED : 0) + (basicRank >= 0 ? BASIC_SCORE : 0);
+        boolean shape = parts.length > 1 && SHAPE_WORDS.contains(parts[parts.length - 1]);
+        return new Rank(score, basicRank >= 0 ? basicRank : BASIC.size(), shape, unmatched);
+    }
+
+    /**
+     * Lower-case words of a prompt, with plurals also added in singular form
+     */
+    static Set<String> words(String prompt) {
+        Set<String> words = new HashSet<>();
+        for (String word : prompt.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            words.add(word);
+            words.add(singular(word));
+        }
+        return words;
+    }
+
+    private static String singular(String word) {
+        return word.endsWith("s") && word.length() > 3 ? word.substring(0, word.length() - 1) : word;
+    }
+}
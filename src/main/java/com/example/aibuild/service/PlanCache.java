@@ -0,0 +1,241 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.model.BuildPlan;
+import com.example.aibuild.model.CachedPlan;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of validated plans keyed by generation identity.
+ * The memory tier is an LRU bounded by total stored blocks and is the only tier read
+ * from the main thread; the optional persistent store survives restarts, may be shared
+ * between servers, and is promoted into memory on a hit. With a similarity index,
+ * a miss can still be served by the plan of a near-duplicate earlier prompt.
+ */
+public class PlanCache {
+    private final LinkedHashMap<PlanGenerator.GenerationKey, CachedPlan> memory =
+        new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxMemoryBlocks;
+    private final PlanStore store;
+    private final SimilarPromptIndex similar;
+    private long memoryBlocks;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong similarHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxMemoryBlocks total blocks kept in memory before the least recently used plans are evicted
+     * @param store persistent tier, or null for memory only
+     */
+    public PlanCache(long maxMemoryBlocks, PlanStore store) {
+        this(maxMemoryBlocks, store, null);
+    }
+
+    /**
+     * @param similar near-duplicate prompt index, or null for exact matches only
+     */
+    public PlanCache(long maxMemoryBlocks, PlanStore store, SimilarPromptIndex similar) {
+        this.maxMemoryBlocks = maxMemoryBlocks;
+        this.store = store;
+        this.similar = similar;
+    }
+
+    /**
+     * Memory and disk hits count exact matches from each tier; similar hits count near-duplicate matches from either tier
+     */
+    public record Stats(long memoryHits, long diskHits, long similarHits, long misses, long evictions,
+                        int entries, long blocks) {
+        public long hits() {
+            return memoryHits + diskHits + similarHits;
+        }
+    }
+
+    /**
+     * A cached plan and the normalized prompt it was generated for
+     * @param similarity 1 for an exact key match, otherwise the shingle similarity of the prompts
+     */
+    public record Hit(BuildPlan plan, String prompt, double similarity) {
+        public boolean isExact() {
+            return similarity >= 1.0 && plan != null;
+        }
+    }
+
+    /**
+     * Memory-only lookup; cheap enough for the main thread
+     */
+    public BuildPlan getFromMemory(PlanGenerator.GenerationKey key) {
+        CachedPlan cached = fromMemory(key);
+        if (cached == null) return null;
+        memoryHits.incrementAndGet();
+        return cached.toBuildPlan();
+    }
+
+    /**
+     * Look up memory, then the store. Store reads block; call from an async thread.
+     */
+    public BuildPlan get(PlanGenerator.GenerationKey key) {
+        BuildPlan plan = getFromMemory(key);
+        if (plan != null) return plan;
+
+        CachedPlan cached = fromStore(key);
+        if (cached != null) {
+            diskHits.incrementAndGet();
+            return cached.toBuildPlan();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Exact or near-duplicate lookup in memory only; cheap enough for the main thread
+     */
+    public Hit lookupInMemory(PlanGenerator.GenerationKey key) {
+        BuildPlan plan = getFromMemory(key);
+        if (plan != null) return new Hit(plan, key.prompt(), 1.0);
+
+        SimilarPromptIndex.Match match = similar != null ? similar.findSimilar(key) : null;
+        if (match == null) return null;
+        CachedPlan cached = fromMemory(match.key());
+        if (cached == null) return null;
+        similarHits.incrementAndGet();
+        return new Hit(cached.toBuildPlan(), match.key().prompt(), match.similarity());
+    }
+
+    /**
+     * Exact lookup in memory and the store, then near-duplicate lookup. Store reads block; call from an async thread.
+     */
+    public Hit lookup(PlanGenerator.GenerationKey key) {
+        BuildPlan plan = getFromMemory(key);
+        if (plan != null) return new Hit(plan, key.prompt(), 1.0);
+        CachedPlan cached = fromStore(key);
+        if (cached != null) {
+            diskHits.incrementAndGet();
+            return new Hit(cached.toBuildPlan(), key.prompt(), 1.0);
+        }
+
+        SimilarPromptIndex.Match match = similar != null ? similar.findSimilar(key) : null;
+        if (match != null) {
+            cached = fromMemory(match.key());
+            if (cached == null) cached = fromStore(match.key());
+            if (cached != null) {
+                similarHits.incrementAndGet();
+                return new Hit(cached.toBuildPlan(), match.key().prompt(), match.similarity());
+            }
+            // Dropped from both tiers; stop suggesting it
+            similar.removeIf(match.key()::equals);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store a plan that already passed validation. Writes to the store; call from an async thread.
+     */
+    public void put(PlanGenerator.GenerationKey key, BuildPlan plan) {
+        CachedPlan cached = CachedPlan.from(key.prompt(), plan);
+        putMemory(key, cached);
+        if (similar != null) similar.add(key);
+        if (store != null) {
+            evictions.addAndGet(store.save(storageKey(key), cached));
+        }
+    }
+
+    /**
+     * Drop every entry for a prompt, whatever model, palette or block limit it was generated with
+     * @return number of entries removed across both tiers
+     */
+    public int invalidate(String prompt) {
+        String normalized = PlanGenerator.normalizePrompt(prompt);
+        int removed = 0;
+        synchronized (memory) {
+            Iterator<Map.Entry<PlanGenerator.GenerationKey, CachedPlan>> it = memory.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<PlanGenerator.GenerationKey, CachedPlan> entry = it.next();
+                if (entry.getKey().prompt().equals(normalized)) {
+                    memoryBlocks -= entry.getValue().blockCount();
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        if (store != null) {
+            removed += store.removePrompt(normalized);
+        }
+        if (similar != null) similar.removeIf(key -> key.prompt().equals(normalized));
+        return removed;
+    }
+
+    /**
+     * Remove everything from both tiers
+     * @return number of entries removed
+     */
+    public int clear() {
+        int removed;
+        synchronized (memory) {
+            removed = memory.size();
+            memory.clear();
+            memoryBlocks = 0;
+        }
+        if (store != null) {
+            removed += store.clear();
+        }
+        if (similar != null) similar.clear();
+        return removed;
+    }
+
+    /**
+     * Release the persistent store
+     */
+    public void close() {
+        if (store != null) store.close();
+    }
+
+    public Stats stats() {
+        synchronized (memory) {
+            return new Stats(memoryHits.get(), diskHits.get(), similarHits.get(), misses.get(), evictions.get(),
+                memory.size(), memoryBlocks);
+        }
+    }
+
+    private CachedPlan fromMemory(PlanGenerator.GenerationKey key) {
+        synchronized (memory) {
+            return memory.get(key);
+        }
+    }
+
+    private CachedPlan fromStore(PlanGenerator.GenerationKey key) {
+        if (store == null) return null;
+        CachedPlan cached = store.load(storageKey(key));
+        if (cached == null || cached.blocks == null || cached.palette == null) return null;
+        putMemory(key, cached);
+        if (similar != null) similar.add(key);
+        return cached;
+    }
+
+    private void putMemory(PlanGenerator.GenerationKey key, CachedPlan cached) {
+        if (cached.blockCount() > maxMemoryBlocks) return;
+        synchronized (memory) {
+            CachedPlan previous = memory.put(key, cached);
+            if (previous != null) memoryBlocks -= previous.blockCount();
+            memoryBlocks += cached.blockCount();
+
+            Iterator<CachedPlan> it = memory.values().iterator();
+            while (memoryBlocks > maxMemoryBlocks && it.hasNext()) {
+                CachedPlan eldest = it.next();
+                memoryBlocks -= eldest.blockCount();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    static String storageKey(PlanGenerator.GenerationKey key) {
+        return key.prompt() + '\u0000' + key.model() + '\u0000' + key.palette() + '\u0000' + key.maxBlocks();
+    }
+}
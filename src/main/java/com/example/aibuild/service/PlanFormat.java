@@ -0,0 +1,68 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.model.LayerGrid;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Encoding the model is asked to write a plan in. Tuples cost roughly ten tokens per entry but
+ * nothing for air, and boxes cover walls and floors in one entry; the layer grid costs about a
+ * character per cell of the bounding box whatever is in it. The grid only pays off when most of
+ * the box is filled with irregular shapes, which is guessed from the prompt.
+ */
+public enum PlanFormat {
+    TUPLES,
+    LAYERS;
+
+    // Solid or organic subjects that boxes describe poorly
+    private static final Set<String> DENSE_SUBJECTS = Set.of(
+        "statue", "sculpture", "bust", "head", "pyramid", "mountain", "hill", "terrain", "rock", "boulder",
+        "cliff", "island", "mound", "dune", "volcano", "pixel", "mosaic", "sphere", "ball", "blob",
+        "monolith", "iceberg", "glacier", "landscape", "planet", "heart", "skull", "dragon", "animal"
+    );
+    // Hollow or frame-like subjects, mostly walls around air
+    private static final Set<String> SPARSE_SUBJECTS = Set.of(
+        "house", "tower", "castle", "bridge", "hut", "cabin", "room", "hall", "church", "temple", "shop",
+        "barn", "frame", "fence", "gate", "arch", "path", "road", "lamp", "pole", "railing", "shelter",
+        "greenhouse", "lighthouse", "skyscraper", "building", "palace", "mansion", "cottage", "station"
+    );
+    private static final Set<String> SOLID_WORDS = Set.of("solid", "filled", "dense", "massive", "organic", "detailed");
+    private static final Set<String> HOLLOW_WORDS = Set.of("hollow", "empty", "open", "outline", "skeleton", "interior", "rooms", "floors");
+
+    /**
+     * Heuristic share in [0, 1] of the bounding box the prompt's structure will fill
+     */
+    public static double expectedFill(String prompt) {
+        String[] words = prompt.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        double fill = 0.15;
+        boolean dense = false;
+        boolean sparse = false;
+        boolean solid = false;
+        boolean hollow = false;
+        for (String word : words) {
+            String singular = word.endsWith("s") && word.length() > 3 ? word.substring(0, word.length() - 1) : word;
+            dense |= DENSE_SUBJECTS.contains(word) || DENSE_SUBJECTS.contains(singular);
+            sparse |= SPARSE_SUBJECTS.contains(word) || SPARSE_SUBJECTS.contains(singular);
+            solid |= SOLID_WORDS.contains(word);
+            hollow |= HOLLOW_WORDS.contains(word);
+        }
+        if (dense) fill += 0.3;
+        if (sparse) fill -= 0.1;
+        if (solid) fill += 0.2;
+        if (hollow) fill -= 0.15;
+        return Math.max(0, Math.min(1, fill));
+    }
+
+    /**
+     * Format for a prompt
+     * @param mode "tuples", "layers" or "auto"
+     * @param minFill expected fill at which "auto" picks the layer grid
+     * @param paletteSize materials in the palette; the grid needs a character for each
+     */
+    public static PlanFormat choose(String mode, String prompt, double minFill, int paletteSize) {
+        if (paletteSize > LayerGrid.maxPalette() || "tuples".equalsIgnoreCase(mode)) return TUPLES;
+        if ("layers".equalsIgnoreCase(mode)) return LAYERS;
+        return expectedFill(prompt) >= minFill ? LAYERS : TUPLES;
+    }
+}
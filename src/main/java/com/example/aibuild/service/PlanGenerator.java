@@ -0,0 +1,623 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.BuildValidator;
+import com.example.aibuild.OpenAIClient;
+import com.example.aibuild.exception.BuildValidationException;
+import com.example.aibuild.exception.OpenAIException;
+import com.example.aibuild.exception.PlanParseException;
+import com.example.aibuild.model.BlockSpec;
+import com.example.aibuild.model.BuildPlan;
+import com.example.aibuild.util.ApiKeyPool;
+import com.example.aibuild.util.DebugTimer;
+import com.example.aibuild.util.TokenBudget;
+import com.example.aibuild.util.VirtualThreads;
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Produces parsed, validated build plans from prompts.
+ * Concurrent identical requests (same normalized prompt, model, palette and block limit)
+ * are coalesced: one upstream stream and one parsed plan are shared, and every caller
+ * still places the result at its own origin and facing.
+ * Validated plans are cached, so repeating a prompt skips the API call entirely.
+ * Each prompt is routed to a model by {@link ModelRouter}; an invalid plan from the small
+ * model, including one the streaming guard rejected, is retried on the large one as long as
+ * none of its blocks reached a caller that places them.
+ * Large builds can be fanned out: an outline call splits the build into sections, which
+ * stream concurrently and are merged into one plan before validation.
+ * Generation is asynchronous end to end; only disk lookups and budget waits block,
+ * and those run on virtual threads where the runtime has them.
+ */
+public class PlanGenerator {
+    private final OpenAIClient client;
+    private final PlanParser planParser = new PlanParser();
+    private final OutlinePlanner outlinePlanner = new OutlinePlanner();
+    private final ConfigService config;
+    private final Logger logger;
+    private final Map<GenerationKey, SharedGeneration> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final PlanCache cache;
+    private final ModelRouter router;
+    // Short blocking steps: disk cache reads and writes, waiting for API budget
+    private final Executor blocking = VirtualThreads.newExecutor("AIBuild-plan-io");
+
+    public PlanGenerator(OpenAIClient client, ConfigService config, Logger logger) {
+        this(client, config, logger, null);
+    }
+
+    /**
+     * @param cache plan cache, or null to always call the API
+     */
+    public PlanGenerator(OpenAIClient client, ConfigService config, Logger logger, PlanCache cache) {
+        this(client, config, logger, cache, new ModelRouter(client.getModel()));
+    }
+
+    /**
+     * @param cache plan cache, or null to always call the API
+     * @param router picks the model per prompt
+     */
+    public PlanGenerator(OpenAIClient client, ConfigService config, Logger logger, PlanCache cache, ModelRouter router) {
+        this.client = client;
+        this.config = config;
+        this.logger = logger;
+        this.cache = cache;
+        this.router = router;
+    }
+
+    /**
+     * Identity of a generation request for coalescing and caching
+     */
+    public record GenerationKey(String prompt, String model, String palette, int maxBlocks) {
+        public static GenerationKey of(String prompt, String model, String[] materialNames, int maxBlocks) {
+            return new GenerationKey(normalizePrompt(prompt), model, String.join(",", materialNames), maxBlocks);
+        }
+    }
+
+    /**
+     * Block sink that only watches blocks arrive, e.g. to count them, and places nothing.
+     * Blocks seen only by watchers do not stop an invalid plan from being escalated.
+     */
+    @FunctionalInterface
+    public interface BlockWatcher extends IncrementalPlanParser.BlockSink {
+    }
+
+    /**
+     * Lower-case, drop punctuation and collapse whitespace so trivially different prompts share a key
+     */
+    public static String normalizePrompt(String prompt) {
+        return prompt.toLowerCase(Locale.ROOT)
+            .replaceAll("[^\\p{L}\\p{N}]+", " ")
+            .trim();
+    }
+
+    /**
+     * Memory-only cache lookup including near-duplicate prompts, safe to call on the main thread
+     * @return a cached plan the caller may modify, or null
+     */
+    public PlanCache.Hit getCached(String prompt, int maxBlocks, Set<Material> allowed) {
+        if (cache == null) return null;
+        return cache.lookupInMemory(keyFor(prompt, maxBlocks, allowed));
+    }
+
+    /**
+     * Player-facing note for a cache hit, naming the earlier prompt when it was only similar
+     */
+    public static String describeHit(PlanCache.Hit hit) {
+        if (hit.isExact()) return "⚡ Using cached plan";
+        return String.format("⚡ Reusing plan for similar earlier prompt \"%s\" (%d%% match)",
+            hit.prompt(), Math.round(hit.similarity() * 100));
+    }
+
+    public PlanCache getCache() {
+        return cache;
+    }
+
+    public ApiKeyPool getKeyPool() {
+        return client.getKeyPool();
+    }
+
+    public OpenAIClient.TtftStats getTtftStats() {
+        return client.getTtftStats();
+    }
+
+    public List<ModelRouter.ModelStats> getModelStats() {
+        return router.getStats();
+    }
+
+    private GenerationKey keyFor(String prompt, int maxBlocks, Set<Material> allowed) {
+        return keyFor(prompt, maxBlocks, client.materialNames(prompt, allowed));
+    }
+
+    // Keyed by the routed model, so a plan is only reused for the tier that would produce it
+    private GenerationKey keyFor(String prompt, int maxBlocks, String[] materialNames) {
+        return GenerationKey.of(prompt, router.route(prompt, maxBlocks).model(), materialNames, maxBlocks);
+    }
+
+    /**
+     * Generate a plan, joining an identical in-flight generation if there is one.
+     * Blocks until the plan is ready; call from an async thread.
+     * @see #generateAsync
+     */
+    public BuildPlan generate(
+            String prompt,
+            int maxBlocks,
+            Set<Material> allowed,
+            Consumer<String> onProgress,
+            IncrementalPlanParser.BlockSink onBlock
+    ) throws OpenAIException, PlanParseException, BuildValidationException {
+        return await(generateAsync(prompt, maxBlocks, allowed, onProgress, onBlock));
+    }
+
+    /**
+     * Generate a plan without blocking the caller, joining an identical in-flight generation
+     * if there is one. The future fails with OpenAIException, PlanParseException or
+     * BuildValidationException. Cancelling it detaches this caller; the upstream stream is
+     * cancelled once no caller is left waiting for it.
+     * @param onProgress receives progress messages for this caller
+     * @param onBlock receives validated blocks while they stream (replayed for late joiners), may be null;
+     *                pass a {@link BlockWatcher} if it does not place them
+     * @return the plan; callers must not modify it, since it may be shared with joined callers
+     */
+    public CompletableFuture<BuildPlan> generateAsync(
+            String prompt,
+            int maxBlocks,
+            Set<Material> allowed,
+            Consumer<String> onProgress,
+            IncrementalPlanParser.BlockSink onBlock
+    ) {
+        // The palette may be a prompt-specific subset; these are the names its IDs refer to
+        String[] materialNames = client.materialNames(prompt, allowed);
+        GenerationKey key = keyFor(prompt, maxBlocks, materialNames);
+
+        if (cache == null) {
+            return join(key, prompt, maxBlocks, allowed, materialNames, onProgress, onBlock);
+        }
+        return CompletableFuture.supplyAsync(() -> cache.lookup(key), blocking).thenCompose(hit -> {
+            if (hit == null) return join(key, prompt, maxBlocks, allowed, materialNames, onProgress, onBlock);
+            onProgress.accept(describeHit(hit));
+            return CompletableFuture.completedFuture(hit.plan());
+        });
+    }
+
+    private CompletableFuture<BuildPlan> join(
+            GenerationKey key,
+            String prompt,
+            int maxBlocks,
+            Set<Material> allowed,
+            String[] materialNames,
+            Consumer<String> onProgress,
+            IncrementalPlanParser.BlockSink onBlock
+    ) {
+        SharedGeneration created = new SharedGeneration();
+        SharedGeneration shared = inFlight.putIfAbsent(key, created);
+        if (shared != null) {
+            coalesced.incrementAndGet();
+            onProgress.accept("⚒ Joining an identical build already in progress...");
+            return shared.subscribe(onProgress, onBlock);
+        }
+
+        CompletableFuture<BuildPlan> mine = created.subscribe(onProgress, onBlock);
+        generateUncoalesced(key.model(), prompt, maxBlocks, allowed, materialNames, created).whenComplete((plan, error) -> {
+            if (error != null) {
+                inFlight.remove(key, created);
+                created.result.completeExceptionally(unwrap(error));
+                return;
+            }
+            // A plan cut down for budget is not the answer to the full request
+            if (cache == null || created.budgetLimited) {
+                inFlight.remove(key, created);
+                created.result.complete(plan);
+                return;
+            }
+            // Cache before completing, so a repeat of the prompt right after this one is a hit
+            blocking.execute(() -> {
+                try {
+                    cache.put(key, plan);
+                } finally {
+                    inFlight.remove(key, created);
+                    created.result.complete(plan);
+                }
+            });
+        });
+        return mine;
+    }
+
+    /**
+     * Wait for an async generation, rethrowing its failure as-is
+     */
+    static BuildPlan await(CompletableFuture<BuildPlan> future)
+            throws OpenAIException, PlanParseException, BuildValidationException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new OpenAIException("Interrupted while waiting for generation", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof OpenAIException oe) throw oe;
+            if (cause instanceof PlanParseException pe) throw pe;
+            if (cause instanceof BuildValidationException ve) throw ve;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Strip the CompletionException wrapper that dependent futures add around a failure
+     */
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Number of requests that joined another in-flight generation
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    private CompletableFuture<BuildPlan> generateUncoalesced(
+            String model,
+            String prompt,
+            int maxBlocks,
+            Set<Material> allowed,
+            String[] materialNames,
+            SharedGeneration shared
+    ) {
+        boolean debugEnabled = config.isDebugLoggingEnabled();
+        TokenBudget budget = client.getTokenBudget();
+
+        CompletableFuture<TokenBudget.Grant> granted = budget == null
+            ? CompletableFuture.completedFuture(null)
+            : CompletableFuture.supplyAsync(() -> acquireBudget(budget, prompt, maxBlocks, allowed, shared), blocking);
+
+        return granted.thenCompose(grant -> {
+            if (shared.isAbandoned()) {
+                if (budget != null) budget.release(grant);
+                throw new CancellationException("Generation cancelled");
+            }
+            int requestBlocks = grant != null ? grant.maxBlocks() : maxBlocks;
+            CompletableFuture<BuildPlan> plan = fansOut(requestBlocks)
+                ? fanOut(model, prompt, requestBlocks, maxBlocks, allowed, materialNames, shared, debugEnabled)
+                : attempt(model, prompt, requestBlocks, maxBlocks, allowed, materialNames, shared, debugEnabled);
+            return plan.whenComplete((result, error) -> {
+                if (budget != null) budget.release(grant);
+            });
+        });
+    }
+
+    private boolean fansOut(int requestBlocks) {
+        return config.isFanOutEnabled() && requestBlocks >= config.getFanOutMinBlocks();
+    }
+
+    /**
+     * Outline first, then every section as its own concurrent stream. Falls back to a single
+     * plan when the outline is unusable or has fewer than two sections.
+     */
+    private CompletableFuture<BuildPlan> fanOut(
+            String model,
+            String prompt,
+            int requestBlocks,
+            int maxBlocks,
+            Set<Material> allowed,
+            String[] materialNames,
+            SharedGeneration shared,
+            boolean debugEnabled
+    ) {
+        int maxSections = config.getFanOutMaxSections();
+        DebugTimer outlineTimer = DebugTimer.start(logger, debugEnabled, "Outline call (" + model + ")");
+        CompletableFuture<String> outlineCall = client.generateOutlineJsonAsync(model, prompt, maxSections, shared::progress);
+        shared.upstream(outlineCall);
+        return outlineCall.thenCompose(json -> {
+            outlineTimer.stop();
+            OutlinePlanner.Outline outline;
+            try {
+                outline = outlinePlanner.parse(json, maxSections);
+            } catch (PlanParseException e) {
+                outline = null;
+            }
+            if (outline == null || outline.sections().size() < 2 || shared.isAbandoned()) {
+                if (debugEnabled) logger.info("Outline not usable for fan-out, generating as one plan");
+                return attempt(model, prompt, requestBlocks, maxBlocks, allowed, materialNames, shared, debugEnabled);
+            }
+            return sections(model, prompt, outline, requestBlocks, maxBlocks, allowed, shared, debugEnabled);
+        });
+    }
+
+    private CompletableFuture<BuildPlan> sections(
+            String model,
+            String prompt,
+            OutlinePlanner.Outline outline,
+            int requestBlocks,
+            int maxBlocks,
+            Set<Material> allowed,
+            SharedGeneration shared,
+            boolean debugEnabled
+    ) {
+        List<OutlinePlanner.Section> sections = outline.sections();
+        int[] shares = outlinePlanner.blockShares(outline, requestBlocks);
+        shared.progress("⚒ Building " + sections.size() + " sections in parallel...");
+        DebugTimer sectionsTimer = DebugTimer.start(logger, debugEnabled, "Section generation");
+        long startedAt = System.nanoTime();
+        router.recordRequest(model);
+
+        List<CompletableFuture<String>> streams = new ArrayList<>();
+        List<CompletableFuture<BuildPlan>> plans = new ArrayList<>();
+        for (int i = 0; i < sections.size(); i++) {
+            OutlinePlanner.Section section = sections.get(i);
+            String sectionPrompt = outlinePlanner.sectionPrompt(prompt, outline, section);
+            // Each section is numbered by the palette chosen for its own prompt
+            String[] sectionNames = client.materialNames(sectionPrompt, allowed);
+            CompletableFuture<String> stream = client.generateBuildPlanJsonAsync(
+                    model,
+                    sectionPrompt,
+                    shares[i],
+                    allowed,
+                    shared::progress,
+                    block -> {
+                        BlockSpec placed = outlinePlanner.place(block, section);
+                        if (placed != null) shared.emit(placed);
+                    }
+            );
+            shared.upstream(stream);
+            streams.add(stream);
+            plans.add(stream.thenApply(json -> {
+                try {
+                    BuildPlan plan = planParser.parse(json, sectionNames);
+                    if (plan.blocks == null) throw new PlanParseException("Section \"" + section.name() + "\" has no blocks", json);
+                    return plan;
+                } catch (PlanParseException e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        }
+        // One failed section fails the build; stop paying for the others
+        plans.forEach(plan -> plan.whenComplete((result, error) -> {
+            if (error != null) streams.forEach(stream -> stream.cancel(true));
+        }));
+
+        return CompletableFuture.allOf(plans.toArray(new CompletableFuture<?>[0])).handle((ignored, error) -> {
+            if (error != null) {
+                Throwable cause = unwrap(error);
+                boolean rejected = cause instanceof OpenAIException e && e.isPlanRejected();
+                if (cause instanceof PlanParseException || rejected) router.recordInvalid(model, false);
+                else if (!(cause instanceof CancellationException)) router.recordError(model);
+                throw new CompletionException(cause);
+            }
+            sectionsTimer.stop(sections.size() + " sections");
+            BuildPlan merged = outlinePlanner.merge(outline, plans.stream().map(CompletableFuture::join).toList());
+            try {
+                validate(merged, "", maxBlocks, debugEnabled);
+            } catch (PlanParseException | BuildValidationException e) {
+                router.recordInvalid(model, false);
+                throw new CompletionException(e);
+            }
+            router.recordSuccess(model, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            return merged;
+        });
+    }
+
+    /**
+     * Stream and validate a plan from one model, escalating an invalid plan if the router allows it
+     */
+    private CompletableFuture<BuildPlan> attempt(
+            String model,
+            String prompt,
+            int requestBlocks,
+            int maxBlocks,
+            Set<Material> allowed,
+            String[] materialNames,
+            SharedGeneration shared,
+            boolean debugEnabled
+    ) {
+        DebugTimer apiTimer = DebugTimer.start(logger, debugEnabled, "OpenAI API call (" + model + ")");
+        long startedAt = System.nanoTime();
+        router.recordRequest(model);
+        CompletableFuture<String> stream = client.generateBuildPlanJsonAsync(
+                model,
+                prompt,
+                requestBlocks,
+                allowed,
+                shared::progress,
+                shared::emit
+        );
+        shared.upstream(stream);
+        return stream.handle((json, error) -> {
+            if (error != null) {
+                Throwable cause = unwrap(error);
+                // The streaming guard stops a plan that is over the limit, out of bounds or truncated: invalid output
+                if (cause instanceof OpenAIException e && e.isPlanRejected()) {
+                    return escalateOrFail(model, e, prompt, requestBlocks, maxBlocks, allowed, materialNames, shared, debugEnabled);
+                }
+                if (!(cause instanceof CancellationException)) router.recordError(model);
+                throw new CompletionException(cause);
+            }
+            apiTimer.stop();
+            try {
+                BuildPlan plan = parseAndValidate(json, maxBlocks, materialNames, debugEnabled);
+                router.recordSuccess(model, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                return CompletableFuture.completedFuture(plan);
+            } catch (PlanParseException | BuildValidationException e) {
+                return escalateOrFail(model, e, prompt, requestBlocks, maxBlocks, allowed, materialNames, shared, debugEnabled);
+            }
+        }).thenCompose(plan -> plan);
+    }
+
+    /**
+     * Record an invalid plan and retry it on the escalation model if no caller has placed any of its blocks
+     */
+    private CompletableFuture<BuildPlan> escalateOrFail(
+            String model,
+            Exception invalid,
+            String prompt,
+            int requestBlocks,
+            int maxBlocks,
+            Set<Material> allowed,
+            String[] materialNames,
+            SharedGeneration shared,
+            boolean debugEnabled
+    ) {
+        String fallback = router.escalationFor(model);
+        // Blocks a caller has placed would be overlapped by a second plan
+        boolean escalate = fallback != null && shared.discardUnplaced() && !shared.isAbandoned();
+        router.recordInvalid(model, escalate);
+        if (!escalate) return CompletableFuture.failedFuture(invalid);
+        logger.info("Plan from " + model + " was invalid (" + invalid.getMessage() + "), escalating to " + fallback);
+        shared.progress("⚒ Refining the design with a larger model...");
+        return attempt(fallback, prompt, requestBlocks, maxBlocks, allowed, materialNames, shared, debugEnabled);
+    }
+
+    private TokenBudget.Grant acquireBudget(
+            TokenBudget budget,
+            String prompt,
+            int maxBlocks,
+            Set<Material> allowed,
+            SharedGeneration shared
+    ) {
+        TokenBudget.Grant grant;
+        try {
+            // Reserve for every request the generation will send, not just one
+            grant = budget.acquire(maxBlocks, blocks -> fansOut(blocks)
+                ? client.estimateFanOutTokenCost(prompt, blocks, allowed, config.getFanOutMaxSections())
+                : client.estimateTokenCost(prompt, blocks, allowed), shared::progress);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(new OpenAIException("Interrupted while waiting for API budget", e));
+        }
+        if (grant.maxBlocks() < maxBlocks) {
+            shared.budgetLimited = true;
+            shared.progress("⚠ API budget is low - limiting this build to " + grant.maxBlocks() + " blocks");
+        }
+        return grant;
+    }
+
+    private BuildPlan parseAndValidate(String json, int maxBlocks, String[] materialNames, boolean debugEnabled)
+            throws PlanParseException, BuildValidationException {
+        DebugTimer parseTimer = DebugTimer.start(logger, debugEnabled, "JSON parsing");
+        BuildPlan plan = planParser.parse(json, materialNames);
+        parseTimer.stop();
+        validate(plan, json, maxBlocks, debugEnabled);
+        return plan;
+    }
+
+    private void validate(BuildPlan plan, String json, int maxBlocks, boolean debugEnabled)
+            throws PlanParseException, BuildValidationException {
+        if (plan == null || plan.blocks == null || plan.size == null) {
+            throw new PlanParseException("AI returned invalid plan structure", json);
+        }
+        if (plan.blocks.size() > maxBlocks) {
+            throw new BuildValidationException(String.format(
+                "Plan too large: %d blocks (max %d)", plan.blocks.size(), maxBlocks));
+        }
+
+        DebugTimer validationTimer = DebugTimer.start(logger, debugEnabled, "Plan validation");
+        BuildValidator.validate(plan);
+        validationTimer.stop();
+    }
+
+    /**
+     * Fan-out of one upstream generation to every subscribed caller
+     */
+    private static final class SharedGeneration {
+        private final CompletableFuture<BuildPlan> result = new CompletableFuture<>();
+        private final List<BlockSpec> emitted = new ArrayList<>();
+        private final List<Consumer<String>> progressListeners = new ArrayList<>();
+        private final List<IncrementalPlanParser.BlockSink> blockSinks = new ArrayList<>();
+        private volatile boolean budgetLimited;
+        private boolean placed;
+        private int subscribers;
+        private boolean abandoned;
+        private final List<CompletableFuture<?>> upstreams = new ArrayList<>();
+
+        /**
+         * @return this caller's view of the result; cancelling it only detaches this caller
+         */
+        synchronized CompletableFuture<BuildPlan> subscribe(Consumer<String> onProgress, IncrementalPlanParser.BlockSink onBlock) {
+            progressListeners.add(onProgress);
+            if (onBlock != null) {
+                // Late joiners catch up on blocks that already streamed
+                emitted.forEach(onBlock::accept);
+                blockSinks.add(onBlock);
+                placed |= !emitted.isEmpty() && !(onBlock instanceof BlockWatcher);
+            }
+            subscribers++;
+            CompletableFuture<BuildPlan> view = result.thenApply(plan -> plan);
+            view.whenComplete((plan, error) -> {
+                if (view.isCancelled()) unsubscribe(onProgress, onBlock);
+            });
+            return view;
+        }
+
+        private void unsubscribe(Consumer<String> onProgress, IncrementalPlanParser.BlockSink onBlock) {
+            List<CompletableFuture<?>> toCancel = null;
+            synchronized (this) {
+                progressListeners.remove(onProgress);
+                blockSinks.remove(onBlock);
+                if (--subscribers == 0 && !result.isDone()) {
+                    // Nobody is waiting any more; stop paying for the streams
+                    abandoned = true;
+                    toCancel = List.copyOf(upstreams);
+                }
+            }
+            if (toCancel != null) toCancel.forEach(stream -> stream.cancel(true));
+        }
+
+        /**
+         * Track a stream feeding this generation, so it is cancelled once nobody waits for it
+         */
+        void upstream(CompletableFuture<?> stream) {
+            boolean cancel;
+            synchronized (this) {
+                upstreams.removeIf(CompletableFuture::isDone);
+                upstreams.add(stream);
+                cancel = abandoned;
+            }
+            if (cancel) stream.cancel(true);
+        }
+
+        /**
+         * Forget streamed blocks so late joiners do not replay them, unless a caller has placed some
+         * @return whether no caller has placed a block, so the generation can start over
+         */
+        synchronized boolean discardUnplaced() {
+            if (placed) return false;
+            emitted.clear();
+            return true;
+        }
+
+        synchronized boolean isAbandoned() {
+            return abandoned;
+        }
+
+        synchronized void progress(String message) {
+            progressListeners.forEach(listener -> listener.accept(message));
+        }
+
+        synchronized void emit(BlockSpec block) {
+            emitted.add(block);
+            for (IncrementalPlanParser.BlockSink sink : blockSinks) {
+                sink.accept(block);
+                placed |= !(sink instanceof BlockWatcher);
+            }
+        }
+    }
+}
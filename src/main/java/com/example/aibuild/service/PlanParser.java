@@ -5,12 +5,18 @@ import com.google.gson.stream.JsonReader;
 import com.example.aibuild.exception.PlanParseException;
 import com.example.aibuild.model.BuildPlan;
 
+import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Service for parsing build plans from JSON
  */
 public class PlanParser {
+    private static final Set<String> SECTIONS = Set.of("l", "b", "g");
+
     private final Gson gson = new Gson();
     
     /**
@@ -34,8 +40,8 @@ public class PlanParser {
                 throw new PlanParseException("Failed to parse JSON - result is null", getSnippet(json));
             }
             
-            // Expand compact format if present
-            plan.expandCompact(materialNames);
+            // Expand compact format if present, in document order like the streaming parser
+            plan.expandCompact(materialNames, sectionOrder(json));
             
             return plan;
         } catch (Exception e) {
@@ -47,6 +53,22 @@ public class PlanParser {
         }
     }
     
+    /**
+     * Top-level plan sections in the order the document lists them
+     */
+    private static List<String> sectionOrder(String json) throws IOException {
+        List<String> order = new ArrayList<>();
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(true);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (SECTIONS.contains(name) && !order.contains(name)) order.add(name);
+            reader.skipValue();
+        }
+        return order;
+    }
+
     /**
      * Get a snippet of the JSON for error reporting (first 500 chars)
      */
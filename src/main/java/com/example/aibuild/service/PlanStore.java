@@ -0,0 +1,62 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.model.CachedPlan;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Predicate;
+
+/**
+ * Persistent tier of the plan cache. Implementations may be shared by several servers,
+ * so entries are addressed by a hash of the cache key and every operation must tolerate
+ * concurrent writers. Calls may block on I/O; never call them from the main thread.
+ */
+public interface PlanStore extends AutoCloseable {
+
+    /**
+     * @return the stored plan, or null if absent or unreadable
+     */
+    CachedPlan load(String key);
+
+    /**
+     * Store a plan, replacing any existing entry for the key
+     * @return number of entries evicted to stay within the size limit
+     */
+    int save(String key, CachedPlan plan);
+
+    /**
+     * Delete entries matching the predicate
+     * @return number of entries removed
+     */
+    int removeIf(Predicate<CachedPlan> predicate);
+
+    /**
+     * Delete every entry generated for a normalized prompt
+     * @return number of entries removed
+     */
+    default int removePrompt(String prompt) {
+        return removeIf(plan -> prompt.equals(plan.prompt));
+    }
+
+    default int clear() {
+        return removeIf(plan -> true);
+    }
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Content address of a cache key, identical on every server
+     */
+    static String address(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.aibuild.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Player-facing progress for every running generation, driven by one shared daemon thread.
+ * Status messages are queued and delivered on the next tick; a request that has been quiet
+ * for a while gets a progress line with the number of blocks received so far.
+ * Each tick hands everything it has to say to the main thread as a single task.
+ */
+public class ProgressTicker {
+    private static final String[] WAITING_FRAMES = {
+        "⚒ Gathering materials...",
+        "⚒ Crafting blocks...",
+        "⚒ Assembling structure..."
+    };
+
+    private final Consumer<Runnable> mainThread;
+    private final long tickMs;
+    private final long progressIntervalMs;
+    private final List<Handle> handles = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param mainThread runs a task on the server thread
+     * @param tickMs how often queued messages are flushed
+     * @param progressIntervalMs quiet time after which a request gets a progress line
+     */
+    public ProgressTicker(Consumer<Runnable> mainThread, long tickMs, long progressIntervalMs) {
+        this.mainThread = mainThread;
+        this.tickMs = tickMs;
+        this.progressIntervalMs = progressIntervalMs;
+    }
+
+    public synchronized void start() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "AIBuild-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (executor != null) executor.shutdownNow();
+        executor = null;
+        handles.clear();
+    }
+
+    /**
+     * Start reporting progress for one request
+     * @param sink delivers a message to the player, called on the main thread
+     */
+    public Handle track(Consumer<String> sink) {
+        Handle handle = new Handle(sink, System.nanoTime());
+        handles.add(handle);
+        return handle;
+    }
+
+    public int activeCount() {
+        return handles.size();
+    }
+
+    /**
+     * Collect due messages from every request and deliver them in one main-thread task
+     */
+    void tick() {
+        long now = System.nanoTime();
+        List<Runnable> deliveries = new ArrayList<>();
+        for (Handle handle : handles) {
+            List<String> messages = handle.drain(now);
+            if (!messages.isEmpty()) {
+                deliveries.add(() -> messages.forEach(handle.sink));
+            }
+            if (handle.isDone()) handles.remove(handle);
+        }
+        if (!deliveries.isEmpty()) {
+            mainThread.accept(() -> deliveries.forEach(Runnable::run));
+        }
+    }
+
+    /**
+     * Progress state of one request; its methods may be called from any thread
+     */
+    public final class Handle {
+        private final Consumer<String> sink;
+        private final List<String> pending = new ArrayList<>();
+        private long lastReportNanos;
+        private int blocks;
+        private int frame;
+        private boolean closed;
+
+        private Handle(Consumer<String> sink, long createdNanos) {
+            this.sink = sink;
+            this.lastReportNanos = createdNanos;
+        }
+
+        /**
+         * Queue a status message for the next tick
+         */
+        public synchronized void message(String message) {
+            if (!closed) pending.add(message);
+        }
+
+        /**
+         * Record that another block of the plan has arrived
+         */
+        public synchronized void onBlock() {
+            blocks++;
+        }
+
+        public synchronized int getBlocks() {
+            return blocks;
+        }
+
+        /**
+         * Stop progress lines; messages already queued are still delivered
+         */
+        public synchronized void close() {
+            closed = true;
+        }
+
+        /**
+         * Run a handler when a generation ends and close this handle only after it, so messages the
+         * handler sends, such as the failure reason, still reach the player
+         * @return the generation itself, so cancelling it still reaches the request
+         */
+        public <T> CompletableFuture<T> closeAfter(CompletableFuture<T> generation, BiConsumer<? super T, ? super Throwable> handler) {
+            generation.whenComplete(handler).whenComplete((result, error) -> close());
+            return generation;
+        }
+
+        private synchronized List<String> drain(long now) {
+            List<String> out = new ArrayList<>(pending);
+            pending.clear();
+            if (!out.isEmpty()) {
+                lastReportNanos = now;
+            } else if (!closed && TimeUnit.NANOSECONDS.toMillis(now - lastReportNanos) >= progressIntervalMs) {
+                lastReportNanos = now;
+                out.add(blocks == 0
+                    ? WAITING_FRAMES[frame++ % WAITING_FRAMES.length]
+                    : "⚒ Assembling structure... " + blocks + " blocks so far");
+            }
+            return out;
+        }
+
+        private synchronized boolean isDone() {
+            return closed && pending.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.BuildValidator;
+import com.example.aibuild.model.LayerGrid;
+import org.bukkit.Material;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds the system instructions once per (palette, block limit, format) and reuses them.
+ * A palette is numbered in the order given, or by name when given as a set.
+ * The text is ordered from most to least stable: the protocol and rules shared by every
+ * request, then the material ID table for the palette, then the block limit. Requests that
+ * share a palette therefore send a byte-identical prefix, which is what provider-side
+ * prompt caching matches on.
+ */
+public class PromptCompiler {
+    // Whole palettes come from config.yml, so only a handful are ever live
+    private static final int MAX_ENTRIES = 64;
+    // Per-prompt palette subsets, one per distinct subset; least recently used are dropped
+    private static final int MAX_SUBSET_ENTRIES = 256;
+
+    static final String STATIC_PREFIX =
+            "You generate Minecraft building plans as STRICT JSON only.\n" +
+            "OPTIMIZED COMPACT PROTOCOL (70% smaller):\n" +
+            "{\n" +
+            "  \"s\": [x, y, z],\n" +
+            "  \"b\": [[x,y,z,m], [x1,y1,z1,x2,y2,z2,m], [x1,y1,z1,x2,y2,z2,m,k], ...],\n" +
+            "  \"g\": [{\"mirror\": \"x\", \"repeat\": [dx,dy,dz,n], \"b\": [...]}, ...]\n" +
+            "}\n" +
+            "Where:\n" +
+            "- s = size [width, height, depth]\n" +
+            "- b = blocks and shapes, m is the material_id:\n" +
+            "  [x,y,z,m] one block\n" +
+            "  [x1,y1,z1,x2,y2,z2,m] solid box between two corners, inclusive (walls, floors, roofs)\n" +
+            "  [x1,y1,z1,x2,y2,z2,m,1] hollow box: only the six faces of that box\n" +
+            "  [x1,y1,z1,x2,y2,z2,m,2] straight line between two points (beams, railings, slopes)\n" +
+            "- g = optional groups of entries copied by operators, applied to each entry of the group's b:\n" +
+            "  repeat [dx,dy,dz,n]: n copies in total, each shifted by (dx,dy,dz) from the previous one\n" +
+            "  mirror: also place the reflection across the middle of s on each listed axis (\"x\", \"z\", \"xz\")\n" +
+            "  Write operators before the group's b. Both are optional; repeat is applied before mirror.\n" +
+            "Rules:\n" +
+            "- x in [0..s[0]-1], y in [0..s[1]-1], z in [0..s[2]-1]\n" +
+            "- Prefer boxes and lines over runs of single blocks\n" +
+            "- For symmetric structures write one half in a mirrored group; repeat windows, columns and posts\n" +
+            "- Later entries replace earlier ones, in the order written: list large boxes first, then windows and details\n" +
+            "- Include foundation blocks at y=0 where structure touches ground\n" +
+            "- Use material IDs only, from the table below\n" +
+            "- Output JSON only. No markdown, no commentary. Use compact format.\n";
+
+    static final String LAYER_PREFIX =
+            "You generate Minecraft building plans as STRICT JSON only.\n" +
+            "LAYER GRID PROTOCOL:\n" +
+            "{\n" +
+            "  \"s\": [x, y, z],\n" +
+            "  \"l\": [[\"row\", \"row\", ...], ...]\n" +
+            "}\n" +
+            "Where:\n" +
+            "- s = size [width, height, depth]\n" +
+            "- l = one array per layer, from y=0 upwards\n" +
+            "- each layer has s[2] strings, one per z from 0; each string has s[0] characters, one per x from 0\n" +
+            "- a character is the palette character of the block at that cell, or '.' for air\n" +
+            "Rules:\n" +
+            "- Every layer has exactly s[2] rows and every row exactly s[0] characters\n" +
+            "- Keep s tight around the structure: every cell costs output\n" +
+            "- Include foundation blocks at y=0 where structure touches ground\n" +
+            "- Use palette characters only, from the table below\n" +
+            "- Output JSON only. No markdown, no commentary.\n";
+
+    // Cells the layer grid may have per allowed block; keeps output within the tuple format's token allowance
+    static final int LAYER_CELLS_PER_BLOCK = 3;
+
+    static final String OUTLINE_PREFIX =
+            "You plan Minecraft buildings as STRICT JSON only. Do not list blocks; split the build into sections\n" +
+            "that will each be built separately.\n" +
+            "{\n" +
+            "  \"box\": [w, h, d],\n" +
+            "  \"parts\": [{\"name\": \"...\", \"at\": [x, y, z], \"size\": [w, h, d], \"desc\": \"...\"}, ...]\n" +
+            "}\n" +
+            "Where:\n" +
+            "- box = size of the whole structure, at most " + BuildValidator.MAX_DIMENSION + " per dimension\n" +
+            "- at = minimum corner of the section inside box; at + size must fit in box\n" +
+            "- Typical sections: foundation, walls per floor, roof, interior, towers, decoration\n" +
+            "- Sections should not overlap, except where they share a wall\n" +
+            "- desc = one short sentence on what the section contains and its materials\n" +
+            "- Output JSON only. No markdown, no commentary.\n";
+
+    /**
+     * Instructions ready to send
+     * @param materialNames palette in ID order; index i is material ID i. Shared, do not modify
+     * @param cacheKey identifies the palette prefix, for providers that route on a cache key
+     */
+    public record CompiledPrompt(String instructions, String[] materialNames, String cacheKey, int maxBlocks) {}
+
+    private record Palette(String[] materialNames, String table, String cacheKey) {}
+
+    private record Key(Set<Material> allowed, int maxBlocks, PlanFormat format) {}
+
+    private record PaletteKey(Set<Material> allowed, PlanFormat format) {}
+
+    private record SubsetKey(List<Material> palette, int maxBlocks, PlanFormat format) {}
+
+    private record SubsetPaletteKey(List<Material> palette, PlanFormat format) {}
+
+    private final Map<PaletteKey, Palette> palettes = new ConcurrentHashMap<>();
+    private final Map<Key, CompiledPrompt> compiled = new ConcurrentHashMap<>();
+    private final Map<Integer, CompiledPrompt> outlines = new ConcurrentHashMap<>();
+    // Kept apart so a stream of distinct prompts cannot push out the shared whole-palette entries
+    private final Map<SubsetPaletteKey, Palette> subsetPalettes = lru(MAX_SUBSET_ENTRIES);
+    private final Map<SubsetKey, CompiledPrompt> subsetCompiled = lru(MAX_SUBSET_ENTRIES);
+
+    public CompiledPrompt compile(Set<Material> allowed, int maxBlocks) {
+        return compile(allowed, maxBlocks, PlanFormat.TUPLES);
+    }
+
+    /**
+     * Instructions for the whole palette, numbered in name order
+     * @param format LAYERS needs a palette of at most {@link LayerGrid#maxPalette()} materials
+     */
+    public CompiledPrompt compile(Set<Material> allowed, int maxBlocks, PlanFormat format) {
+        Key key = new Key(allowed, maxBlocks, format);
+        CompiledPrompt prompt = compiled.get(key);
+        if (prompt != null) return prompt;
+
+        prompt = withLimits(palette(allowed, format), maxBlocks, format);
+        if (compiled.size() >= MAX_ENTRIES) compiled.clear();
+        compiled.put(new Key(Set.copyOf(allowed), maxBlocks, format), prompt);
+        return prompt;
+    }
+
+    /**
+     * Instructions for a palette numbered in the given order, e.g. one chosen by {@link PaletteSelector}
+     * @param format LAYERS needs a palette of at most {@link LayerGrid#maxPalette()} materials
+     */
+    public CompiledPrompt compile(List<Material> palette, int maxBlocks, PlanFormat format) {
+        SubsetKey key = new SubsetKey(palette, maxBlocks, format);
+        CompiledPrompt prompt = subsetCompiled.get(key);
+        if (prompt != null) return prompt;
+
+        prompt = withLimits(palette(palette, format), maxBlocks, format);
+        subsetCompiled.put(new SubsetKey(List.copyOf(palette), maxBlocks, format), prompt);
+        return prompt;
+    }
+
+    private static CompiledPrompt withLimits(Palette palette, int maxBlocks, PlanFormat format) {
+        String limits = format == PlanFormat.LAYERS
+            ? "- Non-'.' cells <= " + maxBlocks + "\n- s[0]*s[1]*s[2] <= " + (long) maxBlocks * LAYER_CELLS_PER_BLOCK + "\n"
+            : "- Total blocks after expanding shapes <= " + maxBlocks + "\n";
+        return new CompiledPrompt(palette.table + limits, palette.materialNames, palette.cacheKey, maxBlocks);
+    }
+
+    /**
+     * Instructions for the outline call of a fanned-out generation, which returns sections instead of blocks
+     */
+    public CompiledPrompt compileOutline(int maxSections) {
+        return outlines.computeIfAbsent(maxSections, n -> {
+            String text = OUTLINE_PREFIX + "- parts.length <= " + n + "\n";
+            return new CompiledPrompt(text, new String[0], "aibuild-" + sha256(OUTLINE_PREFIX).substring(0, 16), 0);
+        });
+    }
+
+    /**
+     * Sorted material names of a palette; shared, do not modify
+     */
+    public String[] materialNames(Set<Material> allowed) {
+        return palette(allowed, PlanFormat.TUPLES).materialNames;
+    }
+
+    /**
+     * Material names of a palette in ID order; shared, do not modify
+     */
+    public String[] materialNames(List<Material> palette) {
+        return palette(palette, PlanFormat.TUPLES).materialNames;
+    }
+
+    private Palette palette(Set<Material> allowed, PlanFormat format) {
+        PaletteKey key = new PaletteKey(allowed, format);
+        Palette palette = palettes.get(key);
+        if (palette != null) return palette;
+
+        palette = table(allowed.stream().map(Enum::name).sorted().toArray(String[]::new), format);
+        if (palettes.size() >= MAX_ENTRIES) palettes.clear();
+        palettes.put(new PaletteKey(Set.copyOf(allowed), format), palette);
+        return palette;
+    }
+
+    private Palette palette(List<Material> materials, PlanFormat format) {
+        SubsetPaletteKey key = new SubsetPaletteKey(materials, format);
+        Palette palette = subsetPalettes.get(key);
+        if (palette != null) return palette;
+
+        palette = table(materials.stream().map(Enum::name).toArray(String[]::new), format);
+        subsetPalettes.put(new SubsetPaletteKey(List.copyOf(materials), format), palette);
+        return palette;
+    }
+
+    private static Palette table(String[] names, PlanFormat format) {
+        StringBuilder table;
+        if (format == PlanFormat.LAYERS) {
+            if (names.length > LayerGrid.maxPalette()) {
+                throw new IllegalArgumentException("Palette too large for the layer grid: " + names.length + " materials");
+            }
+            table = new StringBuilder(LAYER_PREFIX);
+            table.append("Palette characters:\n");
+            for (int i = 0; i < names.length; i++) {
+                table.append(LayerGrid.symbol(i)).append('=').append(names[i]).append('\n');
+            }
+        } else {
+            table = new StringBuilder(STATIC_PREFIX);
+            table.append("Material IDs (integers 0-").append(names.length - 1).append("):\n");
+            for (int i = 0; i < names.length; i++) {
+                table.append(i).append('=').append(names[i]).append('\n');
+            }
+        }
+        String prefix = table.toString();
+        return new Palette(names, prefix, "aibuild-" + sha256(prefix).substring(0, 16));
+    }
+
+    private static <K, V> Map<K, V> lru(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
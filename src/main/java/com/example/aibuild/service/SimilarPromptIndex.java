@@ -0,0 +1,201 @@
+package com.example.aibuild.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Finds earlier prompts that are near-duplicates of a new one, so "small oak house"
+ * can reuse the plan generated for "a small house made of oak".
+ * Prompts are reduced to sets of word shingles, signed with MinHash and bucketed with
+ * LSH banding; candidates from matching buckets are confirmed with exact Jaccard similarity.
+ * Only prompts generated with the same model, palette and block limit are compared.
+ * Lookups touch a fixed number of buckets, so their cost does not grow with the index size.
+ */
+public class SimilarPromptIndex {
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int HASHES = BANDS * ROWS;
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "the", "of", "with", "made", "out", "from", "and", "in", "on", "to", "for",
+        "some", "me", "please", "build", "make", "create", "generate", "construct"
+    );
+
+    private final double threshold;
+    private final int maxEntries;
+    private final Map<PlanGenerator.GenerationKey, Entry> entries = new LinkedHashMap<>();
+    private final Map<Long, List<Entry>> buckets = new HashMap<>();
+
+    public record Match(PlanGenerator.GenerationKey key, double similarity) {}
+
+    private static final class Entry {
+        final PlanGenerator.GenerationKey key;
+        final Set<String> shingles;
+        final long[] bandKeys;
+
+        Entry(PlanGenerator.GenerationKey key, Set<String> shingles, long[] bandKeys) {
+            this.key = key;
+            this.shingles = shingles;
+            this.bandKeys = bandKeys;
+        }
+    }
+
+    /**
+     * @param threshold minimum Jaccard similarity of shingle sets for a match, in (0, 1]
+     * @param maxEntries oldest prompts are forgotten beyond this many
+     */
+    public SimilarPromptIndex(double threshold, int maxEntries) {
+        this.threshold = threshold;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Remember a prompt; keys with no meaningful words are ignored
+     */
+    public synchronized void add(PlanGenerator.GenerationKey key) {
+        Set<String> shingles = shingles(key.prompt());
+        if (shingles.isEmpty() || entries.containsKey(key)) return;
+
+        Entry entry = new Entry(key, shingles, bandKeys(key, shingles));
+        entries.put(key, entry);
+        for (long bandKey : entry.bandKeys) {
+            buckets.computeIfAbsent(bandKey, k -> new ArrayList<>(1)).add(entry);
+        }
+
+        if (entries.size() > maxEntries) {
+            Iterator<Entry> eldest = entries.values().iterator();
+            Entry evicted = eldest.next();
+            eldest.remove();
+            unbucket(evicted);
+        }
+    }
+
+    /**
+     * Best earlier prompt at or above the threshold, excluding the key itself
+     * @return the match, or null if none is similar enough
+     */
+    public synchronized Match findSimilar(PlanGenerator.GenerationKey key) {
+        Set<String> shingles = shingles(key.prompt());
+        if (shingles.isEmpty()) return null;
+
+        Set<Entry> seen = new HashSet<>();
+        Entry best = null;
+        double bestSimilarity = 0;
+        for (long bandKey : bandKeys(key, shingles)) {
+            List<Entry> bucket = buckets.get(bandKey);
+            if (bucket == null) continue;
+            for (Entry candidate : bucket) {
+                if (!seen.add(candidate) || candidate.key.equals(key) || !sameScope(candidate.key, key)) continue;
+                double similarity = jaccard(shingles, candidate.shingles);
+                if (similarity > bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = candidate;
+                }
+            }
+        }
+        return best != null && bestSimilarity >= threshold ? new Match(best.key, bestSimilarity) : null;
+    }
+
+    /**
+     * Forget every key matching the predicate
+     */
+    public synchronized void removeIf(Predicate<PlanGenerator.GenerationKey> predicate) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (predicate.test(entry.key)) {
+                it.remove();
+                unbucket(entry);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        buckets.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Word shingles of a normalized prompt: stop words dropped, simple plurals folded
+     */
+    static Set<String> shingles(String normalizedPrompt) {
+        Set<String> shingles = new HashSet<>();
+        for (String word : normalizedPrompt.split(" ")) {
+            if (word.isEmpty() || STOP_WORDS.contains(word)) continue;
+            if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+                word = word.substring(0, word.length() - 1);
+            }
+            shingles.add(word);
+        }
+        return shingles;
+    }
+
+    static double jaccard(Set<String> a, Set<String> b) {
+        int intersection = 0;
+        for (String s : a) {
+            if (b.contains(s)) intersection++;
+        }
+        int union = a.size() + b.size() - intersection;
+        return union == 0 ? 0 : (double) intersection / union;
+    }
+
+    private void unbucket(Entry entry) {
+        for (long bandKey : entry.bandKeys) {
+            List<Entry> bucket = buckets.get(bandKey);
+            if (bucket == null) continue;
+            bucket.remove(entry);
+            if (bucket.isEmpty()) buckets.remove(bandKey);
+        }
+    }
+
+    private static boolean sameScope(PlanGenerator.GenerationKey a, PlanGenerator.GenerationKey b) {
+        return a.maxBlocks() == b.maxBlocks() && a.model().equals(b.model()) && a.palette().equals(b.palette());
+    }
+
+    private static long[] bandKeys(PlanGenerator.GenerationKey key, Set<String> shingles) {
+        long[] signature = new long[HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String shingle : shingles) {
+            long base = mix(shingle.hashCode());
+            for (int i = 0; i < HASHES; i++) {
+                long h = mix(base + (i + 1) * 0x9E3779B97F4A7C15L);
+                if (h < signature[i]) signature[i] = h;
+            }
+        }
+
+        // Scope is folded into every band so other models or palettes never collide
+        long scope = mix(key.model().hashCode() * 31L + key.palette().hashCode()) ^ key.maxBlocks();
+        long[] bandKeys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long h = mix(scope + band);
+            for (int row = 0; row < ROWS; row++) {
+                h = mix(h ^ signature[band * ROWS + row]);
+            }
+            bandKeys[band] = h;
+        }
+        return bandKeys;
+    }
+
+    /**
+     * 64-bit finalizer from MurmurHash3
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.model.CachedPlan;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Plan store backed by an embedded SQLite database in WAL mode, so several server JVMs
+ * can read concurrently while one writes. Uses the SQLite JDBC driver bundled with the server.
+ * Rows are addressed by the same content hash as the directory store.
+ */
+public class SqlitePlanStore implements PlanStore {
+    private static final int BUSY_TIMEOUT_MS = 5000;
+
+    private final Connection connection;
+    private final int maxEntries;
+    private final Logger logger;
+    private final Gson gson = new Gson();
+
+    /**
+     * Open or create the database file
+     * @throws SQLException if the driver is missing or the file cannot be opened
+     */
+    public SqlitePlanStore(File file, int maxEntries, Logger logger) throws SQLException {
+        this.maxEntries = maxEntries;
+        this.logger = logger;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+
+        this.connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (Statement st = connection.createStatement()) {
+            st.execute("PRAGMA journal_mode=WAL");
+            st.execute("PRAGMA synchronous=NORMAL");
+            st.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MS);
+            st.execute("CREATE TABLE IF NOT EXISTS plans ("
+                + "id TEXT PRIMARY KEY, prompt TEXT NOT NULL, plan TEXT NOT NULL, last_used INTEGER NOT NULL)");
+            st.execute("CREATE INDEX IF NOT EXISTS plans_last_used ON plans(last_used)");
+            st.execute("CREATE INDEX IF NOT EXISTS plans_prompt ON plans(prompt)");
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized CachedPlan load(String key) {
+        String id = PlanStore.address(key);
+        try {
+            String json;
+            try (PreparedStatement ps = connection.prepareStatement("SELECT plan FROM plans WHERE id = ?")) {
+                ps.setString(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) return null;
+                    json = rs.getString(1);
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement("UPDATE plans SET last_used = ? WHERE id = ?")) {
+                ps.setLong(1, System.currentTimeMillis());
+                ps.setString(2, id);
+                ps.executeUpdate();
+            }
+            return gson.fromJson(json, CachedPlan.class);
+        } catch (Exception e) {
+            logger.warning("Failed to read cached plan: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized int save(String key, CachedPlan plan) {
+        try {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT OR REPLACE INTO plans (id, prompt, plan, last_used) VALUES (?, ?, ?, ?)")) {
+                ps.setString(1, PlanStore.address(key));
+                ps.setString(2, plan.prompt != null ? plan.prompt : "");
+                ps.setString(3, gson.toJson(plan));
+                ps.setLong(4, System.currentTimeMillis());
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM plans WHERE id IN (SELECT id FROM plans ORDER BY last_used DESC LIMIT -1 OFFSET ?)")) {
+                ps.setInt(1, maxEntries);
+                return ps.executeUpdate();
+            }
+        } catch (SQLException e) {
+            logger.warning("Failed to write cached plan: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public synchronized int removeIf(Predicate<CachedPlan> predicate) {
+        try {
+            List<String> ids = new ArrayList<>();
+            try (Statement st = connection.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT id, plan FROM plans")) {
+                while (rs.next()) {
+                    CachedPlan plan;
+                    try {
+                        plan = gson.fromJson(rs.getString(2), CachedPlan.class);
+                    } catch (Exception e) {
+                        plan = null;
+                    }
+                    // unreadable rows are removed as well
+                    if (plan == null || predicate.test(plan)) ids.add(rs.getString(1));
+                }
+            }
+            int removed = 0;
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM plans WHERE id = ?")) {
+                for (String id : ids) {
+                    ps.setString(1, id);
+                    removed += ps.executeUpdate();
+                }
+            }
+            return removed;
+        } catch (SQLException e) {
+            logger.warning("Failed to remove cached plans: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public synchronized int removePrompt(String prompt) {
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM plans WHERE prompt = ?")) {
+            ps.setString(1, prompt);
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            logger.warning("Failed to remove cached plans: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public synchronized int clear() {
+        try (Statement st = connection.createStatement()) {
+            return st.executeUpdate("DELETE FROM plans");
+        } catch (SQLException e) {
+            logger.warning("Failed to clear cached plans: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warning("Failed to close plan cache database: " + e.getMessage());
+        }
+    }
+}
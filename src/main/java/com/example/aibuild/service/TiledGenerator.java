@@ -0,0 +1,291 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.BuildValidator;
+import com.example.aibuild.model.BlockSpec;
+import com.example.aibuild.model.BuildPlan;
+import org.bukkit.Material;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Generates footprints larger than one plan allows by splitting them into a grid of tiles.
+ * Tiles run in diagonal waves: a tile starts once its x-1 and z-1 neighbours are done, so
+ * its prompt can describe the edges it has to join, and tiles on the same diagonal run in
+ * parallel. Every tile is a normal generation, validated on its own; its blocks are shifted
+ * to site coordinates and handed on, and only a short summary of its far edges is kept.
+ */
+public class TiledGenerator {
+    // Edge summaries go into prompts; keep them short
+    private static final int MAX_EDGE_CHARS = 400;
+
+    /**
+     * One cell of the grid; x and z are its minimum corner on the site
+     */
+    public record Tile(int col, int row, int x, int z, int width, int depth) {}
+
+    /**
+     * @param failed tiles whose generation failed; the rest of the site is still placed
+     */
+    public record Result(int tiles, int failed, int blocks) {}
+
+    private final PlanGenerator generator;
+    private final int tileSize;
+    private final int maxParallel;
+
+    /**
+     * @param tileSize largest tile edge, at most the validator's dimension limit
+     * @param maxParallel tiles generating at once
+     */
+    public TiledGenerator(PlanGenerator generator, int tileSize, int maxParallel) {
+        this.generator = generator;
+        this.tileSize = Math.max(8, Math.min(tileSize, BuildValidator.MAX_DIMENSION));
+        this.maxParallel = Math.max(1, maxParallel);
+    }
+
+    /**
+     * Split a footprint into a grid of near-equal tiles no larger than tileSize
+     * @return tiles in row-major order
+     */
+    public static List<Tile> split(int width, int depth, int tileSize) {
+        int cols = (width + tileSize - 1) / tileSize;
+        int rows = (depth + tileSize - 1) / tileSize;
+        List<Tile> tiles = new ArrayList<>(cols * rows);
+        for (int row = 0; row < rows; row++) {
+            int z = row * depth / rows;
+            int d = (row + 1) * depth / rows - z;
+            for (int col = 0; col < cols; col++) {
+                int x = col * width / cols;
+                int w = (col + 1) * width / cols - x;
+                tiles.add(new Tile(col, row, x, z, w, d));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Generate every tile of a width x depth site
+     * @param maxBlocksPerTile block limit of each tile's plan
+     * @param onProgress receives one line per finished tile
+     * @param onBlock receives validated blocks in site coordinates, tile by tile; called from async threads
+     * @return completes when every tile has finished; cancelling it stops the remaining tiles
+     */
+    public CompletableFuture<Result> generate(
+            String prompt,
+            int width,
+            int depth,
+            int maxBlocksPerTile,
+            Set<Material> allowed,
+            Consumer<String> onProgress,
+            IncrementalPlanParser.BlockSink onBlock
+    ) {
+        Job job = new Job(prompt, width, depth, split(width, depth, tileSize), maxBlocksPerTile, allowed, onProgress, onBlock);
+        job.start();
+        return job.result;
+    }
+
+    /**
+     * Request for one tile, including the edges already built on its x-1 and z-1 sides
+     */
+    static String tilePrompt(String prompt, int width, int depth, Tile tile, String westEdge, String northEdge) {
+        StringBuilder text = new StringBuilder();
+        text.append("Build one tile of a ").append(width).append('x').append(depth).append(" site: ").append(prompt).append('\n');
+        text.append(String.format("This tile covers x %d-%d, z %d-%d of the site. Use s = [%d, height, %d] and local coordinates.%n",
+            tile.x(), tile.x() + tile.width() - 1, tile.z(), tile.z() + tile.depth() - 1, tile.width(), tile.depth()));
+        text.append("Continue the structure seamlessly across tile edges.");
+        if (westEdge != null) text.append("\nThe x=0 edge must join the neighbouring tile, whose facing edge has ").append(westEdge);
+        if (northEdge != null) text.append("\nThe z=0 edge must join the neighbouring tile, whose facing edge has ").append(northEdge);
+        return text.toString();
+    }
+
+    /**
+     * Run-length summary of a plan's edge: the tallest block and its material along the
+     * x = width-1 column (alongX false) or the z = depth-1 row (alongX true)
+     */
+    static String edgeSummary(BuildPlan plan, Tile tile, boolean alongX) {
+        int length = alongX ? tile.width() : tile.depth();
+        int edge = alongX ? tile.depth() - 1 : tile.width() - 1;
+        int[] height = new int[length];
+        String[] material = new String[length];
+        Arrays.fill(height, -1);
+        for (BlockSpec block : plan.blocks) {
+            if ((alongX ? block.dz : block.dx) != edge) continue;
+            int at = alongX ? block.dx : block.dz;
+            if (at < 0 || at >= length || block.dy < height[at]) continue;
+            height[at] = block.dy;
+            material[at] = block.material;
+        }
+
+        String axis = alongX ? "x" : "z";
+        StringBuilder text = new StringBuilder();
+        int start = 0;
+        for (int i = 1; i <= length; i++) {
+            if (i < length && height[i] == height[start] && Objects.equals(material[i], material[start])) continue;
+            if (text.length() > 0) text.append("; ");
+            text.append(axis).append(' ').append(start).append(i - 1 > start ? "-" + (i - 1) : "").append(": ");
+            text.append(height[start] < 0 ? "empty" : "up to y=" + height[start] + " " + material[start]);
+            if (text.length() > MAX_EDGE_CHARS) {
+                text.setLength(MAX_EDGE_CHARS);
+                text.append("...");
+                break;
+            }
+            start = i;
+        }
+        return text.toString();
+    }
+
+    /**
+     * State of one tiled generation. Each edge summary has one reader and is dropped once it has started,
+     * so only the edges along the current wave are held.
+     */
+    private final class Job {
+        final CompletableFuture<Result> result = new CompletableFuture<>();
+        private final String prompt;
+        private final int width;
+        private final int depth;
+        private final Tile[][] grid;
+        private final int tileCount;
+        private final int maxBlocksPerTile;
+        private final Set<Material> allowed;
+        private final Consumer<String> onProgress;
+        private final IncrementalPlanParser.BlockSink onBlock;
+
+        private final boolean[][] done;
+        private final String[][] eastEdges;
+        private final String[][] southEdges;
+        private final Deque<Tile> ready = new ArrayDeque<>();
+        private final Set<CompletableFuture<BuildPlan>> running = new HashSet<>();
+        private int active;
+        private int finished;
+        private int failed;
+        private int blocks;
+
+        Job(String prompt, int width, int depth, List<Tile> tiles, int maxBlocksPerTile, Set<Material> allowed,
+            Consumer<String> onProgress, IncrementalPlanParser.BlockSink onBlock) {
+            this.prompt = prompt;
+            this.width = width;
+            this.depth = depth;
+            Tile last = tiles.get(tiles.size() - 1);
+            this.grid = new Tile[last.row() + 1][last.col() + 1];
+            tiles.forEach(tile -> grid[tile.row()][tile.col()] = tile);
+            this.tileCount = tiles.size();
+            this.maxBlocksPerTile = maxBlocksPerTile;
+            this.allowed = allowed;
+            this.onProgress = onProgress;
+            this.onBlock = onBlock;
+            this.done = new boolean[grid.length][grid[0].length];
+            this.eastEdges = new String[grid.length][grid[0].length];
+            this.southEdges = new String[grid.length][grid[0].length];
+            result.whenComplete((r, e) -> {
+                if (result.isCancelled()) cancelRunning();
+            });
+        }
+
+        void start() {
+            synchronized (this) {
+                ready.add(grid[0][0]);
+            }
+            pump();
+        }
+
+        private void pump() {
+            List<Tile> toStart = new ArrayList<>();
+            synchronized (this) {
+                if (result.isDone()) return;
+                while (active < maxParallel && !ready.isEmpty()) {
+                    toStart.add(ready.poll());
+                    active++;
+                }
+            }
+            toStart.forEach(this::launch);
+        }
+
+        private void launch(Tile tile) {
+            String west;
+            String north;
+            synchronized (this) {
+                if (tile.col() > 0) {
+                    west = eastEdges[tile.row()][tile.col() - 1];
+                    eastEdges[tile.row()][tile.col() - 1] = null;
+                } else {
+                    west = null;
+                }
+                if (tile.row() > 0) {
+                    north = southEdges[tile.row() - 1][tile.col()];
+                    southEdges[tile.row() - 1][tile.col()] = null;
+                } else {
+                    north = null;
+                }
+            }
+            // Tile plans are placed only once validated, so nothing is streamed per block
+            CompletableFuture<BuildPlan> generation = generator.generateAsync(
+                tilePrompt(prompt, width, depth, tile, west, north), maxBlocksPerTile, allowed, msg -> { }, null);
+            boolean cancelled;
+            synchronized (this) {
+                running.add(generation);
+                cancelled = result.isCancelled();
+            }
+            if (cancelled) generation.cancel(true);
+            generation.whenComplete((plan, error) -> finished(tile, generation, plan, error));
+        }
+
+        private void finished(Tile tile, CompletableFuture<BuildPlan> generation, BuildPlan plan, Throwable error) {
+            int placed = 0;
+            if (plan != null && !result.isDone()) {
+                for (BlockSpec block : plan.blocks) {
+                    if (block.dx >= tile.width() || block.dz >= tile.depth()) continue;
+                    onBlock.accept(new BlockSpec(block.dx + tile.x(), block.dy, block.dz + tile.z(), block.material));
+                    placed++;
+                }
+            }
+            String east = plan != null ? edgeSummary(plan, tile, false) : null;
+            String south = plan != null ? edgeSummary(plan, tile, true) : null;
+
+            Result complete = null;
+            int count;
+            synchronized (this) {
+                running.remove(generation);
+                active--;
+                int row = tile.row();
+                int col = tile.col();
+                done[row][col] = true;
+                if (col + 1 < grid[0].length) eastEdges[row][col] = east;
+                if (row + 1 < grid.length) southEdges[row][col] = south;
+                count = ++finished;
+                blocks += placed;
+                if (plan == null) failed++;
+                // A tile is ready once the tiles on its x-1 and z-1 sides are both done
+                if (col + 1 < grid[0].length && (row == 0 || done[row - 1][col + 1])) ready.add(grid[row][col + 1]);
+                if (row + 1 < grid.length && (col == 0 || done[row + 1][col - 1])) ready.add(grid[row + 1][col]);
+                if (finished == tileCount) complete = new Result(tileCount, failed, blocks);
+            }
+
+            String label = "Tile " + count + "/" + tileCount;
+            onProgress.accept(plan != null
+                ? "⚒ " + label + " done (" + placed + " blocks)"
+                : "⚠ " + label + " failed: " + PlanGenerator.unwrap(error).getMessage());
+            if (complete != null) {
+                result.complete(complete);
+            } else {
+                pump();
+            }
+        }
+
+        private void cancelRunning() {
+            List<CompletableFuture<BuildPlan>> toCancel;
+            synchronized (this) {
+                toCancel = List.copyOf(running);
+                ready.clear();
+            }
+            toCancel.forEach(generation -> generation.cancel(true));
+        }
+    }
+}
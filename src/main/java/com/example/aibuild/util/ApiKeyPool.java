@@ -0,0 +1,191 @@
+package com.example.aibuild.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Spreads requests over several API keys. Each request leases the key with the fewest
+ * requests in flight, preferring keys with fewer recent errors. A key answering 401/403
+ * or 429 is benched until its back-off expires, doubling on repeated failures, and is
+ * used again automatically afterwards. If every key is benched, the one that recovers
+ * soonest is used rather than failing outright.
+ */
+public class ApiKeyPool {
+    private static final long DEFAULT_RATE_LIMIT_BENCH_MS = 20_000;
+    private static final long AUTH_BENCH_MS = 600_000;
+    private static final long MAX_BENCH_MS = 600_000;
+    private static final double ERROR_DECAY = 0.8;
+
+    /**
+     * Per-key counters for diagnostics
+     * @param errorRate recent share of failed requests, decaying with each success
+     * @param benchedForMs remaining bench time, 0 if usable
+     */
+    public record KeyStats(String label, int inFlight, long requests, long errors, double errorRate,
+                           long benchedForMs, int lastStatus) {}
+
+    /**
+     * A key checked out for one HTTP request; release it exactly once when the request ends
+     */
+    public final class Lease {
+        private final Key key;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(Key key) {
+            this.key = key;
+        }
+
+        public String apiKey() {
+            return key.value;
+        }
+
+        /**
+         * Stable identifier that does not reveal the key
+         */
+        public String id() {
+            return key.label;
+        }
+    }
+
+    private static final class Key {
+        final String value;
+        final String label;
+        int inFlight;
+        long requests;
+        long errors;
+        double errorRate;
+        long benchedUntil;
+        long benchMs;
+        int lastStatus;
+
+        Key(String value) {
+            this.value = value;
+            this.label = mask(value);
+        }
+    }
+
+    private final List<Key> keys = new ArrayList<>();
+    private final LongSupplier clock;
+    private int next;
+
+    public ApiKeyPool(List<String> apiKeys) {
+        this(apiKeys, System::currentTimeMillis);
+    }
+
+    ApiKeyPool(List<String> apiKeys, LongSupplier clock) {
+        for (String value : apiKeys) {
+            if (value != null && !value.isBlank()) keys.add(new Key(value.trim()));
+        }
+        this.clock = clock;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Lease the least-loaded usable key
+     * @return the lease, or null if the pool has no keys
+     */
+    public synchronized Lease acquire() {
+        if (keys.isEmpty()) return null;
+        long now = clock.getAsLong();
+        Key best = null;
+        // Rotate the starting point so ties are spread evenly
+        for (int i = 0; i < keys.size(); i++) {
+            Key key = keys.get((next + i) % keys.size());
+            if (key.benchedUntil > now) continue;
+            if (best == null || key.inFlight < best.inFlight
+                    || (key.inFlight == best.inFlight && key.errorRate < best.errorRate)) {
+                best = key;
+            }
+        }
+        if (best == null) {
+            for (Key key : keys) {
+                if (best == null || key.benchedUntil < best.benchedUntil) best = key;
+            }
+        }
+        next = (keys.indexOf(best) + 1) % keys.size();
+        best.inFlight++;
+        best.requests++;
+        return new Lease(best);
+    }
+
+    /**
+     * Return a key after a successful request
+     */
+    public void releaseSuccess(Lease lease) {
+        release(lease, 200, -1);
+    }
+
+    /**
+     * Return a key whose request was cancelled before it produced a result
+     */
+    public void releaseCancelled(Lease lease) {
+        if (lease == null || !lease.released.compareAndSet(false, true)) return;
+        synchronized (this) {
+            lease.key.inFlight--;
+        }
+    }
+
+    /**
+     * Return a key after a request ended
+     * @param httpCode response status, or -1 for a network failure
+     * @param retryAfterMs server retry hint for a 429, or -1
+     */
+    public void release(Lease lease, int httpCode, long retryAfterMs) {
+        if (lease == null || !lease.released.compareAndSet(false, true)) return;
+        synchronized (this) {
+            Key key = lease.key;
+            key.inFlight--;
+            key.lastStatus = httpCode;
+            boolean failed = httpCode < 200 || httpCode >= 300;
+            key.errorRate = key.errorRate * ERROR_DECAY + (failed ? 1 - ERROR_DECAY : 0);
+            if (!failed) {
+                key.benchMs = 0;
+                return;
+            }
+            key.errors++;
+            if (httpCode == 401 || httpCode == 403) {
+                bench(key, AUTH_BENCH_MS);
+            } else if (httpCode == 429) {
+                long base = retryAfterMs > 0 ? retryAfterMs : DEFAULT_RATE_LIMIT_BENCH_MS;
+                bench(key, Math.max(base, key.benchMs * 2));
+            }
+        }
+    }
+
+    /**
+     * Number of keys not currently benched
+     */
+    public synchronized int availableCount() {
+        long now = clock.getAsLong();
+        int count = 0;
+        for (Key key : keys) {
+            if (key.benchedUntil <= now) count++;
+        }
+        return count;
+    }
+
+    public synchronized List<KeyStats> stats() {
+        long now = clock.getAsLong();
+        List<KeyStats> stats = new ArrayList<>(keys.size());
+        for (Key key : keys) {
+            stats.add(new KeyStats(key.label, key.inFlight, key.requests, key.errors, key.errorRate,
+                Math.max(0, key.benchedUntil - now), key.lastStatus));
+        }
+        return stats;
+    }
+
+    private void bench(Key key, long ms) {
+        key.benchMs = Math.min(MAX_BENCH_MS, ms);
+        key.benchedUntil = clock.getAsLong() + key.benchMs;
+    }
+
+    static String mask(String key) {
+        if (key.length() <= 8) return "****";
+        return key.substring(0, 3) + "..." + key.substring(key.length() - 4);
+    }
+}
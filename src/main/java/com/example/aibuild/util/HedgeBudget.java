@@ -0,0 +1,42 @@
+package com.example.aibuild.util;
+
+/**
+ * Caps the share of recent requests that may send a hedge, so hedging can
+ * never come close to doubling spend. Tracks a sliding window of requests.
+ */
+public class HedgeBudget {
+    private final double maxRate;
+    private final boolean[] hedged;
+    private long total;
+    private int hedgedInWindow;
+
+    public HedgeBudget(double maxRate, int window) {
+        this.maxRate = maxRate;
+        this.hedged = new boolean[window];
+    }
+
+    /**
+     * Record a new request
+     * @return the request's sequence number for a later {@link #tryAcquire(long)}
+     */
+    public synchronized long onRequest() {
+        int slot = (int) (total % hedged.length);
+        if (hedged[slot]) hedgedInWindow--;
+        hedged[slot] = false;
+        return total++;
+    }
+
+    /**
+     * Claim a hedge for the given request if the rate cap allows it
+     */
+    public synchronized boolean tryAcquire(long request) {
+        if (request < total - hedged.length) return false; // fell out of the window
+        int slot = (int) (request % hedged.length);
+        if (hedged[slot]) return false;
+        long inWindow = Math.min(total, hedged.length);
+        if (hedgedInWindow + 1 > maxRate * inWindow) return false;
+        hedged[slot] = true;
+        hedgedInWindow++;
+        return true;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.aibuild.util;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples and answers percentile queries.
+ * Thread-safe; sized for a few hundred samples so a sort per query is cheap.
+ */
+public class LatencyTracker {
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    public LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+    }
+
+    public synchronized int sampleCount() {
+        return count;
+    }
+
+    /**
+     * Nearest-rank percentile of the recorded samples
+     * @param percentile value in (0, 100]
+     * @return the percentile in milliseconds, or -1 if there are no samples
+     */
+    public synchronized long percentile(double percentile) {
+        if (count == 0) return -1;
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return sorted[Math.max(0, Math.min(count - 1, rank - 1))];
+    }
+}
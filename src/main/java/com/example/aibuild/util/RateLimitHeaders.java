@@ -0,0 +1,107 @@
+package com.example.aibuild.util;
+
+import okhttp3.Response;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads retry hints and quota state from OpenAI rate-limit response headers
+ */
+public final class RateLimitHeaders {
+    // OpenAI reset durations look like "20ms", "1s", "6m0s" or "1h2m3.5s"
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private RateLimitHeaders() { }
+
+    /**
+     * Quota state reported with a response; -1 marks a missing value
+     * @param resetTokensMs time until the token quota is fully replenished
+     * @param resetRequestsMs time until the request quota is fully replenished
+     */
+    public record Snapshot(long limitTokens, long remainingTokens, long resetTokensMs,
+                           long limitRequests, long remainingRequests, long resetRequestsMs) {}
+
+    /**
+     * @return the quota state, or null if the response carries no remaining-quota headers
+     */
+    public static Snapshot snapshot(Response response) {
+        if (response == null) return null;
+        long remainingTokens = parseLong(response.header("x-ratelimit-remaining-tokens"));
+        long remainingRequests = parseLong(response.header("x-ratelimit-remaining-requests"));
+        if (remainingTokens < 0 && remainingRequests < 0) return null;
+        return new Snapshot(
+            parseLong(response.header("x-ratelimit-limit-tokens")),
+            remainingTokens,
+            parseDurationMs(response.header("x-ratelimit-reset-tokens")),
+            parseLong(response.header("x-ratelimit-limit-requests")),
+            remainingRequests,
+            parseDurationMs(response.header("x-ratelimit-reset-requests"))
+        );
+    }
+
+    /**
+     * How long the server asked us to wait before retrying
+     * @return milliseconds, or -1 if the response carries no hint
+     */
+    public static long retryAfterMs(Response response) {
+        if (response == null) return -1;
+
+        long ms = parseLong(response.header("retry-after-ms"));
+        if (ms >= 0) return ms;
+
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter != null) {
+            long seconds = parseLong(retryAfter);
+            if (seconds >= 0) return seconds * 1000;
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (Exception ignored) {
+                // fall through to the reset headers
+            }
+        }
+
+        // Wait for whichever quota is exhausted, or the sooner reset if neither is
+        long resetRequests = parseDurationMs(response.header("x-ratelimit-reset-requests"));
+        long resetTokens = parseDurationMs(response.header("x-ratelimit-reset-tokens"));
+        if ("0".equals(response.header("x-ratelimit-remaining-requests")) && resetRequests >= 0) return resetRequests;
+        if ("0".equals(response.header("x-ratelimit-remaining-tokens")) && resetTokens >= 0) return resetTokens;
+        if (resetRequests >= 0 && resetTokens >= 0) return Math.min(resetRequests, resetTokens);
+        return Math.max(resetRequests, resetTokens);
+    }
+
+    /**
+     * Parse a Go-style duration such as "6m0s" or "250ms"
+     * @return milliseconds, or -1 if the value is missing or malformed
+     */
+    public static long parseDurationMs(String value) {
+        if (value == null || value.isBlank()) return -1;
+        Matcher m = DURATION_PART.matcher(value.trim());
+        double total = 0;
+        int end = 0;
+        while (m.find()) {
+            if (m.start() != end) return -1;
+            double amount = Double.parseDouble(m.group(1));
+            total += switch (m.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1000;
+                default -> amount;
+            };
+            end = m.end();
+        }
+        return end == value.trim().length() && end > 0 ? (long) Math.ceil(total) : -1;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) return -1;
+        try {
+            return (long) Math.ceil(Double.parseDouble(value.trim()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.aibuild.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with decorrelated jitter: each delay is drawn between the
+ * base delay and three times the previous one, capped at the maximum.
+ */
+public class RetryPolicy {
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final long deadlineMs;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs, long deadlineMs) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.deadlineMs = deadlineMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Total time budget for one request including all retries
+     */
+    public long getDeadlineMs() {
+        return deadlineMs;
+    }
+
+    /**
+     * Next backoff delay
+     * @param previousDelayMs the previous delay, or 0 before the first retry
+     * @param serverHintMs Retry-After style hint from the server, or -1
+     */
+    public long nextDelayMs(long previousDelayMs, long serverHintMs) {
+        long upper = Math.max(baseDelayMs, previousDelayMs * 3);
+        long jittered = Math.min(maxDelayMs, ThreadLocalRandom.current().nextLong(baseDelayMs, upper + 1));
+        // Never retry before the server says the limit has reset
+        return Math.max(jittered, serverHintMs);
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.aibuild.util;
+
+/**
+ * Pulls the text delta out of a stream event without building a JSON tree.
+ * Handles Responses API events and Chat Completions chunks.
+ * Most events in a stream are bookkeeping (response.created, output_item.added, ...);
+ * those are rejected by their SSE event name, or by the first "type" field in the payload,
+ * before anything is allocated. For delta events only the delta string itself is copied.
+ */
+public final class SseEventDecoder {
+    public static final String TEXT_DELTA = "response.output_text.delta";
+
+    private SseEventDecoder() { }
+
+    /**
+     * @param eventType the SSE "event:" name, or null if the server sent none
+     * @param data the event payload
+     * @return the delta text, or null if this is not a text delta event or the payload is malformed
+     */
+    public static String textDelta(String eventType, String data) {
+        if (eventType != null && !eventType.equals(TEXT_DELTA)) return null;
+        if (data == null) return null;
+        try {
+            return scan(data);
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            // Truncated payload or a broken unicode escape
+            return null;
+        }
+    }
+
+    /**
+     * Text of choices[0].delta.content in a Chat Completions stream chunk
+     * @return the delta text, or null if the chunk carries none or is malformed
+     */
+    public static String chatDelta(String data) {
+        if (data == null) return null;
+        try {
+            int choices = valueIndex(data, skipWhitespace(data, 0), "choices");
+            if (choices < 0 || data.charAt(choices) != '[') return null;
+            int delta = valueIndex(data, skipWhitespace(data, choices + 1), "delta");
+            if (delta < 0) return null;
+            int content = valueIndex(data, delta, "content");
+            // Role-only and finish chunks have no content, or a null one
+            if (content < 0 || data.charAt(content) != '"') return null;
+            return unescape(data, content + 1, stringEnd(data, content + 1));
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Index of the value stored under key in the object starting at objectStart, or -1
+     */
+    private static int valueIndex(String json, int objectStart, String key) {
+        if (json.charAt(objectStart) != '{') return -1;
+        int i = skipWhitespace(json, objectStart + 1);
+        while (json.charAt(i) != '}') {
+            if (json.charAt(i) != '"') return -1;
+            int keyStart = i + 1;
+            int keyEnd = stringEnd(json, keyStart);
+            i = skipWhitespace(json, keyEnd + 1);
+            if (json.charAt(i) != ':') return -1;
+            i = skipWhitespace(json, i + 1);
+            if (keyEquals(json, keyStart, keyEnd, key)) return i;
+            i = skipWhitespace(json, skipValue(json, i));
+            if (json.charAt(i) == ',') i = skipWhitespace(json, i + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Walk the top-level object once, remembering where the delta string sits
+     */
+    private static String scan(String json) {
+        int n = json.length();
+        int i = skipWhitespace(json, 0);
+        if (i >= n || json.charAt(i) != '{') return null;
+        i = skipWhitespace(json, i + 1);
+
+        boolean isDelta = false;
+        int deltaStart = -1;
+        int deltaEnd = -1;
+        while (i < n && json.charAt(i) != '}') {
+            if (json.charAt(i) != '"') return null;
+            int keyStart = i + 1;
+            int keyEnd = stringEnd(json, keyStart);
+            i = skipWhitespace(json, keyEnd + 1);
+            if (json.charAt(i) != ':') return null;
+            i = skipWhitespace(json, i + 1);
+
+            if (keyEquals(json, keyStart, keyEnd, "type")) {
+                if (json.charAt(i) != '"') return null;
+                int valueEnd = stringEnd(json, i + 1);
+                // Anything but a text delta is dropped as soon as its type is known
+                if (!keyEquals(json, i + 1, valueEnd, TEXT_DELTA)) return null;
+                isDelta = true;
+                i = valueEnd + 1;
+            } else if (keyEquals(json, keyStart, keyEnd, "delta") && json.charAt(i) == '"') {
+                deltaStart = i + 1;
+                deltaEnd = stringEnd(json, deltaStart);
+                i = deltaEnd + 1;
+            } else {
+                i = skipValue(json, i);
+            }
+
+            i = skipWhitespace(json, i);
+            if (i < n && json.charAt(i) == ',') i = skipWhitespace(json, i + 1);
+        }
+        if (!isDelta || deltaStart < 0) return null;
+        return unescape(json, deltaStart, deltaEnd);
+    }
+
+    private static boolean keyEquals(String json, int start, int end, String expected) {
+        return end - start == expected.length() && json.regionMatches(start, expected, 0, expected.length());
+    }
+
+    private static int skipWhitespace(String json, int i) {
+        while (i < json.length()) {
+            char c = json.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') break;
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Index of the closing quote of a string whose content starts at start
+     */
+    private static int stringEnd(String json, int start) {
+        int i = start;
+        while (true) {
+            char c = json.charAt(i);
+            if (c == '"') return i;
+            i += c == '\\' ? 2 : 1;
+        }
+    }
+
+    /**
+     * Index just past the value starting at i: a string, a nested object or array, or a literal
+     */
+    private static int skipValue(String json, int i) {
+        char c = json.charAt(i);
+        if (c == '"') return stringEnd(json, i + 1) + 1;
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            while (true) {
+                c = json.charAt(i);
+                if (c == '"') {
+                    i = stringEnd(json, i + 1);
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    if (--depth == 0) return i + 1;
+                }
+                i++;
+            }
+        }
+        while (i < json.length()) {
+            c = json.charAt(i);
+            if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\t' || c == '\n' || c == '\r') break;
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Decode a JSON string body; a plain substring when there are no escapes
+     */
+    private static String unescape(String json, int start, int end) {
+        int firstEscape = json.indexOf('\\', start);
+        if (firstEscape < 0 || firstEscape >= end) return json.substring(start, end);
+
+        StringBuilder out = new StringBuilder(end - start);
+        out.append(json, start, firstEscape);
+        for (int i = firstEscape; i < end; i++) {
+            char c = json.charAt(i);
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            char e = json.charAt(++i);
+            switch (e) {
+                case 'n' -> out.append('\n');
+                case 't' -> out.append('\t');
+                case 'r' -> out.append('\r');
+                case 'b' -> out.append('\b');
+                case 'f' -> out.append('\f');
+                case 'u' -> {
+                    out.append((char) Integer.parseInt(json, i + 1, i + 5, 16));
+                    i += 4;
+                }
+                default -> out.append(e);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.aibuild.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects stalled streams: no first delta within the time-to-first-token limit,
+ * or a gap between deltas longer than the inter-token limit.
+ * All watchdogs share one daemon thread; a limit of 0 or less disables that check.
+ */
+public class StreamWatchdog {
+    private static final long CHECK_INTERVAL_MS = 250;
+    private static final ScheduledExecutorService CHECKER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "AIBuild-stream-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Called once, from the watchdog thread, when a stream stalls
+     */
+    @FunctionalInterface
+    public interface StallHandler {
+        void onStall(boolean beforeFirstDelta, long waitedMs);
+    }
+
+    private final long firstTokenTimeoutMs;
+    private final long interTokenTimeoutMs;
+    private final StallHandler handler;
+    private final long startNanos = System.nanoTime();
+    private volatile long firstDeltaNanos;
+    private volatile long lastDeltaNanos;
+    private volatile boolean stopped;
+    private ScheduledFuture<?> task;
+
+    private StreamWatchdog(long firstTokenTimeoutMs, long interTokenTimeoutMs, StallHandler handler) {
+        this.firstTokenTimeoutMs = firstTokenTimeoutMs;
+        this.interTokenTimeoutMs = interTokenTimeoutMs;
+        this.handler = handler;
+    }
+
+    /**
+     * Start watching a stream; the clock for the first delta starts now
+     */
+    public static StreamWatchdog start(long firstTokenTimeoutMs, long interTokenTimeoutMs, StallHandler handler) {
+        StreamWatchdog watchdog = new StreamWatchdog(firstTokenTimeoutMs, interTokenTimeoutMs, handler);
+        if (firstTokenTimeoutMs > 0 || interTokenTimeoutMs > 0) {
+            watchdog.task = CHECKER.scheduleAtFixedRate(
+                watchdog::check, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        return watchdog;
+    }
+
+    /**
+     * Stop the shared watchdog thread so it does not outlive the plugin; call once on disable
+     */
+    public static void shutdown() {
+        CHECKER.shutdownNow();
+    }
+
+    /**
+     * Record that a delta arrived
+     */
+    public void onDelta() {
+        long now = System.nanoTime();
+        if (firstDeltaNanos == 0) firstDeltaNanos = now;
+        lastDeltaNanos = now;
+    }
+
+    /**
+     * Stop watching; safe to call more than once
+     */
+    public void stop() {
+        stopped = true;
+        if (task != null) task.cancel(false);
+    }
+
+    /**
+     * Time from start to the first delta, or -1 if none has arrived yet
+     */
+    public long timeToFirstDeltaMs() {
+        long first = firstDeltaNanos;
+        return first == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(first - startNanos);
+    }
+
+    private void check() {
+        if (stopped) return;
+        long now = System.nanoTime();
+        long last = lastDeltaNanos;
+        if (last == 0) {
+            long waited = TimeUnit.NANOSECONDS.toMillis(now - startNanos);
+            if (firstTokenTimeoutMs > 0 && waited >= firstTokenTimeoutMs) fire(true, waited);
+        } else {
+            long gap = TimeUnit.NANOSECONDS.toMillis(now - last);
+            if (interTokenTimeoutMs > 0 && gap >= interTokenTimeoutMs) fire(false, gap);
+        }
+    }
+
+    private void fire(boolean beforeFirstDelta, long waitedMs) {
+        stop();
+        handler.onStall(beforeFirstDelta, waitedMs);
+    }
+}
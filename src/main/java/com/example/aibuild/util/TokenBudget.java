@@ -0,0 +1,242 @@
+package com.example.aibuild.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Server-wide pacing against the provider's tokens- and requests-per-minute quota.
+ * Quota state comes from the x-ratelimit-* headers of recent responses and is refilled
+ * linearly towards the limit over the reported reset time. With several API keys each
+ * key's quota is tracked separately and the budget is their sum. Requests sent since the
+ * last snapshot are held as reservations, so concurrent requests do not spend the same budget.
+ * When the budget is short, requests get a smaller block limit or wait; they are never failed.
+ */
+public class TokenBudget {
+    private static final long MIN_POLL_MS = 50;
+    private static final long MAX_POLL_MS = 1000;
+    private static final String DEFAULT_KEY = "";
+
+    /**
+     * Estimated token cost of a request for a block limit; must not decrease as blocks grow
+     */
+    @FunctionalInterface
+    public interface CostEstimator {
+        long cost(int maxBlocks);
+    }
+
+    /**
+     * Budget reserved for one request; release it when the request ends
+     * @param maxBlocks block limit to request, possibly lower than asked for
+     */
+    public record Grant(long id, int maxBlocks, long cost, long acquiredAtNanos, long waitedMs) {}
+
+    private final double reserveFraction;
+    private final int minBlocks;
+    private final long maxWaitMs;
+    private final LongSupplier nanoClock;
+
+    private final Map<String, Quota> quotas = new HashMap<>();
+    private final Map<Long, Grant> outstanding = new HashMap<>();
+    private long nextId;
+
+    /**
+     * @param reserveFraction share of the token limit kept unused as a safety margin
+     * @param minBlocks smallest block limit a request is lowered to before it waits instead
+     * @param maxWaitMs longest a request waits for budget before going ahead anyway
+     */
+    public TokenBudget(double reserveFraction, int minBlocks, long maxWaitMs) {
+        this(reserveFraction, minBlocks, maxWaitMs, System::nanoTime);
+    }
+
+    TokenBudget(double reserveFraction, int minBlocks, long maxWaitMs, LongSupplier nanoClock) {
+        this.reserveFraction = reserveFraction;
+        this.minBlocks = minBlocks;
+        this.maxWaitMs = maxWaitMs;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Last reported quota of one key
+     */
+    private static final class Quota {
+        final RateLimitHeaders.Snapshot snapshot;
+        final long observedAtNanos;
+        final long sentAtNanos;
+
+        Quota(RateLimitHeaders.Snapshot snapshot, long observedAtNanos, long sentAtNanos) {
+            this.snapshot = snapshot;
+            this.observedAtNanos = observedAtNanos;
+            this.sentAtNanos = sentAtNanos;
+        }
+    }
+
+    /**
+     * Record quota state from a response when a single API key is used
+     */
+    public void onHeaders(RateLimitHeaders.Snapshot headers, long requestSentAtNanos) {
+        onHeaders(DEFAULT_KEY, headers, requestSentAtNanos);
+    }
+
+    /**
+     * Record quota state from a response
+     * @param keyId the API key the request used
+     * @param requestSentAtNanos when the request that produced the headers was sent;
+     *                           reservations made before then are assumed to be counted by the server
+     */
+    public synchronized void onHeaders(String keyId, RateLimitHeaders.Snapshot headers, long requestSentAtNanos) {
+        if (headers == null) return;
+        Quota previous = quotas.get(keyId);
+        // Responses can arrive out of order; keep the freshest view of the server's counters
+        if (previous != null && requestSentAtNanos < previous.sentAtNanos) return;
+        quotas.put(keyId, new Quota(headers, nanoClock.getAsLong(), requestSentAtNanos));
+    }
+
+    /**
+     * Reserve budget for a request, lowering its block limit or waiting if the budget is short.
+     * Blocks the calling thread while waiting; never call from the main thread.
+     * @param onWait told once if the request has to wait, may be null
+     */
+    public Grant acquire(int maxBlocks, CostEstimator estimator, Consumer<String> onWait) throws InterruptedException {
+        long start = nanoClock.getAsLong();
+        boolean notified = false;
+        while (true) {
+            long sleepMs;
+            synchronized (this) {
+                long now = nanoClock.getAsLong();
+                long waited = TimeUnit.NANOSECONDS.toMillis(now - start);
+                long available = availableTokens(now);
+                int floor = Math.min(minBlocks, maxBlocks);
+
+                if (availableRequests(now) >= 1) {
+                    long fullCost = estimator.cost(maxBlocks);
+                    if (fullCost <= available) return reserve(maxBlocks, fullCost, now, waited);
+                    int affordable = largestAffordable(floor, maxBlocks, available, estimator);
+                    if (affordable > 0) return reserve(affordable, estimator.cost(affordable), now, waited);
+                }
+                if (waited >= maxWaitMs) {
+                    // Out of patience: go ahead small and let retries absorb any 429
+                    return reserve(floor, estimator.cost(floor), now, waited);
+                }
+                sleepMs = Math.min(maxWaitMs - waited, waitEstimateMs(now, estimator.cost(floor) - available));
+            }
+            if (!notified && onWait != null) {
+                onWait.accept("⏳ Waiting for API budget (about " + Math.max(1, (sleepMs + 999) / 1000) + "s)...");
+                notified = true;
+            }
+            Thread.sleep(Math.max(1, sleepMs));
+        }
+    }
+
+    /**
+     * Whether an extra request of this cost (such as a hedge) fits without waiting
+     */
+    public synchronized boolean hasHeadroom(long cost) {
+        long now = nanoClock.getAsLong();
+        return availableRequests(now) >= 1 && availableTokens(now) >= cost;
+    }
+
+    public synchronized void release(Grant grant) {
+        if (grant != null) outstanding.remove(grant.id());
+    }
+
+    /**
+     * Tokens that can be spent now, or Long.MAX_VALUE before any quota headers were seen
+     */
+    public synchronized long availableTokens() {
+        return availableTokens(nanoClock.getAsLong());
+    }
+
+    private Grant reserve(int maxBlocks, long cost, long now, long waitedMs) {
+        Grant grant = new Grant(nextId++, maxBlocks, cost, now, waitedMs);
+        outstanding.put(grant.id(), grant);
+        return grant;
+    }
+
+    private int largestAffordable(int floor, int maxBlocks, long available, CostEstimator estimator) {
+        if (floor <= 0 || estimator.cost(floor) > available) return 0;
+        int lo = floor;
+        int hi = maxBlocks;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (estimator.cost(mid) <= available) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    private long availableTokens(long now) {
+        long total = 0;
+        boolean known = false;
+        for (Quota quota : quotas.values()) {
+            RateLimitHeaders.Snapshot q = quota.snapshot;
+            if (q.remainingTokens() < 0) continue;
+            known = true;
+            long margin = q.limitTokens() > 0 ? (long) (q.limitTokens() * reserveFraction) : 0;
+            total += refilled(now, quota, q.remainingTokens(), q.limitTokens(), q.resetTokensMs()) - margin;
+        }
+        if (!known) return Long.MAX_VALUE;
+        long pending = 0;
+        for (Grant grant : outstanding.values()) {
+            if (isPending(grant)) pending += grant.cost();
+        }
+        return total - pending;
+    }
+
+    private long availableRequests(long now) {
+        long total = 0;
+        boolean known = false;
+        for (Quota quota : quotas.values()) {
+            RateLimitHeaders.Snapshot q = quota.snapshot;
+            if (q.remainingRequests() < 0) continue;
+            known = true;
+            total += refilled(now, quota, q.remainingRequests(), q.limitRequests(), q.resetRequestsMs());
+        }
+        if (!known) return Long.MAX_VALUE;
+        return total - outstanding.values().stream().filter(this::isPending).count();
+    }
+
+    /**
+     * Whether a reservation may not be reflected in the reported quota yet.
+     * The key a request used is not known here, so compare against the stalest key.
+     */
+    private boolean isPending(Grant grant) {
+        long counted = Long.MAX_VALUE;
+        for (Quota quota : quotas.values()) {
+            counted = Math.min(counted, quota.sentAtNanos);
+        }
+        return grant.acquiredAtNanos() > counted;
+    }
+
+    /**
+     * The provider replenishes continuously, reaching the limit after the reset time
+     */
+    private static long refilled(long now, Quota quota, long remaining, long limit, long resetMs) {
+        if (limit <= remaining || resetMs <= 0) return remaining;
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(now - quota.observedAtNanos);
+        if (elapsedMs >= resetMs) return limit;
+        return remaining + (limit - remaining) * elapsedMs / resetMs;
+    }
+
+    /**
+     * Time until the refill covers the shortfall, polled within sane bounds
+     */
+    private long waitEstimateMs(long now, long shortfall) {
+        if (shortfall <= 0) {
+            // Tokens suffice; waiting on the request quota
+            return MAX_POLL_MS / 4;
+        }
+        double tokensPerMs = 0;
+        for (Quota quota : quotas.values()) {
+            RateLimitHeaders.Snapshot q = quota.snapshot;
+            long deficit = q.limitTokens() - q.remainingTokens();
+            if (q.limitTokens() > 0 && q.resetTokensMs() > 0 && deficit > 0) {
+                tokensPerMs += (double) deficit / q.resetTokensMs();
+            }
+        }
+        if (tokensPerMs <= 0) return MIN_POLL_MS;
+        long ms = (long) (shortfall / tokensPerMs);
+        return Math.max(MIN_POLL_MS, Math.min(MAX_POLL_MS, ms));
+    }
+}
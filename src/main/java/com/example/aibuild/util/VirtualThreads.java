@@ -0,0 +1,51 @@
+package com.example.aibuild.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for short blocking work (disk lookups, budget waits) that should not pin a
+ * platform thread per request. On Java 21+ every task gets a virtual thread; on older
+ * runtimes a cached pool of daemon threads is used instead. Looked up reflectively so
+ * the plugin still builds for and runs on Java 17 servers.
+ */
+public final class VirtualThreads {
+    private static final Method NEW_VIRTUAL_EXECUTOR = findVirtualExecutorFactory();
+
+    private VirtualThreads() { }
+
+    public static boolean isAvailable() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * @param name thread name prefix used when virtual threads are unavailable
+     */
+    public static ExecutorService newExecutor(String name) {
+        if (NEW_VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException ignored) {
+                // fall back to platform threads
+            }
+        }
+        AtomicInteger ids = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, name + "-" + ids.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static Method findVirtualExecutorFactory() {
+        try {
+            return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -70,6 +70,50 @@ class OpenAIExceptionTest {
         assertFalse(ex200.isRateLimited());
     }
 
+    @Test
+    void testIsPlanRejected() {
+        PlanParseException cause = new PlanParseException("Truncated plan", "");
+        OpenAIException rejected = new OpenAIException("Plan rejected", OpenAIException.Category.PLAN_REJECTED, cause);
+        assertTrue(rejected.isPlanRejected());
+        assertEquals(cause, rejected.getCause());
+        assertEquals(-1, rejected.getHttpCode());
+
+        OpenAIException general = new OpenAIException("Other error", 500);
+        assertFalse(general.isPlanRejected());
+        assertEquals(OpenAIException.Category.GENERAL, general.getCategory());
+    }
+
+    @Test
+    void testIsStalled() {
+        OpenAIException firstToken = new OpenAIException("no output", OpenAIException.Category.FIRST_TOKEN_TIMEOUT, null);
+        assertTrue(firstToken.isStalled());
+
+        OpenAIException midStream = new OpenAIException("gap", OpenAIException.Category.STREAM_STALLED, null);
+        assertTrue(midStream.isStalled());
+        assertFalse(midStream.isPlanRejected());
+
+        assertFalse(new OpenAIException("Other error").isStalled());
+    }
+
+    @Test
+    void testIsRetryable() {
+        assertTrue(new OpenAIException("Too many requests", 429).isRetryable());
+        assertTrue(new OpenAIException("Bad gateway", 502).isRetryable());
+        assertTrue(new OpenAIException("Network error", new IOException("reset")).isRetryable());
+        assertTrue(new OpenAIException("no output", OpenAIException.Category.FIRST_TOKEN_TIMEOUT, null).isRetryable());
+
+        assertFalse(new OpenAIException("Unauthorized", 401).isRetryable());
+        assertFalse(new OpenAIException("Bad request", 400).isRetryable());
+        assertFalse(new OpenAIException("{\"code\": \"insufficient_quota\"}", 429).isRetryable());
+        assertFalse(new OpenAIException("rejected", OpenAIException.Category.PLAN_REJECTED, null).isRetryable());
+    }
+
+    @Test
+    void testRetryAfter() {
+        assertEquals(-1, new OpenAIException("Server error", 500).getRetryAfterMs());
+        assertEquals(2000, new OpenAIException("Too many requests", 429, 2000).getRetryAfterMs());
+    }
+
     @Test
     void testExtendsIOException() {
         OpenAIException ex = new OpenAIException("Test");
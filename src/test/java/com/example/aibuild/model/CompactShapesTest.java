@@ -0,0 +1,88 @@
+package com.example.aibuild.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CompactShapes
+ */
+class CompactShapesTest {
+
+    private static final String[] MATERIALS = {"STONE", "OAK_PLANKS", "GLASS"};
+
+    @Test
+    void testSingleBlock() {
+        double[] tuple = {1, 2, 3, 2};
+
+        List<BlockSpec> blocks = CompactShapes.expand(tuple, 4, MATERIALS);
+
+        assertEquals(1, CompactShapes.blockCount(tuple, 4));
+        assertEquals(1, blocks.size());
+        assertEquals(3, blocks.get(0).dz);
+        assertEquals("GLASS", blocks.get(0).material);
+    }
+
+    @Test
+    void testFilledBoxWithCornersInAnyOrder() {
+        double[] wall = {19, 9, 0, 0, 0, 0, 0};
+
+        List<BlockSpec> blocks = CompactShapes.expand(wall, 7, MATERIALS);
+
+        assertEquals(200, CompactShapes.blockCount(wall, 7));
+        assertEquals(200, blocks.size());
+        assertEquals(200, distinct(blocks));
+        // Bottom layer comes first
+        assertEquals(0, blocks.get(0).dy);
+        assertEquals(9, blocks.get(199).dy);
+    }
+
+    @Test
+    void testHollowBoxKeepsOnlyFaces() {
+        double[] room = {0, 0, 0, 4, 4, 4, 1, 1};
+
+        List<BlockSpec> blocks = CompactShapes.expand(room, 8, MATERIALS);
+
+        assertEquals(125 - 27, CompactShapes.blockCount(room, 8));
+        assertEquals(125 - 27, blocks.size());
+        assertTrue(blocks.stream().noneMatch(b -> b.dx == 2 && b.dy == 2 && b.dz == 2));
+    }
+
+    @Test
+    void testThinHollowBoxIsSolid() {
+        double[] slab = {0, 0, 0, 4, 1, 4, 0, 1};
+
+        assertEquals(50, CompactShapes.blockCount(slab, 8));
+        assertEquals(50, CompactShapes.expand(slab, 8, MATERIALS).size());
+    }
+
+    @Test
+    void testDiagonalLine() {
+        double[] slope = {0, 0, 0, 6, 3, 0, 0, 2};
+
+        List<BlockSpec> blocks = CompactShapes.expand(slope, 8, MATERIALS);
+
+        assertEquals(7, CompactShapes.blockCount(slope, 8));
+        assertEquals(7, blocks.size());
+        assertEquals(0, blocks.get(0).dy);
+        assertEquals(6, blocks.get(6).dx);
+        assertEquals(3, blocks.get(6).dy);
+    }
+
+    @Test
+    void testMalformedTuplesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> CompactShapes.blockCount(new double[]{0, 0, 0, 1, 1}, 5));
+        assertThrows(IllegalArgumentException.class,
+            () -> CompactShapes.expand(new double[]{0, 0, 0, 1, 1, 1, 0, 9}, 8, MATERIALS));
+    }
+
+    private static int distinct(List<BlockSpec> blocks) {
+        Set<String> keys = new HashSet<>();
+        blocks.forEach(b -> keys.add(b.dx + "," + b.dy + "," + b.dz));
+        return keys.size();
+    }
+}
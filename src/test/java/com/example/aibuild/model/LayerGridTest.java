@@ -0,0 +1,49 @@
+package com.example.aibuild.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LayerGrid
+ */
+class LayerGridTest {
+
+    @Test
+    void testSymbolsCoverDigitsThenLetters() {
+        assertEquals('0', LayerGrid.symbol(0));
+        assertEquals('a', LayerGrid.symbol(10));
+        assertEquals('Z', LayerGrid.symbol(61));
+        assertEquals(62, LayerGrid.maxPalette());
+    }
+
+    @Test
+    void testExpandRowSkipsAir() {
+        String[] names = new String[12];
+        for (int i = 0; i < names.length; i++) names[i] = "M" + i;
+        List<BlockSpec> blocks = new ArrayList<>();
+
+        LayerGrid.expandRow("0.b 1", 4, 2, names, blocks);
+
+        assertEquals(3, LayerGrid.blockCount("0.b 1"));
+        assertEquals(3, blocks.size());
+        assertEquals("M11", blocks.get(1).material);
+        assertEquals(2, blocks.get(1).dx);
+        assertEquals(4, blocks.get(1).dy);
+        assertEquals(2, blocks.get(1).dz);
+        assertEquals(4, blocks.get(2).dx);
+    }
+
+    @Test
+    void testCharacterOutsidePaletteIsRejected() {
+        String[] names = {"STONE", "GLASS"};
+
+        assertThrows(IllegalArgumentException.class,
+            () -> LayerGrid.expandRow("012", 0, 0, names, new ArrayList<>()));
+        assertThrows(IllegalArgumentException.class,
+            () -> LayerGrid.expandRow("0#", 0, 0, names, new ArrayList<>()));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.aibuild.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PlanGroup
+ */
+class PlanGroupTest {
+
+    private static final String[] MATERIALS = {"STONE", "OAK_PLANKS", "GLASS"};
+    private static final Size SIZE = new Size(9, 6, 7);
+
+    @Test
+    void testRepeatStepsFromTheOriginal() {
+        PlanGroup group = new PlanGroup();
+        group.repeat = List.of(2, 0, 1, 4);
+
+        List<BlockSpec> blocks = group.expand(new double[]{1, 3, 0, 2}, 4, MATERIALS, SIZE);
+
+        assertEquals(4, group.repeats());
+        assertEquals(4, blocks.size());
+        assertEquals(7, blocks.get(3).dx);
+        assertEquals(3, blocks.get(3).dy);
+        assertEquals(3, blocks.get(3).dz);
+    }
+
+    @Test
+    void testMirrorAcrossPlanCentre() {
+        PlanGroup group = new PlanGroup();
+        group.mirror = "xz";
+
+        List<BlockSpec> blocks = group.expand(new double[]{1, 0, 2, 0}, 4, MATERIALS, SIZE);
+
+        assertEquals(4, blocks.size());
+        assertTrue(blocks.stream().anyMatch(b -> b.dx == 7 && b.dz == 2));
+        assertTrue(blocks.stream().anyMatch(b -> b.dx == 1 && b.dz == 4));
+        assertTrue(blocks.stream().anyMatch(b -> b.dx == 7 && b.dz == 4));
+    }
+
+    @Test
+    void testBlocksOnTheMirrorPlaneArePlacedOnce() {
+        PlanGroup group = new PlanGroup();
+        group.mirror = "x";
+
+        // x=4 is the middle of a 9-wide plan
+        List<BlockSpec> blocks = group.expand(new double[]{3, 0, 0, 5, 0, 0, 1}, 7, MATERIALS, SIZE);
+
+        assertEquals(5, blocks.size());
+        // The bound used for limits before expanding does not know about the overlap
+        assertEquals(6, group.maxBlockCount(new double[]{3, 0, 0, 5, 0, 0, 1}, 7));
+    }
+
+    @Test
+    void testRepeatIsAppliedBeforeMirror() {
+        PlanGroup group = new PlanGroup();
+        group.repeat = List.of(2, 0, 0, 2);
+        group.mirror = "x";
+
+        List<BlockSpec> blocks = group.expand(new double[]{0, 1, 0, 2}, 4, MATERIALS, SIZE);
+
+        assertEquals(4, blocks.size());
+        assertEquals(8, blocks.get(1).dx);
+        assertEquals(2, blocks.get(2).dx);
+        assertEquals(6, blocks.get(3).dx);
+    }
+
+    @Test
+    void testMalformedOperatorsAreRejected() {
+        PlanGroup shortRepeat = new PlanGroup();
+        shortRepeat.repeat = List.of(1, 0, 3);
+        assertThrows(IllegalArgumentException.class, shortRepeat::repeats);
+
+        PlanGroup zeroStride = new PlanGroup();
+        zeroStride.repeat = List.of(0, 0, 0, 5);
+        assertThrows(IllegalArgumentException.class, zeroStride::repeats);
+
+        PlanGroup twice = new PlanGroup();
+        twice.mirror = "xx";
+        assertThrows(IllegalArgumentException.class, twice::checkMirror);
+    }
+
+    @Test
+    void testMaxBlockCountSaturates() {
+        PlanGroup group = new PlanGroup();
+        group.repeat = List.of(1, 0, 0, Integer.MAX_VALUE);
+        group.mirror = "xyz";
+
+        long count = group.maxBlockCount(new double[]{0, 0, 0, 1e9, 1e9, 1e9, 0}, 7);
+
+        assertEquals(Long.MAX_VALUE, count);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.aibuild.provider;
+
+import com.example.aibuild.service.PromptCompiler;
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ModelProvider and its implementations
+ */
+class ModelProviderTest {
+
+    private static final PromptCompiler.CompiledPrompt PROMPT =
+            new PromptCompiler().compile(Set.of(Material.STONE, Material.GLASS), 200);
+
+    @Test
+    void testDefaultsToOpenAIResponses() {
+        ModelProvider provider = ModelProvider.create(null, null, null);
+
+        assertInstanceOf(ResponsesProvider.class, provider);
+        assertEquals("https://api.openai.com/v1/responses", provider.endpoint());
+        assertEquals("https://api.openai.com/v1/models", provider.warmupUrl());
+        assertTrue(provider.requiresApiKey());
+    }
+
+    @Test
+    void testLocalServerNeedsNoKeyUnlessConfigured() {
+        ModelProvider local = ModelProvider.create("chat_completions", "http://localhost:11434/v1/", null);
+        ModelProvider keyed = ModelProvider.create("Chat_Completions", "http://10.0.0.5:8000/v1", true);
+
+        assertInstanceOf(ChatCompletionsProvider.class, local);
+        assertEquals("http://localhost:11434/v1/chat/completions", local.endpoint());
+        assertFalse(local.requiresApiKey());
+        assertTrue(keyed.requiresApiKey());
+    }
+
+    @Test
+    void testUnknownApiIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ModelProvider.create("completions", null, null));
+    }
+
+    @Test
+    void testResponsesPayload() {
+        Map<String, Object> payload = ModelProvider.create(null, null, null)
+                .payload("gpt-4o-mini", PROMPT, "a tower", 4000, true);
+
+        assertEquals(PROMPT.instructions(), payload.get("instructions"));
+        assertEquals("a tower", payload.get("input"));
+        assertEquals(4000, payload.get("max_output_tokens"));
+        assertEquals(PROMPT.cacheKey(), payload.get("prompt_cache_key"));
+        assertEquals(true, payload.get("stream"));
+    }
+
+    @Test
+    void testChatPayloadPutsInstructionsInSystemMessage() {
+        Map<String, Object> payload = ModelProvider.create("chat_completions", "http://localhost:8000/v1", null)
+                .payload("qwen", PROMPT, "a tower", 4000, false);
+
+        List<?> messages = (List<?>) payload.get("messages");
+        assertEquals(Map.of("role", "system", "content", PROMPT.instructions()), messages.get(0));
+        assertEquals(Map.of("role", "user", "content", "a tower"), messages.get(1));
+        assertEquals(4000, payload.get("max_tokens"));
+        assertFalse(payload.containsKey("stream"));
+    }
+
+    @Test
+    void testResponseText() {
+        ModelProvider responses = ModelProvider.create(null, null, null);
+        ModelProvider chat = ModelProvider.create("chat_completions", null, null);
+
+        assertEquals("{\"s\":[1,1,1]}", responses.responseText(
+                "{\"response\":{\"output\":[{\"content\":[{\"type\":\"output_text\",\"text\":\"{\\\"s\\\":[1,1,1]}\"}]}]}}"));
+        assertEquals("{\"s\":[1,1,1]}", chat.responseText(
+                "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"{\\\"s\\\":[1,1,1]}\"}}]}"));
+        assertNull(chat.responseText("{\"choices\":[]}"));
+    }
+
+    @Test
+    void testStreamDelta() {
+        ModelProvider responses = ModelProvider.create(null, null, null);
+        ModelProvider chat = ModelProvider.create("chat_completions", null, null);
+
+        assertEquals("ab", responses.streamDelta("response.output_text.delta",
+                "{\"type\":\"response.output_text.delta\",\"delta\":\"ab\"}"));
+        assertEquals("ab", chat.streamDelta(null,
+                "{\"id\":\"c1\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"ab\"}}]}"));
+        assertNull(chat.streamDelta(null, "[DONE]"));
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.aibuild.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GenerationScheduler
+ */
+class GenerationSchedulerTest {
+
+    private static final UUID ALICE = UUID.randomUUID();
+    private static final UUID BOB = UUID.randomUUID();
+    private static final UUID CAROL = UUID.randomUUID();
+
+    private GenerationScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) scheduler.shutdown();
+    }
+
+    @Test
+    void testStartsImmediatelyWhenSlotFree() throws Exception {
+        scheduler = new GenerationScheduler(2, 10, 1);
+        CountDownLatch ran = new CountDownLatch(1);
+
+        assertEquals(GenerationScheduler.Admission.STARTED, scheduler.submit(ALICE, ran::countDown, null));
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testQueuedPlayersAreServedRoundRobin() throws Exception {
+        scheduler = new GenerationScheduler(1, 10, 3);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(4);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        scheduler.submit(CAROL, () -> await(release), null);
+        scheduler.submit(ALICE, task(order, "a1", done), null);
+        scheduler.submit(ALICE, task(order, "a2", done), null);
+        scheduler.submit(ALICE, task(order, "a3", done), null);
+        scheduler.submit(BOB, task(order, "b1", done), null);
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a1", "b1", "a2", "a3"), order);
+    }
+
+    @Test
+    void testReportsQueuePosition() {
+        scheduler = new GenerationScheduler(1, 10, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> positions = new ArrayList<>();
+
+        scheduler.submit(CAROL, () -> await(release), null);
+        scheduler.submit(ALICE, () -> { }, (position, eta) -> positions.add(position));
+        scheduler.submit(ALICE, () -> { }, (position, eta) -> positions.add(position));
+        scheduler.submit(BOB, () -> { }, (position, eta) -> positions.add(position));
+
+        // Bob's first request is placed ahead of Alice's second, which was queued before he arrived
+        assertEquals(List.of(0, 1, 1), positions);
+        release.countDown();
+    }
+
+    @Test
+    void testThrottledPositionChangeIsSentWhenWindowCloses() throws InterruptedException {
+        scheduler = new GenerationScheduler(1, 10, 2, 200);
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch second = new CountDownLatch(1);
+        List<Integer> positions = new CopyOnWriteArrayList<>();
+        CountDownLatch atFront = new CountDownLatch(1);
+
+        scheduler.submit(CAROL, () -> await(first), null);
+        scheduler.submit(BOB, () -> await(second), null);
+        scheduler.submit(ALICE, () -> { }, (position, eta) -> {
+            positions.add(position);
+            if (position == 0) atFront.countDown();
+        });
+        // Bob starts inside Alice's window, so her move to the front is held back, not dropped
+        first.countDown();
+
+        assertTrue(atFront.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 0), positions);
+        second.countDown();
+    }
+
+    @Test
+    void testShedsWhenQueuesAreFull() {
+        scheduler = new GenerationScheduler(1, 2, 1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        scheduler.submit(CAROL, () -> await(release), null);
+        assertEquals(GenerationScheduler.Admission.QUEUED, scheduler.submit(ALICE, () -> { }, null));
+        assertEquals(GenerationScheduler.Admission.PLAYER_QUEUE_FULL, scheduler.submit(ALICE, () -> { }, null));
+        assertEquals(GenerationScheduler.Admission.QUEUED, scheduler.submit(BOB, () -> { }, null));
+        assertEquals(GenerationScheduler.Admission.QUEUE_FULL, scheduler.submit(CAROL, () -> { }, null));
+
+        GenerationScheduler.Stats stats = scheduler.stats();
+        assertEquals(1, stats.running());
+        assertEquals(2, stats.queued());
+        assertEquals(2, stats.shed());
+        release.countDown();
+    }
+
+    @Test
+    void testStatsTrackCompletions() throws Exception {
+        scheduler = new GenerationScheduler(2, 10, 1);
+        CountDownLatch done = new CountDownLatch(3);
+        scheduler.submit(ALICE, done::countDown, null);
+        scheduler.submit(BOB, done::countDown, null);
+        scheduler.submit(CAROL, done::countDown, null);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        // Completion bookkeeping runs just after the task body
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.stats().completed() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        GenerationScheduler.Stats stats = scheduler.stats();
+        assertEquals(3, stats.submitted());
+        assertEquals(3, stats.completed());
+        assertEquals(3, stats.completedLastMinute());
+        assertEquals(0, stats.running());
+    }
+
+    @Test
+    void testAsyncTaskHoldsSlotUntilFutureCompletes() throws Exception {
+        scheduler = new GenerationScheduler(1, 10, 1);
+        CompletableFuture<Void> generation = new CompletableFuture<>();
+        CountDownLatch ran = new CountDownLatch(1);
+
+        assertEquals(GenerationScheduler.Admission.STARTED, scheduler.submitAsync(ALICE, () -> generation, null));
+        assertEquals(GenerationScheduler.Admission.QUEUED, scheduler.submit(BOB, ran::countDown, null));
+        assertFalse(ran.await(200, TimeUnit.MILLISECONDS));
+
+        generation.complete(null);
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testShutdownCancelsRunningGenerations() throws Exception {
+        scheduler = new GenerationScheduler(1, 10, 1);
+        CompletableFuture<Void> generation = new CompletableFuture<>();
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.submitAsync(ALICE, () -> {
+            started.countDown();
+            return generation;
+        }, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // The future is registered just after the task returns it
+        Thread.sleep(50);
+
+        scheduler.shutdown();
+        assertTrue(generation.isCancelled());
+    }
+
+    private static Runnable task(List<String> order, String name, CountDownLatch done) {
+        return () -> {
+            order.add(name);
+            done.countDown();
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.exception.BuildValidationException;
+import com.example.aibuild.exception.PlanParseException;
+import com.example.aibuild.model.BlockSpec;
+import com.example.aibuild.model.BuildPlan;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IncrementalPlanParser
+ */
+class IncrementalPlanParserTest {
+
+    private String[] materialNames;
+    private List<BlockSpec> emitted;
+
+    @BeforeEach
+    void setUp() {
+        materialNames = new String[]{"STONE", "OAK_PLANKS", "GLASS"};
+        emitted = new ArrayList<>();
+    }
+
+    private IncrementalPlanParser parser(int maxBlocks) {
+        return new IncrementalPlanParser(materialNames, maxBlocks, emitted::add);
+    }
+
+    @Test
+    void testEmitsBlocksAsTuplesClose() throws Exception {
+        IncrementalPlanParser parser = parser(100);
+
+        parser.feed("{\"s\": [5, 3, 5], \"b\": [[0, 0, 0, 0], [1, 0");
+        assertEquals(1, emitted.size());
+
+        parser.feed(", 0, 1]");
+        assertEquals(2, emitted.size());
+        assertEquals("OAK_PLANKS", emitted.get(1).material);
+
+        parser.feed(", [0, 1, 0, 2]]}");
+        parser.finish();
+        assertEquals(3, emitted.size());
+        assertEquals(1, emitted.get(2).dy);
+        assertEquals(5, parser.getSize().x);
+    }
+
+    @Test
+    void testCharacterByCharacterFeed() throws Exception {
+        IncrementalPlanParser parser = parser(100);
+        String json = "{\"s\":[4,4,4],\"b\":[[0,0,0,1],[3,3,3,2]]}";
+
+        for (char c : json.toCharArray()) {
+            parser.feed(String.valueOf(c));
+        }
+        parser.finish();
+
+        assertEquals(2, emitted.size());
+        assertEquals(3, emitted.get(1).dx);
+        assertEquals("GLASS", emitted.get(1).material);
+    }
+
+    @Test
+    void testBlocksBeforeSizeAreHeldBack() throws Exception {
+        IncrementalPlanParser parser = parser(100);
+
+        parser.feed("{\"b\": [[0, 0, 0, 0], [1, 0, 0, 0]], ");
+        assertEquals(0, emitted.size());
+
+        parser.feed("\"s\": [2, 1, 1]}");
+        parser.finish();
+        assertEquals(2, emitted.size());
+    }
+
+    @Test
+    void testSkipsMarkdownFenceAndOtherKeys() throws Exception {
+        IncrementalPlanParser parser = parser(100);
+
+        parser.feed("```json\n{\"name\": \"hut [small]\", \"s\": [2, 2, 2], \"b\": [[0.0, 0.0, 1.9, 0]]}\n```");
+        parser.finish();
+
+        assertEquals(1, emitted.size());
+        assertEquals(1, emitted.get(0).dz);
+    }
+
+    @Test
+    void testOutOfBoundsBlockThrows() throws Exception {
+        IncrementalPlanParser parser = parser(100);
+        parser.feed("{\"s\": [3, 3, 3], \"b\": [[0, 0, 0, 0]");
+
+        BuildValidationException ex = assertThrows(
+            BuildValidationException.class,
+            () -> parser.feed(", [5, 0, 0, 0]")
+        );
+        assertTrue(ex.getMessage().contains("out of bounds"));
+        assertEquals(1, emitted.size());
+    }
+
+    @Test
+    void testSizeTooLargeThrows() {
+        IncrementalPlanParser parser = parser(100);
+
+        assertThrows(
+            BuildValidationException.class,
+            () -> parser.feed("{\"s\": [81, 3, 3], ")
+        );
+    }
+
+    @Test
+    void testMaxBlocksExceededThrows() throws Exception {
+        IncrementalPlanParser parser = parser(2);
+        parser.feed("{\"s\": [3, 3, 3], \"b\": [[0, 0, 0, 0], [1, 0, 0, 0]");
+
+        BuildValidationException ex = assertThrows(
+            BuildValidationException.class,
+            () -> parser.feed(", [2, 0, 0, 0]")
+        );
+        assertTrue(ex.getMessage().contains("too large"));
+        assertEquals(2, emitted.size());
+    }
+
+    @Test
+    void testMalformedTupleThrows() {
+        IncrementalPlanParser parser = parser(100);
+
+        assertThrows(
+            PlanParseException.class,
+            () -> parser.feed("{\"s\": [3, 3, 3], \"b\": [[0, 0, 0]]}")
+        );
+    }
+
+    @Test
+    void testShapesExpandAsTheyClose() throws Exception {
+        IncrementalPlanParser parser = parser(100);
+
+        parser.feed("{\"s\": [4, 3, 4], \"b\": [[0, 0, 0, 3, 0, 3, 0], [0, 1, 0, 3, 2, 3, 1, 1]");
+        // The hollow box is only two layers high, so it has no interior to leave out
+        assertEquals(16 + 32, emitted.size());
+
+        parser.feed(", [0, 2, 0, 3, 2, 0, 2, 2], [1, 1, 0, 2]]}");
+        parser.finish();
+        assertEquals(16 + 32 + 4 + 1, emitted.size());
+        assertEquals(53, parser.getBlockCount());
+        assertEquals("GLASS", emitted.get(emitted.size() - 1).material);
+    }
+
+    @Test
+    void testOversizedShapeIsRejectedBeforeExpanding() throws Exception {
+        IncrementalPlanParser parser = parser(50);
+
+        BuildValidationException ex = assertThrows(
+            BuildValidationException.class,
+            () -> parser.feed("{\"s\": [10, 10, 10], \"b\": [[0, 0, 0, 9, 9, 9, 0]]}")
+        );
+        assertTrue(ex.getMessage().contains("too large"));
+        assertEquals(0, emitted.size());
+    }
+
+    @Test
+    void testShapeOutOfBoundsThrows() {
+        IncrementalPlanParser parser = parser(100);
+
+        assertThrows(
+            BuildValidationException.class,
+            () -> parser.feed("{\"s\": [3, 3, 3], \"b\": [[0, 0, 0, 3, 0, 0, 0]]}")
+        );
+    }
+
+    @Test
+    void testGroupsEmitAllCopiesAsTuplesClose() throws Exception {
+        IncrementalPlanParser parser = parser(100);
+        String json = "{\"s\": [7, 4, 5], \"b\": [[0, 0, 0, 6, 0, 4, 0]], \"g\": [" +
+            "{\"mirror\": \"x\", \"b\": [[0, 1, 0, 0, 3, 0, 1], [3, 1, 0, 1]]}, " +
+            "{\"repeat\": [2, 0, 0, 3], \"mirror\": \"z\", \"b\": [[1, 2, 0, 2]]}]}";
+
+        parser.feed(json.substring(0, json.indexOf("[3, 1, 0, 1]")));
+        // The corner post and its mirror image, before the group closes
+        assertEquals(35 + 6, emitted.size());
+        assertTrue(emitted.stream().anyMatch(b -> b.dx == 6 && b.dy == 3 && b.material.equals("OAK_PLANKS")));
+
+        parser.feed(json.substring(json.indexOf("[3, 1, 0, 1]")));
+        parser.finish();
+        // The door on the centre line is placed once; three windows on both faces
+        assertEquals(35 + 6 + 1 + 6, emitted.size());
+        assertEquals(48, parser.getBlockCount());
+        assertTrue(emitted.stream().anyMatch(b -> b.dx == 5 && b.dz == 4 && b.material.equals("GLASS")));
+    }
+
+    @Test
+    void testGroupsBeforeBlocksResolveLikeTheParsedPlan() throws Exception {
+        IncrementalPlanParser parser = parser(100);
+        // The wall is written after the mirrored windows and covers them
+        String json = "{\"s\": [5, 2, 1], \"g\": [{\"mirror\": \"x\", \"b\": [[1, 1, 0, 2]]}], " +
+            "\"b\": [[0, 0, 0, 4, 1, 0, 0]]}";
+
+        parser.feed(json);
+        parser.finish();
+        BuildPlan parsed = new PlanParser().parse(json, materialNames);
+
+        assertEquals(finalBlocks(parsed.blocks), finalBlocks(emitted));
+        assertEquals("STONE", finalBlocks(emitted).get(List.of(1, 1, 0)));
+    }
+
+    /**
+     * Material left at each position once every block is placed in order
+     */
+    private static Map<List<Integer>, String> finalBlocks(List<BlockSpec> blocks) {
+        Map<List<Integer>, String> placed = new HashMap<>();
+        blocks.forEach(block -> placed.put(List.of(block.dx, block.dy, block.dz), block.material));
+        return placed;
+    }
+
+    @Test
+    void testCharacterByCharacterGroup() throws Exception {
+        IncrementalPlanParser parser = parser(100);
+        String json = "{\"s\":[4,2,4],\"g\":[{\"mirror\":\"xz\",\"b\":[[0,0,0,1]]}]}";
+
+        for (char c : json.toCharArray()) {
+            parser.feed(String.valueOf(c));
+        }
+        parser.finish();
+
+        assertEquals(4, emitted.size());
+        assertTrue(emitted.stream().anyMatch(b -> b.dx == 3 && b.dz == 3));
+    }
+
+    @Test
+    void testOperatorAfterGroupBlocksThrows() {
+        IncrementalPlanParser parser = parser(100);
+
+        assertThrows(
+            PlanParseException.class,
+            () -> parser.feed("{\"s\": [4, 2, 4], \"g\": [{\"b\": [[0, 0, 0, 1]], \"mirror\": \"x\"}]}")
+        );
+    }
+
+    @Test
+    void testRepeatPastLimitIsRejectedBeforeExpanding() {
+        IncrementalPlanParser parser = parser(50);
+
+        assertThrows(
+            BuildValidationException.class,
+            () -> parser.feed("{\"s\": [10, 10, 10], \"g\": [{\"repeat\": [1, 0, 0, 1000000000], \"b\": [[0, 0, 0, 1]]}]}")
+        );
+        assertEquals(0, emitted.size());
+    }
+
+    @Test
+    void testRepeatOutOfBoundsThrows() {
+        IncrementalPlanParser parser = parser(100);
+
+        assertThrows(
+            BuildValidationException.class,
+            () -> parser.feed("{\"s\": [4, 2, 4], \"g\": [{\"repeat\": [2, 0, 0, 3], \"b\": [[0, 0, 0, 1]]}]}")
+        );
+    }
+
+    @Test
+    void testLayerGridEmitsRowsAsTheyClose() throws Exception {
+        IncrementalPlanParser parser = parser(100);
+
+        parser.feed("{\"s\": [3, 2, 2], \"l\": [[\"000\", \"0.0\"], [\"1..");
+        assertEquals(5, emitted.size());
+        assertEquals(1, emitted.get(4).dz);
+
+        parser.feed("\", \"..2\"]]}");
+        parser.finish();
+        assertEquals(7, emitted.size());
+        BlockSpec last = emitted.get(6);
+        assertEquals(2, last.dx);
+        assertEquals(1, last.dy);
+        assertEquals(1, last.dz);
+        assertEquals("GLASS", last.material);
+    }
+
+    @Test
+    void testLayerGridRowPastSizeThrows() {
+        IncrementalPlanParser parser = parser(100);
+
+        assertThrows(
+            BuildValidationException.class,
+            () -> parser.feed("{\"s\": [3, 1, 1], \"l\": [[\"0000\"]]}")
+        );
+    }
+
+    @Test
+    void testLayerGridUnknownCharacterThrows() {
+        IncrementalPlanParser parser = parser(100);
+
+        assertThrows(
+            PlanParseException.class,
+            () -> parser.feed("{\"s\": [3, 1, 1], \"l\": [[\"0#0\"]]}")
+        );
+    }
+
+    @Test
+    void testLayerGridCountsAgainstLimit() {
+        IncrementalPlanParser parser = parser(4);
+
+        assertThrows(
+            BuildValidationException.class,
+            () -> parser.feed("{\"s\": [3, 2, 1], \"l\": [[\"000\"], [\"00.\"]]}")
+        );
+        assertEquals(3, emitted.size());
+    }
+
+    @Test
+    void testTruncatedStreamFailsOnFinish() throws Exception {
+        IncrementalPlanParser parser = parser(100);
+        parser.feed("{\"s\": [3, 3, 3], \"b\": [[0, 0, 0, 0], [1, 0, 0, 0]");
+
+        PlanParseException ex = assertThrows(PlanParseException.class, parser::finish);
+        assertTrue(ex.getMessage().contains("Truncated"));
+        assertEquals(2, emitted.size());
+    }
+
+    @Test
+    void testMissingFoundationFailsOnFinish() throws Exception {
+        IncrementalPlanParser parser = parser(100);
+        parser.feed("{\"s\": [3, 3, 3], \"b\": [[1, 1, 1, 0]]}");
+
+        BuildValidationException ex = assertThrows(BuildValidationException.class, parser::finish);
+        assertTrue(ex.getMessage().contains("foundation"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.aibuild.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ModelRouter
+ */
+class ModelRouterTest {
+
+    private final ModelRouter router = new ModelRouter("small", "large", 0.5, true);
+
+    @Test
+    void testSimpleBuildsGoToSmallModel() {
+        assertEquals("small", router.route("a fence", 500).model());
+        assertEquals("small", router.route("a small oak house", 500).model());
+    }
+
+    @Test
+    void testComplexBuildsGoToLargeModel() {
+        assertEquals("large", router.route("a cathedral", 500).model());
+        assertEquals("large", router.route("a huge gothic castle with four towers, a moat and a drawbridge", 500).model());
+    }
+
+    @Test
+    void testExplicitDimensionsCountAgainstBlockLimit() {
+        double small = ModelRouter.complexity("a house 5x5x4", 500);
+        double large = ModelRouter.complexity("a house 20x20x10", 500);
+
+        assertTrue(large > small);
+        assertEquals("large", router.route("a house 20x20x10", 500).model());
+    }
+
+    @Test
+    void testComplexityIsBounded() {
+        assertEquals(0.0, ModelRouter.complexity("fence", 500), 1e-9);
+        assertEquals(1.0, ModelRouter.complexity(
+            "an enormous detailed cathedral 40x40x40 with towers, arches, and windows and a garden", 500), 1e-9);
+    }
+
+    @Test
+    void testDisabledRoutingUsesOneModel() {
+        ModelRouter single = new ModelRouter("large");
+
+        assertFalse(single.isEnabled());
+        assertEquals("large", single.route("a fence", 500).model());
+        assertNull(single.escalationFor("large"));
+        assertFalse(new ModelRouter("large", "large", 0.5, true).isEnabled());
+    }
+
+    @Test
+    void testEscalationOnlyFromSmallModel() {
+        assertEquals("large", router.escalationFor("small"));
+        assertNull(router.escalationFor("large"));
+        assertNull(new ModelRouter("small", "large", 0.5, false).escalationFor("small"));
+    }
+
+    @Test
+    void testStatsPerModel() {
+        router.recordRequest("small");
+        router.recordInvalid("small", true);
+        router.recordRequest("large");
+        router.recordSuccess("large", 1200);
+        router.recordRequest("small");
+        router.recordSuccess("small", 300);
+
+        List<ModelRouter.ModelStats> stats = router.getStats();
+        assertEquals("small", stats.get(0).model());
+        assertEquals(2, stats.get(0).requests());
+        assertEquals(0.5, stats.get(0).successRate(), 1e-9);
+        assertEquals(1, stats.get(0).escalated());
+        assertEquals(300, stats.get(0).p50Ms());
+        assertEquals(1.0, stats.get(1).successRate(), 1e-9);
+        assertEquals(1200, stats.get(1).p95Ms());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.BuildValidator;
+import com.example.aibuild.exception.PlanParseException;
+import com.example.aibuild.model.BlockSpec;
+import com.example.aibuild.model.BuildPlan;
+import com.example.aibuild.model.Size;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OutlinePlanner
+ */
+class OutlinePlannerTest {
+
+    private static final String OUTLINE = "{\"box\":[10,8,10],\"parts\":[" +
+        "{\"name\":\"foundation\",\"at\":[0,0,0],\"size\":[10,1,10],\"desc\":\"stone floor\"}," +
+        "{\"name\":\"walls\",\"at\":[0,1,0],\"size\":[10,4,10],\"desc\":\"oak walls\"}," +
+        "{\"name\":\"roof\",\"at\":[0,5,0],\"size\":[10,3,10],\"desc\":\"brick roof\"}]}";
+
+    private final OutlinePlanner planner = new OutlinePlanner();
+
+    @Test
+    void testParseOutline() throws Exception {
+        OutlinePlanner.Outline outline = planner.parse(OUTLINE, 8);
+
+        assertEquals(10, outline.box().x);
+        assertEquals(3, outline.sections().size());
+        OutlinePlanner.Section roof = outline.sections().get(2);
+        assertEquals("roof", roof.name());
+        assertEquals(5, roof.y());
+        assertEquals(3, roof.size().y);
+    }
+
+    @Test
+    void testParseClampsIntoBoxAndLimitsSections() throws Exception {
+        String json = "{\"box\":[200,10,10],\"parts\":[" +
+            "{\"at\":[70,0,0],\"size\":[30,4,4]}," +
+            "{\"name\":\"outside\",\"at\":[0,20,0],\"size\":[4,4,4]}," +
+            "{\"name\":\"flat\",\"at\":[0,0,0],\"size\":[4,0,4]}," +
+            "{\"name\":\"extra\",\"at\":[0,0,0],\"size\":[2,2,2]}]}";
+
+        OutlinePlanner.Outline outline = planner.parse(json, 2);
+
+        assertEquals(BuildValidator.MAX_DIMENSION, outline.box().x);
+        assertEquals(2, outline.sections().size());
+        assertEquals("section 1", outline.sections().get(0).name());
+        assertEquals(10, outline.sections().get(0).size().x);
+        // Clamped onto the top layer rather than dropped
+        assertEquals(9, outline.sections().get(1).y());
+        assertEquals(1, outline.sections().get(1).size().y);
+    }
+
+    @Test
+    void testParseRejectsNonOutline() {
+        assertThrows(PlanParseException.class, () -> planner.parse("{\"s\":[1,1,1],\"b\":[]}", 8));
+        assertThrows(PlanParseException.class, () -> planner.parse("not json at all {", 8));
+    }
+
+    @Test
+    void testBlockSharesFollowSizeAndStayWithinLimit() throws Exception {
+        OutlinePlanner.Outline outline = planner.parse(OUTLINE, 8);
+
+        int[] shares = planner.blockShares(outline, 1000);
+
+        assertTrue(shares[1] > shares[0]);
+        assertTrue(shares[0] + shares[1] + shares[2] <= 1000);
+    }
+
+    @Test
+    void testMergeOffsetsSectionsAndDropsStrayBlocks() throws Exception {
+        OutlinePlanner.Outline outline = planner.parse(OUTLINE, 8);
+        List<BuildPlan> plans = List.of(
+            plan(new BlockSpec(0, 0, 0, "STONE"), new BlockSpec(9, 0, 9, "STONE")),
+            plan(new BlockSpec(0, 0, 0, "OAK_PLANKS"), new BlockSpec(0, 4, 0, "OAK_PLANKS")),
+            plan(new BlockSpec(0, 0, 0, "BRICKS"), new BlockSpec(0, 2, 0, "BRICKS"))
+        );
+
+        BuildPlan merged = planner.merge(outline, plans);
+
+        assertEquals(8, merged.size.y);
+        // The wall block at local y=4 is outside its 4-high section
+        assertEquals(5, merged.blocks.size());
+        assertTrue(merged.blocks.stream().anyMatch(b -> b.dy == 1 && b.material.equals("OAK_PLANKS")));
+        assertTrue(merged.blocks.stream().anyMatch(b -> b.dy == 7 && b.material.equals("BRICKS")));
+    }
+
+    @Test
+    void testLaterSectionWinsOverlap() throws Exception {
+        OutlinePlanner.Outline outline = planner.parse("{\"box\":[4,4,4],\"parts\":[" +
+            "{\"name\":\"walls\",\"at\":[0,0,0],\"size\":[4,4,4]}," +
+            "{\"name\":\"door\",\"at\":[1,0,0],\"size\":[1,2,1]}]}", 8);
+
+        BuildPlan merged = planner.merge(outline, List.of(
+            plan(new BlockSpec(1, 0, 0, "STONE")),
+            plan(new BlockSpec(0, 0, 0, "OAK_DOOR"))
+        ));
+
+        assertEquals(1, merged.blocks.size());
+        assertEquals("OAK_DOOR", merged.blocks.get(0).material);
+    }
+
+    @Test
+    void testSectionPromptNamesSectionAndSize() throws Exception {
+        OutlinePlanner.Outline outline = planner.parse(OUTLINE, 8);
+
+        String prompt = planner.sectionPrompt("a cottage", outline, outline.sections().get(1));
+
+        assertTrue(prompt.contains("a cottage"));
+        assertTrue(prompt.contains("\"walls\""));
+        assertTrue(prompt.contains("oak walls"));
+        assertTrue(prompt.contains("s = [10, 4, 10]"));
+    }
+
+    private static BuildPlan plan(BlockSpec... blocks) {
+        BuildPlan plan = new BuildPlan();
+        plan.size = new Size(10, 10, 10);
+        plan.blocks = new ArrayList<>(List.of(blocks));
+        return plan;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.aibuild.service;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PaletteSelector
+ */
+class PaletteSelectorTest {
+
+    // A slice of a real palette, with the variants and look-alike names that crowd out base blocks
+    private static final Set<Material> LARGE = EnumSet.of(
+        Material.ACACIA_DOOR, Material.ACACIA_LOG, Material.ACACIA_PLANKS, Material.ACACIA_SLAB, Material.ACACIA_STAIRS,
+        Material.BLACKSTONE, Material.BLACKSTONE_SLAB, Material.BRICKS, Material.COBBLED_DEEPSLATE_STAIRS,
+        Material.COBBLESTONE, Material.COBBLESTONE_STAIRS, Material.COBWEB, Material.CRACKED_DEEPSLATE_BRICKS,
+        Material.DARK_OAK_PLANKS, Material.DARK_OAK_STAIRS, Material.DEEPSLATE, Material.DEEPSLATE_BRICKS,
+        Material.DIRT, Material.GLASS, Material.GLASS_PANE, Material.LANTERN, Material.OAK_DOOR, Material.OAK_LOG,
+        Material.OAK_PLANKS, Material.OAK_SLAB, Material.OAK_STAIRS, Material.RED_CARPET, Material.RED_SANDSTONE,
+        Material.RED_SANDSTONE_SLAB, Material.RED_SANDSTONE_STAIRS, Material.RED_WOOL, Material.SANDSTONE,
+        Material.SANDSTONE_SLAB, Material.SANDSTONE_STAIRS, Material.SOUL_LANTERN, Material.STONE,
+        Material.STONE_BRICKS, Material.STONE_SLAB, Material.STONE_STAIRS, Material.TORCH, Material.WHITE_WOOL
+    );
+
+    @Test
+    void testSmallPaletteIsSentWholeInNameOrder() {
+        Set<Material> allowed = Set.of(Material.STONE, Material.GLASS, Material.OAK_PLANKS);
+
+        List<Material> palette = new PaletteSelector(24).select("a glass house", allowed);
+
+        assertEquals(List.of(Material.GLASS, Material.OAK_PLANKS, Material.STONE), palette);
+    }
+
+    @Test
+    void testNamedMaterialsComeFirst() {
+        List<Material> palette = new PaletteSelector(10).select("a sandstone house with red wool carpets", LARGE);
+
+        assertEquals(10, palette.size());
+        // Two named words each; the sandstone variants name the same two words but are shapes
+        assertEquals(List.of(Material.RED_CARPET, Material.RED_SANDSTONE, Material.RED_WOOL), palette.subList(0, 3));
+        assertEquals(List.of(Material.RED_SANDSTONE_SLAB, Material.RED_SANDSTONE_STAIRS), palette.subList(3, 5));
+        assertTrue(palette.indexOf(Material.SANDSTONE) < palette.indexOf(Material.SANDSTONE_SLAB));
+    }
+
+    @Test
+    void testThemesPullInUnnamedMaterials() {
+        List<Material> palette = new PaletteSelector(8).select("a spooky tower", LARGE);
+
+        assertEquals(List.of(Material.LANTERN, Material.BLACKSTONE, Material.COBWEB, Material.DEEPSLATE,
+            Material.SOUL_LANTERN, Material.DEEPSLATE_BRICKS, Material.CRACKED_DEEPSLATE_BRICKS, Material.DARK_OAK_PLANKS),
+            palette);
+    }
+
+    @Test
+    void testBasicMaterialsFillTheRest() {
+        List<Material> palette = new PaletteSelector(6).select("something nice", LARGE);
+
+        assertEquals(List.of(Material.OAK_PLANKS, Material.STONE, Material.COBBLESTONE, Material.GLASS,
+            Material.STONE_BRICKS, Material.OAK_LOG), palette);
+    }
+
+    @Test
+    void testSelectionIsDeterministic() {
+        PaletteSelector selector = new PaletteSelector(12);
+
+        assertEquals(selector.select("a medieval castle", LARGE), selector.select("a medieval castle", EnumSet.copyOf(LARGE)));
+    }
+
+    @Test
+    void testDisabledSendsEverything() {
+        assertEquals(LARGE.size(), new PaletteSelector(0).select("a glass house", LARGE).size());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.model.BlockSpec;
+import com.example.aibuild.model.BuildPlan;
+import com.example.aibuild.model.Size;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PlanCache and its disk tier
+ */
+class PlanCacheTest {
+
+    private static final String[] PALETTE = {"GLASS", "OAK_PLANKS", "STONE"};
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("plan-cache-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static PlanGenerator.GenerationKey key(String prompt) {
+        return PlanGenerator.GenerationKey.of(prompt, "test-model", PALETTE, 100);
+    }
+
+    private static BuildPlan plan(int blocks) {
+        BuildPlan plan = new BuildPlan();
+        plan.name = "test";
+        plan.size = new Size(10, 10, 10);
+        plan.blocks = new ArrayList<>();
+        for (int i = 0; i < blocks; i++) {
+            plan.blocks.add(new BlockSpec(i % 10, 0, i / 10, i % 2 == 0 ? "STONE" : "GLASS"));
+        }
+        return plan;
+    }
+
+    private DirectoryPlanStore disk(int maxEntries) {
+        return new DirectoryPlanStore(dir.toFile(), maxEntries, Logger.getLogger("PlanCacheTest"));
+    }
+
+    @Test
+    void testMemoryHitRoundTripsBlocks() {
+        PlanCache cache = new PlanCache(1000, null);
+        cache.put(key("hut"), plan(5));
+
+        BuildPlan hit = cache.getFromMemory(key("hut"));
+
+        assertNotNull(hit);
+        assertEquals(5, hit.blocks.size());
+        assertEquals("GLASS", hit.blocks.get(1).material);
+        assertEquals(10, hit.size.x);
+        assertEquals(1, cache.stats().memoryHits());
+    }
+
+    @Test
+    void testKeyIncludesBlockLimit() {
+        PlanCache cache = new PlanCache(1000, null);
+        cache.put(key("hut"), plan(5));
+
+        assertNull(cache.get(PlanGenerator.GenerationKey.of("hut", "test-model", PALETTE, 200)));
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvictedByBlockBudget() {
+        PlanCache cache = new PlanCache(20, null);
+        cache.put(key("a"), plan(8));
+        cache.put(key("b"), plan(8));
+        cache.getFromMemory(key("a"));
+        cache.put(key("c"), plan(8));
+
+        assertNotNull(cache.getFromMemory(key("a")));
+        assertNull(cache.getFromMemory(key("b")));
+        assertNotNull(cache.getFromMemory(key("c")));
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(16, cache.stats().blocks());
+    }
+
+    @Test
+    void testDiskTierSurvivesNewCacheInstance() {
+        new PlanCache(1000, disk(10)).put(key("tower"), plan(12));
+
+        PlanCache restarted = new PlanCache(1000, disk(10));
+        BuildPlan hit = restarted.get(key("tower"));
+
+        assertNotNull(hit);
+        assertEquals(12, hit.blocks.size());
+        assertEquals(1, restarted.stats().diskHits());
+        // Promoted into memory
+        assertNotNull(restarted.getFromMemory(key("tower")));
+    }
+
+    @Test
+    void testDiskTierEvictsOverflow() {
+        PlanCache cache = new PlanCache(1000, disk(2));
+        cache.put(key("a"), plan(1));
+        cache.put(key("b"), plan(1));
+        cache.put(key("c"), plan(1));
+
+        assertEquals(2, dir.toFile().listFiles((d, name) -> name.endsWith(".json")).length);
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void testInvalidateRemovesPromptFromBothTiers() {
+        PlanCache cache = new PlanCache(1000, disk(10));
+        cache.put(key("hut"), plan(3));
+        cache.put(key("tower"), plan(3));
+
+        assertEquals(2, cache.invalidate("  HUT "));
+
+        assertNull(cache.get(key("hut")));
+        assertNotNull(cache.get(key("tower")));
+    }
+}
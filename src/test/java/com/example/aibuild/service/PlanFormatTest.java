@@ -0,0 +1,38 @@
+package com.example.aibuild.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PlanFormat
+ */
+class PlanFormatTest {
+
+    @Test
+    void testSolidSubjectsExpectMoreFill() {
+        double statue = PlanFormat.expectedFill("a stone statue of a lion");
+        double house = PlanFormat.expectedFill("a small wooden house with a porch");
+
+        assertTrue(statue > house);
+        assertTrue(PlanFormat.expectedFill("a solid sandstone pyramid") > statue);
+        assertTrue(PlanFormat.expectedFill("a hollow glass sphere") < statue);
+    }
+
+    @Test
+    void testAutoPicksByExpectedFill() {
+        assertEquals(PlanFormat.LAYERS, PlanFormat.choose("auto", "a rocky hill with trees", 0.4, 20));
+        assertEquals(PlanFormat.TUPLES, PlanFormat.choose("auto", "a medieval castle", 0.4, 20));
+    }
+
+    @Test
+    void testExplicitModeWins() {
+        assertEquals(PlanFormat.LAYERS, PlanFormat.choose("layers", "a medieval castle", 0.4, 20));
+        assertEquals(PlanFormat.TUPLES, PlanFormat.choose("tuples", "a solid statue", 0.4, 20));
+    }
+
+    @Test
+    void testLargePaletteFallsBackToTuples() {
+        assertEquals(PlanFormat.TUPLES, PlanFormat.choose("layers", "a solid statue", 0.4, 100));
+    }
+}
@@ -0,0 +1,452 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.OpenAIClient;
+import com.example.aibuild.exception.BuildValidationException;
+import com.example.aibuild.exception.OpenAIException;
+import com.example.aibuild.exception.PlanParseException;
+import com.example.aibuild.model.BlockSpec;
+import com.example.aibuild.model.BuildPlan;
+import org.bukkit.Material;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PlanGenerator request coalescing
+ */
+class PlanGeneratorTest {
+
+    private static final String PLAN = "{\"s\": [3, 2, 3], \"b\": [[0, 0, 0, 0], [1, 0, 0, 1], [1, 1, 1, 0]]}";
+    private static final Set<Material> ALLOWED = Set.of(Material.STONE, Material.GLASS);
+
+    /**
+     * Client that streams a fixed plan once released, counting upstream calls
+     */
+    private static class FakeClient extends OpenAIClient {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile CompletableFuture<String> lastStream;
+
+        FakeClient() {
+            super("sk-test-key-for-unit-tests", "test-model", 1000);
+        }
+
+        @Override
+        public CompletableFuture<String> generateBuildPlanJsonAsync(
+                String model,
+                String userPrompt,
+                int maxBlocks,
+                Set<Material> allowed,
+                Consumer<String> onProgress,
+                IncrementalPlanParser.BlockSink onBlock
+        ) {
+            calls.incrementAndGet();
+            String[] names = allowed.stream().map(Enum::name).sorted().toArray(String[]::new);
+            IncrementalPlanParser parser = new IncrementalPlanParser(names, maxBlocks, onBlock);
+            CompletableFuture<String> stream = CompletableFuture.supplyAsync(() -> {
+                try {
+                    parser.feed(PLAN.substring(0, 40));
+                    started.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    parser.feed(PLAN.substring(40));
+                } catch (Exception e) {
+                    throw new CompletionException(new OpenAIException("fake stream failed", e));
+                }
+                return PLAN;
+            });
+            lastStream = stream;
+            return stream;
+        }
+    }
+
+    /**
+     * Client whose small model answers with something that is not a plan
+     */
+    private static class TieredClient extends OpenAIClient {
+        final List<String> models = Collections.synchronizedList(new ArrayList<>());
+        final boolean streamBlocksFirst;
+
+        TieredClient(boolean streamBlocksFirst) {
+            super("sk-test-key-for-unit-tests", "large-model", 1000);
+            this.streamBlocksFirst = streamBlocksFirst;
+        }
+
+        @Override
+        public CompletableFuture<String> generateBuildPlanJsonAsync(
+                String model,
+                String userPrompt,
+                int maxBlocks,
+                Set<Material> allowed,
+                Consumer<String> onProgress,
+                IncrementalPlanParser.BlockSink onBlock
+        ) {
+            models.add(model);
+            if (!model.equals("small-model")) return CompletableFuture.completedFuture(PLAN);
+            if (streamBlocksFirst) {
+                String[] names = allowed.stream().map(Enum::name).sorted().toArray(String[]::new);
+                try {
+                    new IncrementalPlanParser(names, maxBlocks, onBlock).feed(PLAN);
+                } catch (Exception e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+            return CompletableFuture.completedFuture("Sorry, here is a house: ...");
+        }
+    }
+
+    /**
+     * Client whose small model streams a block and then has its plan rejected by the streaming guard
+     */
+    private static class RejectingClient extends OpenAIClient {
+        final List<String> models = Collections.synchronizedList(new ArrayList<>());
+        final String reason;
+
+        RejectingClient(String reason) {
+            super("sk-test-key-for-unit-tests", "large-model", 1000);
+            this.reason = reason;
+        }
+
+        @Override
+        public CompletableFuture<String> generateBuildPlanJsonAsync(
+                String model,
+                String userPrompt,
+                int maxBlocks,
+                Set<Material> allowed,
+                Consumer<String> onProgress,
+                IncrementalPlanParser.BlockSink onBlock
+        ) {
+            models.add(model);
+            if (!model.equals("small-model")) return CompletableFuture.completedFuture(PLAN);
+            onBlock.accept(new BlockSpec(0, 1, 0, "STONE"));
+            return CompletableFuture.failedFuture(new OpenAIException(
+                reason, OpenAIException.Category.PLAN_REJECTED, new BuildValidationException(reason)));
+        }
+    }
+
+    /**
+     * Client with a small palette limit that writes its plan in the IDs of the palette it would send
+     */
+    private static class PaletteClient extends OpenAIClient {
+        volatile List<Material> palette;
+
+        PaletteClient() {
+            super(List.of("sk-test-key-for-unit-tests"), "test-model", paletteSettings());
+        }
+
+        private static OpenAIClient.Settings paletteSettings() {
+            OpenAIClient.Settings settings = new OpenAIClient.Settings();
+            settings.paletteMaxMaterials = 4;
+            return settings;
+        }
+
+        @Override
+        public CompletableFuture<String> generateBuildPlanJsonAsync(
+                String model,
+                String userPrompt,
+                int maxBlocks,
+                Set<Material> allowed,
+                Consumer<String> onProgress,
+                IncrementalPlanParser.BlockSink onBlock
+        ) {
+            palette = paletteFor(userPrompt, allowed);
+            return CompletableFuture.completedFuture(String.format(
+                "{\"s\": [2, 1, 1], \"b\": [[0, 0, 0, %d], [1, 0, 0, %d]]}",
+                palette.indexOf(Material.GLASS), palette.indexOf(Material.SANDSTONE)));
+        }
+    }
+
+    /**
+     * Client that outlines two sections and only finishes a section once both have started
+     */
+    private static class SectionedClient extends OpenAIClient {
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final AtomicInteger sectionCalls = new AtomicInteger();
+
+        SectionedClient() {
+            super("sk-test-key-for-unit-tests", "test-model", 1000);
+        }
+
+        @Override
+        public CompletableFuture<String> generateOutlineJsonAsync(
+                String model, String userPrompt, int maxSections, Consumer<String> onProgress) {
+            return CompletableFuture.completedFuture("{\"box\":[3,4,3],\"parts\":[" +
+                "{\"name\":\"base\",\"at\":[0,0,0],\"size\":[3,2,3]}," +
+                "{\"name\":\"top\",\"at\":[0,2,0],\"size\":[3,2,3]}]}");
+        }
+
+        @Override
+        public CompletableFuture<String> generateBuildPlanJsonAsync(
+                String model,
+                String userPrompt,
+                int maxBlocks,
+                Set<Material> allowed,
+                Consumer<String> onProgress,
+                IncrementalPlanParser.BlockSink onBlock
+        ) {
+            sectionCalls.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> {
+                bothStarted.countDown();
+                try {
+                    if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                        throw new CompletionException(new OpenAIException("sections ran one after another"));
+                    }
+                } catch (InterruptedException e) {
+                    throw new CompletionException(e);
+                }
+                return PLAN;
+            });
+        }
+    }
+
+    private PlanGenerator generator(OpenAIClient client) {
+        return new PlanGenerator(client, new ConfigService(new YamlConfiguration()), Logger.getLogger("PlanGeneratorTest"));
+    }
+
+    @Test
+    void testNormalizePrompt() {
+        assertEquals("medieval watchtower", PlanGenerator.normalizePrompt("  Medieval   WATCHTOWER \n"));
+        assertEquals("a small hut", PlanGenerator.normalizePrompt("A small hut!"));
+    }
+
+    @Test
+    void testRepeatedPromptIsServedFromCache() throws Exception {
+        FakeClient client = new FakeClient();
+        client.release.countDown();
+        PlanGenerator generator = new PlanGenerator(client, new ConfigService(new YamlConfiguration()),
+            Logger.getLogger("PlanGeneratorTest"), new PlanCache(10000, null));
+
+        assertNull(generator.getCached("hut", 100, ALLOWED));
+        BuildPlan first = generator.generate("hut", 100, ALLOWED, msg -> { }, null);
+        BuildPlan cached = generator.getCached("Hut.", 100, ALLOWED).plan();
+        BuildPlan second = generator.generate("hut", 100, ALLOWED, msg -> { }, null);
+
+        assertEquals(1, client.calls.get());
+        assertNotNull(cached);
+        assertEquals(first.blocks.size(), cached.blocks.size());
+        assertEquals(first.blocks.size(), second.blocks.size());
+        assertEquals(2, generator.getCache().stats().memoryHits());
+    }
+
+    @Test
+    void testIdenticalConcurrentRequestsShareOneStream() throws Exception {
+        FakeClient client = new FakeClient();
+        PlanGenerator generator = generator(client);
+        List<BlockSpec> leaderBlocks = Collections.synchronizedList(new ArrayList<>());
+        List<BlockSpec> followerBlocks = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<BuildPlan> leader = CompletableFuture.supplyAsync(() -> generateUnchecked(
+            generator, "medieval watchtower", leaderBlocks::add));
+        assertTrue(client.started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<BuildPlan> follower = CompletableFuture.supplyAsync(() -> generateUnchecked(
+            generator, "Medieval  Watchtower", followerBlocks::add));
+        // Give the follower time to join before the stream finishes
+        Thread.sleep(100);
+        client.release.countDown();
+
+        BuildPlan a = leader.get(5, TimeUnit.SECONDS);
+        BuildPlan b = follower.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, client.calls.get());
+        assertSame(a, b);
+        assertEquals(1, generator.getCoalescedCount());
+        assertEquals(3, leaderBlocks.size());
+        assertEquals(3, followerBlocks.size());
+    }
+
+    @Test
+    void testCancellingLastCallerCancelsUpstream() throws Exception {
+        FakeClient client = new FakeClient();
+        PlanGenerator generator = generator(client);
+
+        CompletableFuture<BuildPlan> only = generator.generateAsync("hut", 100, ALLOWED, msg -> { }, null);
+        assertTrue(client.started.await(5, TimeUnit.SECONDS));
+        only.cancel(true);
+
+        // The stream handle is published just after the fake starts streaming
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((client.lastStream == null || !client.lastStream.isCancelled()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(client.lastStream.isCancelled());
+        client.release.countDown();
+    }
+
+    @Test
+    void testCancellingOneCallerKeepsSharedStream() throws Exception {
+        FakeClient client = new FakeClient();
+        PlanGenerator generator = generator(client);
+
+        CompletableFuture<BuildPlan> leader = generator.generateAsync("hut", 100, ALLOWED, msg -> { }, null);
+        assertTrue(client.started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<BuildPlan> follower = generator.generateAsync("hut", 100, ALLOWED, msg -> { }, null);
+        leader.cancel(true);
+        client.release.countDown();
+
+        assertEquals(3, follower.get(5, TimeUnit.SECONDS).blocks.size());
+        assertFalse(client.lastStream.isCancelled());
+        assertEquals(1, client.calls.get());
+    }
+
+    @Test
+    void testDifferentBlockLimitsAreNotCoalesced() throws Exception {
+        FakeClient client = new FakeClient();
+        client.release.countDown();
+        PlanGenerator generator = generator(client);
+
+        generator.generate("hut", 100, ALLOWED, msg -> { }, null);
+        generator.generate("hut", 200, ALLOWED, msg -> { }, null);
+
+        assertEquals(2, client.calls.get());
+        assertEquals(0, generator.getCoalescedCount());
+    }
+
+    @Test
+    void testInvalidSmallModelPlanIsEscalated() throws Exception {
+        TieredClient client = new TieredClient(false);
+        ModelRouter router = new ModelRouter("small-model", "large-model", 0.5, true);
+        PlanGenerator generator = new PlanGenerator(client, new ConfigService(new YamlConfiguration()),
+            Logger.getLogger("PlanGeneratorTest"), null, router);
+
+        BuildPlan plan = generator.generate("a fence", 100, ALLOWED, msg -> { }, block -> { });
+
+        assertEquals(3, plan.blocks.size());
+        assertEquals(List.of("small-model", "large-model"), client.models);
+        ModelRouter.ModelStats small = generator.getModelStats().get(0);
+        ModelRouter.ModelStats large = generator.getModelStats().get(1);
+        assertEquals(1, small.invalid());
+        assertEquals(1, small.escalated());
+        assertEquals(1, large.successes());
+    }
+
+    @Test
+    void testNoEscalationOnceBlocksWereDelivered() {
+        TieredClient client = new TieredClient(true);
+        ModelRouter router = new ModelRouter("small-model", "large-model", 0.5, true);
+        PlanGenerator generator = new PlanGenerator(client, new ConfigService(new YamlConfiguration()),
+            Logger.getLogger("PlanGeneratorTest"), null, router);
+
+        assertThrows(PlanParseException.class,
+            () -> generator.generate("a fence", 100, ALLOWED, msg -> { }, block -> { }));
+        assertEquals(List.of("small-model"), client.models);
+        assertEquals(0, generator.getModelStats().get(0).escalated());
+    }
+
+    @Test
+    void testRejectedStreamIsEscalatedWhenBlocksWereOnlyWatched() throws Exception {
+        RejectingClient client = new RejectingClient("Plan rejected: no foundation blocks at y=0");
+        ModelRouter router = new ModelRouter("small-model", "large-model", 0.5, true);
+        PlanGenerator generator = new PlanGenerator(client, new ConfigService(new YamlConfiguration()),
+            Logger.getLogger("PlanGeneratorTest"), null, router);
+        AtomicInteger watched = new AtomicInteger();
+
+        BuildPlan plan = generator.generate("a fence", 100, ALLOWED, msg -> { },
+            (PlanGenerator.BlockWatcher) block -> watched.incrementAndGet());
+
+        assertEquals(3, plan.blocks.size());
+        assertEquals(List.of("small-model", "large-model"), client.models);
+        ModelRouter.ModelStats small = generator.getModelStats().get(0);
+        assertEquals(1, small.invalid());
+        assertEquals(0, small.errors());
+        assertEquals(1, small.escalated());
+    }
+
+    @Test
+    void testRejectedStreamIsNotEscalatedOncePlaced() {
+        RejectingClient client = new RejectingClient("Stream aborted: plan truncated");
+        ModelRouter router = new ModelRouter("small-model", "large-model", 0.5, true);
+        PlanGenerator generator = new PlanGenerator(client, new ConfigService(new YamlConfiguration()),
+            Logger.getLogger("PlanGeneratorTest"), null, router);
+
+        OpenAIException e = assertThrows(OpenAIException.class,
+            () -> generator.generate("a fence", 100, ALLOWED, msg -> { }, block -> { }));
+
+        assertTrue(e.isPlanRejected());
+        assertEquals(List.of("small-model"), client.models);
+        ModelRouter.ModelStats small = generator.getModelStats().get(0);
+        assertEquals(1, small.invalid());
+        assertEquals(0, small.errors());
+        assertEquals(0, small.escalated());
+    }
+
+    @Test
+    void testLargeBuildIsFannedOutIntoConcurrentSections() throws Exception {
+        SectionedClient client = new SectionedClient();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("openai.fan_out.enabled", true);
+        yaml.set("openai.fan_out.min_blocks", 50);
+        PlanGenerator generator = new PlanGenerator(client, new ConfigService(yaml), Logger.getLogger("PlanGeneratorTest"));
+
+        BuildPlan plan = generator.generate("a tower", 100, ALLOWED, msg -> { }, block -> { });
+
+        assertEquals(2, client.sectionCalls.get());
+        assertEquals(4, plan.size.y);
+        // Three blocks per section; the top section's copies are lifted by two
+        assertEquals(6, plan.blocks.size());
+        assertTrue(plan.blocks.stream().anyMatch(b -> b.dy == 3));
+    }
+
+    @Test
+    void testSmallBuildIsNotFannedOut() throws Exception {
+        FakeClient client = new FakeClient();
+        client.release.countDown();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("openai.fan_out.enabled", true);
+        yaml.set("openai.fan_out.min_blocks", 1000);
+        PlanGenerator generator = new PlanGenerator(client, new ConfigService(yaml), Logger.getLogger("PlanGeneratorTest"));
+
+        generator.generate("a tower", 100, ALLOWED, msg -> { }, null);
+
+        assertEquals(1, client.calls.get());
+    }
+
+    @Test
+    void testFanOutEstimateCountsEveryRequest() {
+        FakeClient client = new FakeClient();
+
+        long single = client.estimateTokenCost("a tower", 1000, ALLOWED);
+        long twoSections = client.estimateFanOutTokenCost("a tower", 1000, ALLOWED, 2);
+        long fourSections = client.estimateFanOutTokenCost("a tower", 1000, ALLOWED, 4);
+
+        // The outline and each section send their own instructions on top of the same output
+        assertTrue(twoSections > single);
+        assertTrue(fourSections > twoSections);
+    }
+
+    @Test
+    void testSubsetPaletteRoundTripsThroughParser() throws Exception {
+        PaletteClient client = new PaletteClient();
+        Set<Material> allowed = Set.of(Material.STONE, Material.DIRT, Material.OAK_PLANKS, Material.GLASS,
+            Material.SANDSTONE, Material.BRICKS, Material.WHITE_WOOL, Material.OAK_LEAVES, Material.BLACKSTONE);
+        PlanGenerator generator = new PlanGenerator(client, new ConfigService(new YamlConfiguration()),
+            Logger.getLogger("PlanGeneratorTest"));
+
+        BuildPlan plan = generator.generate("a sandstone hut with glass windows", 100, allowed, msg -> { }, null);
+
+        assertEquals(4, client.palette.size());
+        assertEquals("GLASS", plan.blocks.get(0).material);
+        assertEquals("SANDSTONE", plan.blocks.get(1).material);
+    }
+
+    private static BuildPlan generateUnchecked(PlanGenerator generator, String prompt, IncrementalPlanParser.BlockSink sink) {
+        try {
+            return generator.generate(prompt, 100, ALLOWED, msg -> { }, sink);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -68,6 +68,60 @@ class PlanParserTest {
         assertTrue(ex.getMessage().contains("Failed to parse"));
     }
 
+    @Test
+    void testParseCompactFormat_Shapes() throws PlanParseException {
+        String json = "{\"s\": [5, 3, 5], \"b\": [[0, 0, 0, 4, 0, 4, 0], [0, 1, 0, 0, 2, 4, 1, 2], [2, 1, 2, 2]]}";
+
+        BuildPlan plan = parser.parse(json, materialNames);
+
+        assertEquals(25 + 5 + 1, plan.blocks.size());
+        assertEquals("STONE", plan.blocks.get(0).material);
+        assertEquals("OAK_PLANKS", plan.blocks.get(25).material);
+        assertEquals("GLASS", plan.blocks.get(30).material);
+    }
+
+    @Test
+    void testParseCompactFormat_Groups() throws PlanParseException {
+        String json = "{\"s\": [5, 3, 5], \"g\": [{\"repeat\": [0, 0, 2, 3], \"mirror\": \"x\", \"b\": [[0, 0, 0, 0, 2, 0, 1]]}], " +
+            "\"b\": [[1, 0, 1, 3, 0, 3, 0]]}";
+
+        BuildPlan plan = parser.parse(json, materialNames);
+
+        // Sections expand in document order, as the streaming parser places them
+        assertEquals(9 + 3 * 3 * 2, plan.blocks.size());
+        assertEquals("OAK_PLANKS", plan.blocks.get(0).material);
+        assertEquals("STONE", plan.blocks.get(plan.blocks.size() - 1).material);
+        assertTrue(plan.blocks.stream().anyMatch(b -> b.dx == 4 && b.dy == 2 && b.dz == 4));
+    }
+
+    @Test
+    void testParseCompactFormat_InvalidGroup() {
+        String json = "{\"s\": [5, 3, 5], \"g\": [{\"mirror\": \"w\", \"b\": [[0, 0, 0, 1]]}]}";
+
+        assertThrows(PlanParseException.class, () -> parser.parse(json, materialNames));
+    }
+
+    @Test
+    void testParseLayerGrid() throws PlanParseException {
+        String json = "{\"s\": [3, 2, 2], \"l\": [[\"000\", \"000\"], [\"1.1\", \". 2\"]]}";
+
+        BuildPlan plan = parser.parse(json, materialNames);
+
+        assertEquals(6 + 3, plan.blocks.size());
+        assertEquals(2, plan.size.y);
+        assertEquals("OAK_PLANKS", plan.blocks.get(7).material);
+        assertEquals(2, plan.blocks.get(7).dx);
+        assertEquals("GLASS", plan.blocks.get(8).material);
+        assertEquals(1, plan.blocks.get(8).dz);
+    }
+
+    @Test
+    void testParseCompactFormat_UnknownShapeKind() {
+        String json = "{\"s\": [5, 3, 5], \"b\": [[0, 0, 0, 4, 0, 4, 0, 7]]}";
+
+        assertThrows(PlanParseException.class, () -> parser.parse(json, materialNames));
+    }
+
     @Test
     void testParseCompactFormat_MaterialIdOutOfBounds() throws PlanParseException {
         String json = "{\"s\": [5, 3, 5], \"b\": [[0, 0, 0, 999]]}";
@@ -0,0 +1,105 @@
+package com.example.aibuild.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProgressTicker
+ */
+class ProgressTickerTest {
+
+    private List<Runnable> mainThreadTasks;
+    private ProgressTicker ticker;
+
+    @BeforeEach
+    void setUp() {
+        mainThreadTasks = new ArrayList<>();
+        ticker = new ProgressTicker(mainThreadTasks::add, 500, 0);
+    }
+
+    private void runMainThread() {
+        mainThreadTasks.forEach(Runnable::run);
+        mainThreadTasks.clear();
+    }
+
+    @Test
+    void testOneMainThreadTaskPerTick() {
+        List<String> alice = new ArrayList<>();
+        List<String> bob = new ArrayList<>();
+        ticker.track(alice::add).message("retrying");
+        ticker.track(bob::add).message("queued");
+
+        ticker.tick();
+
+        assertEquals(1, mainThreadTasks.size());
+        runMainThread();
+        assertEquals(List.of("retrying"), alice);
+        assertEquals(List.of("queued"), bob);
+    }
+
+    @Test
+    void testProgressLineReportsBlocks() {
+        List<String> received = new ArrayList<>();
+        ProgressTicker.Handle handle = ticker.track(received::add);
+
+        ticker.tick();
+        handle.onBlock();
+        handle.onBlock();
+        ticker.tick();
+        runMainThread();
+
+        assertEquals(2, received.size());
+        assertEquals("⚒ Gathering materials...", received.get(0));
+        assertTrue(received.get(1).contains("2 blocks"));
+    }
+
+    @Test
+    void testQuietRequestWaitsForInterval() {
+        ticker = new ProgressTicker(mainThreadTasks::add, 500, 60_000);
+        ticker.track(msg -> { });
+
+        ticker.tick();
+
+        assertTrue(mainThreadTasks.isEmpty());
+    }
+
+    @Test
+    void testFailureMessageFromHandlerIsDelivered() {
+        List<String> received = new ArrayList<>();
+        ProgressTicker.Handle handle = ticker.track(received::add);
+        CompletableFuture<String> generation = new CompletableFuture<>();
+
+        CompletableFuture<String> returned = handle.closeAfter(generation, (plan, error) -> {
+            if (error != null) handle.message("Generation failed: " + error.getMessage());
+        });
+        generation.completeExceptionally(new IllegalStateException("no foundation"));
+        ticker.tick();
+        runMainThread();
+
+        assertSame(generation, returned);
+        assertEquals(List.of("Generation failed: no foundation"), received);
+        assertEquals(0, ticker.activeCount());
+    }
+
+    @Test
+    void testClosedHandleFlushesThenLeaves() {
+        List<String> received = new ArrayList<>();
+        ProgressTicker.Handle handle = ticker.track(received::add);
+        handle.message("Invalid plan");
+        handle.close();
+
+        ticker.tick();
+        runMainThread();
+        ticker.tick();
+
+        assertEquals(List.of("Invalid plan"), received);
+        assertEquals(0, ticker.activeCount());
+        assertTrue(mainThreadTasks.isEmpty());
+    }
+}
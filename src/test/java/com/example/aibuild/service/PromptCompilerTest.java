@@ -0,0 +1,103 @@
+package com.example.aibuild.service;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PromptCompiler
+ */
+class PromptCompilerTest {
+
+    private static final Set<Material> PALETTE = Set.of(Material.STONE, Material.GLASS, Material.OAK_PLANKS);
+
+    @Test
+    void testCompiledOncePerConfiguration() {
+        PromptCompiler compiler = new PromptCompiler();
+
+        PromptCompiler.CompiledPrompt first = compiler.compile(PALETTE, 500);
+        PromptCompiler.CompiledPrompt second = compiler.compile(EnumSet.copyOf(PALETTE), 500);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void testBlockLimitDoesNotChangePrefix() {
+        PromptCompiler compiler = new PromptCompiler();
+
+        String small = compiler.compile(PALETTE, 500).instructions();
+        String large = compiler.compile(PALETTE, 2500).instructions();
+
+        assertTrue(small.startsWith(PromptCompiler.STATIC_PREFIX));
+        int limit = small.indexOf("shapes <= 500");
+        assertTrue(limit > 0);
+        assertEquals(small.substring(0, limit), large.substring(0, limit));
+        assertEquals(compiler.compile(PALETTE, 500).cacheKey(), compiler.compile(PALETTE, 2500).cacheKey());
+    }
+
+    @Test
+    void testMaterialTableMatchesSortedNames() {
+        PromptCompiler compiler = new PromptCompiler();
+        PromptCompiler.CompiledPrompt prompt = compiler.compile(PALETTE, 100);
+
+        assertArrayEquals(new String[]{"GLASS", "OAK_PLANKS", "STONE"}, prompt.materialNames());
+        assertTrue(prompt.instructions().contains("0=GLASS\n1=OAK_PLANKS\n2=STONE\n"));
+        assertSame(prompt.materialNames(), compiler.materialNames(PALETTE));
+    }
+
+    @Test
+    void testLayerFormatUsesPaletteCharacters() {
+        PromptCompiler compiler = new PromptCompiler();
+
+        PromptCompiler.CompiledPrompt prompt = compiler.compile(PALETTE, 100, PlanFormat.LAYERS);
+
+        assertTrue(prompt.instructions().startsWith(PromptCompiler.LAYER_PREFIX));
+        assertTrue(prompt.instructions().contains("0=GLASS\n1=OAK_PLANKS\n2=STONE\n"));
+        assertTrue(prompt.instructions().contains("s[0]*s[1]*s[2] <= 300"));
+        assertArrayEquals(compiler.materialNames(PALETTE), prompt.materialNames());
+        assertNotEquals(compiler.compile(PALETTE, 100).cacheKey(), prompt.cacheKey());
+    }
+
+    @Test
+    void testOrderedPaletteIsNumberedInGivenOrder() {
+        PromptCompiler compiler = new PromptCompiler();
+        List<Material> palette = List.of(Material.STONE, Material.GLASS);
+
+        PromptCompiler.CompiledPrompt prompt = compiler.compile(palette, 100, PlanFormat.TUPLES);
+
+        assertArrayEquals(new String[]{"STONE", "GLASS"}, prompt.materialNames());
+        assertTrue(prompt.instructions().contains("0=STONE\n1=GLASS\n"));
+        assertSame(prompt.materialNames(), compiler.materialNames(palette));
+        assertNotEquals(prompt.cacheKey(), compiler.compile(Set.copyOf(palette), 100).cacheKey());
+    }
+
+    @Test
+    void testSubsetsDoNotEvictWholePalette() {
+        PromptCompiler compiler = new PromptCompiler();
+        PromptCompiler.CompiledPrompt whole = compiler.compile(PALETTE, 100);
+
+        List<Material> materials = List.of(Material.values());
+        for (int i = 0; i + 2 < materials.size(); i++) {
+            for (int blocks = 1; blocks <= 5; blocks++) {
+                compiler.compile(materials.subList(i, i + 2), blocks, PlanFormat.TUPLES);
+            }
+        }
+
+        assertSame(whole, compiler.compile(PALETTE, 100));
+    }
+
+    @Test
+    void testDifferentPalettesGetDifferentCacheKeys() {
+        PromptCompiler compiler = new PromptCompiler();
+
+        String a = compiler.compile(PALETTE, 100).cacheKey();
+        String b = compiler.compile(Set.of(Material.STONE), 100).cacheKey();
+
+        assertNotEquals(a, b);
+    }
+}
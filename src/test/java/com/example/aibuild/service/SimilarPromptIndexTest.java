@@ -0,0 +1,100 @@
+package com.example.aibuild.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SimilarPromptIndex
+ */
+class SimilarPromptIndexTest {
+
+    private static final String[] PALETTE = {"GLASS", "OAK_PLANKS", "STONE"};
+
+    private static PlanGenerator.GenerationKey key(String prompt) {
+        return PlanGenerator.GenerationKey.of(prompt, "test-model", PALETTE, 500);
+    }
+
+    @Test
+    void testShinglesDropStopWordsAndPlurals() {
+        assertEquals(Set.of("small", "house", "oak"),
+            SimilarPromptIndex.shingles(PlanGenerator.normalizePrompt("A small house made of oak")));
+        assertEquals(Set.of("tower", "glass"),
+            SimilarPromptIndex.shingles(PlanGenerator.normalizePrompt("towers of glass")));
+    }
+
+    @Test
+    void testFindsRewordedPrompt() {
+        SimilarPromptIndex index = new SimilarPromptIndex(0.8, 100);
+        index.add(key("small oak house"));
+        index.add(key("stone watchtower"));
+
+        SimilarPromptIndex.Match match = index.findSimilar(key("a small house made of oak"));
+
+        assertNotNull(match);
+        assertEquals("small oak house", match.key().prompt());
+        assertEquals(1.0, match.similarity(), 1e-9);
+    }
+
+    @Test
+    void testBelowThresholdIsNotMatched() {
+        SimilarPromptIndex index = new SimilarPromptIndex(0.8, 100);
+        index.add(key("small oak house"));
+
+        assertNull(index.findSimilar(key("large stone castle with moat")));
+        assertNull(index.findSimilar(key("small oak house with garden")));
+    }
+
+    @Test
+    void testDifferentScopeIsNotMatched() {
+        SimilarPromptIndex index = new SimilarPromptIndex(0.8, 100);
+        index.add(key("small oak house"));
+
+        assertNull(index.findSimilar(PlanGenerator.GenerationKey.of("a small house of oak", "test-model", PALETTE, 200)));
+        assertNull(index.findSimilar(PlanGenerator.GenerationKey.of("a small house of oak", "other-model", PALETTE, 500)));
+    }
+
+    @Test
+    void testOldestEntriesAreForgotten() {
+        SimilarPromptIndex index = new SimilarPromptIndex(0.8, 2);
+        index.add(key("small oak house"));
+        index.add(key("stone tower"));
+        index.add(key("glass dome"));
+
+        assertEquals(2, index.size());
+        assertNull(index.findSimilar(key("oak house small")));
+        assertNotNull(index.findSimilar(key("the glass dome")));
+    }
+
+    @Test
+    void testRemoveIf() {
+        SimilarPromptIndex index = new SimilarPromptIndex(0.8, 100);
+        index.add(key("small oak house"));
+        index.removeIf(k -> k.prompt().equals("small oak house"));
+
+        assertNull(index.findSimilar(key("a small house of oak")));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testLookupStaysFastOnLargeIndex() {
+        SimilarPromptIndex index = new SimilarPromptIndex(0.8, 50000);
+        String[] words = {"oak", "stone", "glass", "brick", "house", "tower", "bridge", "castle", "wall",
+            "small", "large", "tall", "round", "modern", "medieval", "cottage", "barn", "dome", "arch", "gate"};
+        for (int i = 0; i < 20000; i++) {
+            index.add(key(words[i % 20] + " " + words[(i / 20) % 20] + " " + words[(i / 400) % 20] + " v" + i));
+        }
+
+        long start = System.nanoTime();
+        int lookups = 2000;
+        for (int i = 0; i < lookups; i++) {
+            index.findSimilar(key("a " + words[i % 20] + " " + words[(i * 7) % 20] + " house"));
+        }
+        long avgMicros = (System.nanoTime() - start) / 1000 / lookups;
+
+        // Generous bound for slow CI machines; typical lookups take a few microseconds
+        assertTrue(avgMicros < 1000, "average lookup took " + avgMicros + "us");
+    }
+}
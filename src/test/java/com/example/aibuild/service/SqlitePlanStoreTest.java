@@ -0,0 +1,118 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.model.BlockSpec;
+import com.example.aibuild.model.BuildPlan;
+import com.example.aibuild.model.CachedPlan;
+import com.example.aibuild.model.Size;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for SqlitePlanStore; skipped when the SQLite driver is not on the classpath
+ */
+class SqlitePlanStoreTest {
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        boolean driver;
+        try {
+            Class.forName("org.sqlite.JDBC");
+            driver = true;
+        } catch (ClassNotFoundException e) {
+            driver = false;
+        }
+        assumeTrue(driver, "SQLite JDBC driver not available");
+        dir = Files.createTempDirectory("plan-store-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (dir == null) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private SqlitePlanStore open(int maxEntries) throws Exception {
+        return new SqlitePlanStore(dir.resolve("plans.db").toFile(), maxEntries, Logger.getLogger("SqlitePlanStoreTest"));
+    }
+
+    private static CachedPlan plan(String prompt, int blocks) {
+        BuildPlan plan = new BuildPlan();
+        plan.size = new Size(5, 5, 5);
+        plan.blocks = new ArrayList<>();
+        for (int i = 0; i < blocks; i++) {
+            plan.blocks.add(new BlockSpec(i % 5, 0, i / 5, "STONE"));
+        }
+        return CachedPlan.from(prompt, plan);
+    }
+
+    @Test
+    void testSaveAndLoadAcrossConnections() throws Exception {
+        try (SqlitePlanStore store = open(10)) {
+            store.save("hut", plan("hut", 3));
+        }
+        try (SqlitePlanStore store = open(10)) {
+            CachedPlan loaded = store.load("hut");
+            assertNotNull(loaded);
+            assertEquals(3, loaded.blockCount());
+            assertNull(store.load("tower"));
+        }
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() throws Exception {
+        try (SqlitePlanStore store = open(2)) {
+            store.save("a", plan("a", 1));
+            Thread.sleep(5);
+            store.save("b", plan("b", 1));
+            Thread.sleep(5);
+            store.load("a");
+            Thread.sleep(5);
+
+            assertEquals(1, store.save("c", plan("c", 1)));
+            assertNotNull(store.load("a"));
+            assertNull(store.load("b"));
+        }
+    }
+
+    @Test
+    void testRemoveIfAndClear() throws Exception {
+        try (SqlitePlanStore store = open(10)) {
+            store.save("a", plan("hut", 1));
+            store.save("b", plan("tower", 1));
+
+            assertEquals(1, store.removeIf(p -> p.prompt.equals("hut")));
+            assertNull(store.load("a"));
+            assertEquals(1, store.clear());
+        }
+    }
+
+    @Test
+    void testRemovePromptDeletesEveryKeyForIt() throws Exception {
+        try (SqlitePlanStore store = open(10)) {
+            store.save("a", plan("hut", 1));
+            store.save("b", plan("hut", 2));
+            store.save("c", plan("tower", 1));
+
+            assertEquals(2, store.removePrompt("hut"));
+            assertNull(store.load("b"));
+            assertNotNull(store.load("c"));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.aibuild.service;
+
+import com.example.aibuild.OpenAIClient;
+import com.example.aibuild.exception.OpenAIException;
+import com.example.aibuild.model.BlockSpec;
+import com.example.aibuild.model.BuildPlan;
+import com.example.aibuild.model.Size;
+import org.bukkit.Material;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TiledGenerator
+ */
+class TiledGeneratorTest {
+
+    private static final Set<Material> ALLOWED = Set.of(Material.STONE, Material.GLASS);
+    private static final Pattern TILE_SIZE = Pattern.compile("s = \\[(\\d+), height, (\\d+)]");
+
+    /**
+     * Client that answers every tile with a floor along its far edges, tracking concurrency
+     */
+    private static class TileClient extends OpenAIClient {
+        final List<String> prompts = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        volatile String failOn;
+
+        TileClient() {
+            super("sk-test-key-for-unit-tests", "test-model", 1000);
+        }
+
+        @Override
+        public CompletableFuture<String> generateBuildPlanJsonAsync(
+                String model,
+                String userPrompt,
+                int maxBlocks,
+                Set<Material> allowed,
+                Consumer<String> onProgress,
+                IncrementalPlanParser.BlockSink onBlock
+        ) {
+            prompts.add(userPrompt);
+            Matcher size = TILE_SIZE.matcher(userPrompt);
+            assertTrue(size.find());
+            int w = Integer.parseInt(size.group(1));
+            int d = Integer.parseInt(size.group(2));
+            return CompletableFuture.supplyAsync(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                if (failOn != null && userPrompt.contains(failOn)) {
+                    throw new CompletionException(new OpenAIException("tile failed"));
+                }
+                return String.format("{\"s\":[%d,2,%d],\"b\":[[0,0,0,0],[%d,0,%d,1],[%d,1,%d,0]]}",
+                    w, d, w - 1, d - 1, w - 1, 0);
+            });
+        }
+    }
+
+    private static TiledGenerator tiled(TileClient client, int tileSize, int maxParallel) {
+        PlanGenerator generator = new PlanGenerator(client, new ConfigService(new YamlConfiguration()),
+            Logger.getLogger("TiledGeneratorTest"));
+        return new TiledGenerator(generator, tileSize, maxParallel);
+    }
+
+    @Test
+    void testSplitCoversFootprintWithBalancedTiles() {
+        List<TiledGenerator.Tile> tiles = TiledGenerator.split(300, 300, 64);
+
+        assertEquals(25, tiles.size());
+        int area = 0;
+        for (TiledGenerator.Tile tile : tiles) {
+            assertTrue(tile.width() <= 64 && tile.width() >= 59);
+            area += tile.width() * tile.depth();
+        }
+        assertEquals(300 * 300, area);
+        TiledGenerator.Tile last = tiles.get(tiles.size() - 1);
+        assertEquals(300, last.x() + last.width());
+        assertEquals(300, last.z() + last.depth());
+    }
+
+    @Test
+    void testTilesAreShiftedToSiteCoordinates() throws Exception {
+        TileClient client = new TileClient();
+        List<BlockSpec> blocks = Collections.synchronizedList(new ArrayList<>());
+
+        TiledGenerator.Result result = tiled(client, 20, 4)
+            .generate("a town", 40, 20, 100, ALLOWED, msg -> { }, blocks::add)
+            .get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, result.tiles());
+        assertEquals(0, result.failed());
+        assertEquals(6, result.blocks());
+        assertTrue(blocks.stream().anyMatch(b -> b.dx == 39 && b.dz == 19));
+        assertTrue(blocks.stream().anyMatch(b -> b.dx == 20 && b.dz == 0));
+    }
+
+    @Test
+    void testNeighbourEdgesAreInPrompts() throws Exception {
+        TileClient client = new TileClient();
+
+        tiled(client, 10, 4).generate("a town", 20, 20, 100, ALLOWED, msg -> { }, block -> { })
+            .get(5, TimeUnit.SECONDS);
+
+        assertEquals(4, client.prompts.size());
+        // The first tile has no neighbours yet; the last one joins two
+        assertFalse(client.prompts.get(0).contains("must join"));
+        String last = client.prompts.get(3);
+        assertTrue(last.contains("x 10-19, z 10-19"));
+        assertTrue(last.contains("The x=0 edge must join"));
+        assertTrue(last.contains("The z=0 edge must join"));
+    }
+
+    @Test
+    void testTilesOnOneDiagonalRunInParallelWithinLimit() throws Exception {
+        TileClient client = new TileClient();
+
+        tiled(client, 10, 2).generate("a town", 40, 40, 100, ALLOWED, msg -> { }, block -> { })
+            .get(10, TimeUnit.SECONDS);
+
+        assertEquals(16, client.prompts.size());
+        assertEquals(2, client.peak.get());
+    }
+
+    @Test
+    void testFailedTileIsSkipped() throws Exception {
+        TileClient client = new TileClient();
+        client.failOn = "x 10-19, z 0-9";
+        List<String> progress = Collections.synchronizedList(new ArrayList<>());
+
+        TiledGenerator.Result result = tiled(client, 10, 4)
+            .generate("a town", 20, 20, 100, ALLOWED, progress::add, block -> { })
+            .get(5, TimeUnit.SECONDS);
+
+        assertEquals(4, result.tiles());
+        assertEquals(1, result.failed());
+        assertTrue(progress.stream().anyMatch(msg -> msg.contains("failed")));
+    }
+
+    @Test
+    void testEdgeSummaryIsRunLengthEncoded() {
+        TiledGenerator.Tile tile = new TiledGenerator.Tile(0, 0, 0, 0, 4, 6);
+        BuildPlan plan = new BuildPlan();
+        plan.size = new Size(4, 5, 6);
+        plan.blocks = new ArrayList<>();
+        for (int z = 0; z < 3; z++) {
+            plan.blocks.add(new BlockSpec(3, 0, z, "STONE"));
+            plan.blocks.add(new BlockSpec(3, 2, z, "GLASS"));
+        }
+
+        assertEquals("z 0-2: up to y=2 GLASS; z 3-5: empty", TiledGenerator.edgeSummary(plan, tile, false));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.aibuild.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ApiKeyPool
+ */
+class ApiKeyPoolTest {
+
+    private static final String KEY_A = "sk-proj-aaaaaaaaaaaaaaaa1111";
+    private static final String KEY_B = "sk-proj-bbbbbbbbbbbbbbbb2222";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    private ApiKeyPool pool() {
+        return new ApiKeyPool(List.of(KEY_A, KEY_B), clock::get);
+    }
+
+    @Test
+    void testLeastLoadedKeyIsChosen() {
+        ApiKeyPool pool = pool();
+
+        ApiKeyPool.Lease first = pool.acquire();
+        ApiKeyPool.Lease second = pool.acquire();
+        assertNotEquals(first.apiKey(), second.apiKey());
+
+        pool.releaseSuccess(first);
+        ApiKeyPool.Lease third = pool.acquire();
+        assertEquals(first.apiKey(), third.apiKey());
+    }
+
+    @Test
+    void testRateLimitedKeyIsBenchedUntilRecovery() {
+        ApiKeyPool pool = pool();
+        ApiKeyPool.Lease lease = pool.acquire();
+        pool.release(lease, 429, 5000);
+
+        assertEquals(1, pool.availableCount());
+        for (int i = 0; i < 3; i++) {
+            assertNotEquals(lease.apiKey(), pool.acquire().apiKey());
+        }
+
+        clock.addAndGet(5001);
+        assertEquals(2, pool.availableCount());
+    }
+
+    @Test
+    void testRepeatedThrottlingBacksOffLonger() {
+        ApiKeyPool pool = new ApiKeyPool(List.of(KEY_A), clock::get);
+        pool.release(pool.acquire(), 429, 1000);
+        clock.addAndGet(1001);
+        pool.release(pool.acquire(), 429, 1000);
+
+        assertEquals(2000, pool.stats().get(0).benchedForMs());
+    }
+
+    @Test
+    void testAuthFailureBenchesAndCountsErrors() {
+        ApiKeyPool pool = pool();
+        ApiKeyPool.Lease lease = pool.acquire();
+        pool.release(lease, 401, -1);
+
+        ApiKeyPool.KeyStats stats = pool.stats().stream()
+            .filter(k -> k.label().endsWith(lease.apiKey().substring(lease.apiKey().length() - 4)))
+            .findFirst().orElseThrow();
+        assertEquals(1, stats.errors());
+        assertEquals(401, stats.lastStatus());
+        assertTrue(stats.benchedForMs() > 0);
+    }
+
+    @Test
+    void testAllBenchedStillReturnsSoonestRecovering() {
+        ApiKeyPool pool = pool();
+        ApiKeyPool.Lease a = pool.acquire();
+        ApiKeyPool.Lease b = pool.acquire();
+        pool.release(a, 429, 10_000);
+        pool.release(b, 429, 2000);
+
+        assertEquals(0, pool.availableCount());
+        assertEquals(b.apiKey(), pool.acquire().apiKey());
+    }
+
+    @Test
+    void testReleaseIsIdempotent() {
+        ApiKeyPool pool = pool();
+        ApiKeyPool.Lease lease = pool.acquire();
+        pool.releaseSuccess(lease);
+        pool.releaseCancelled(lease);
+        pool.release(lease, 500, -1);
+
+        assertEquals(0, pool.stats().stream().mapToInt(ApiKeyPool.KeyStats::inFlight).sum());
+        assertEquals(0, pool.stats().stream().mapToLong(ApiKeyPool.KeyStats::errors).sum());
+    }
+
+    @Test
+    void testMaskHidesKey() {
+        assertEquals("sk-...1111", ApiKeyPool.mask(KEY_A));
+        assertEquals("****", ApiKeyPool.mask("short"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.aibuild.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HedgeBudget
+ */
+class HedgeBudgetTest {
+
+    @Test
+    void testRateCapWithinWindow() {
+        HedgeBudget budget = new HedgeBudget(0.1, 100);
+        int granted = 0;
+        for (int i = 0; i < 100; i++) {
+            long request = budget.onRequest();
+            if (budget.tryAcquire(request)) granted++;
+        }
+        assertEquals(10, granted);
+    }
+
+    @Test
+    void testOneHedgePerRequest() {
+        HedgeBudget budget = new HedgeBudget(1.0, 10);
+        long request = budget.onRequest();
+        assertTrue(budget.tryAcquire(request));
+        assertFalse(budget.tryAcquire(request));
+    }
+
+    @Test
+    void testBudgetRecoversAsWindowSlides() {
+        HedgeBudget budget = new HedgeBudget(0.5, 4);
+        long first = budget.onRequest();
+        budget.onRequest();
+        assertTrue(budget.tryAcquire(first));
+
+        long third = budget.onRequest();
+        assertFalse(budget.tryAcquire(third));
+
+        // Push the hedged request out of the window
+        for (int i = 0; i < 4; i++) budget.onRequest();
+        long later = budget.onRequest();
+        assertTrue(budget.tryAcquire(later));
+        assertFalse(budget.tryAcquire(first));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.aibuild.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LatencyTracker
+ */
+class LatencyTrackerTest {
+
+    @Test
+    void testEmptyTrackerHasNoPercentile() {
+        LatencyTracker tracker = new LatencyTracker(10);
+        assertEquals(0, tracker.sampleCount());
+        assertEquals(-1, tracker.percentile(95));
+    }
+
+    @Test
+    void testNearestRankPercentile() {
+        LatencyTracker tracker = new LatencyTracker(100);
+        for (int i = 1; i <= 100; i++) {
+            tracker.record(i * 10L);
+        }
+
+        assertEquals(500, tracker.percentile(50));
+        assertEquals(950, tracker.percentile(95));
+        assertEquals(1000, tracker.percentile(100));
+    }
+
+    @Test
+    void testOldSamplesAreEvicted() {
+        LatencyTracker tracker = new LatencyTracker(3);
+        tracker.record(5000);
+        tracker.record(100);
+        tracker.record(200);
+        tracker.record(300);
+
+        assertEquals(3, tracker.sampleCount());
+        assertEquals(300, tracker.percentile(100));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.aibuild.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RateLimitHeaders parsing
+ */
+class RateLimitHeadersTest {
+
+    @Test
+    void testParseSimpleDurations() {
+        assertEquals(20, RateLimitHeaders.parseDurationMs("20ms"));
+        assertEquals(1000, RateLimitHeaders.parseDurationMs("1s"));
+        assertEquals(1500, RateLimitHeaders.parseDurationMs("1.5s"));
+    }
+
+    @Test
+    void testParseCompoundDurations() {
+        assertEquals(360_000, RateLimitHeaders.parseDurationMs("6m0s"));
+        assertEquals(3_723_500, RateLimitHeaders.parseDurationMs("1h2m3.5s"));
+    }
+
+    @Test
+    void testParseInvalidDurations() {
+        assertEquals(-1, RateLimitHeaders.parseDurationMs(null));
+        assertEquals(-1, RateLimitHeaders.parseDurationMs(""));
+        assertEquals(-1, RateLimitHeaders.parseDurationMs("soon"));
+        assertEquals(-1, RateLimitHeaders.parseDurationMs("5x3s"));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.aibuild.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RetryPolicy backoff
+ */
+class RetryPolicyTest {
+
+    @Test
+    void testFirstDelayIsBaseDelay() {
+        RetryPolicy policy = new RetryPolicy(4, 500, 20000, 60000);
+        assertEquals(500, policy.nextDelayMs(0, -1));
+    }
+
+    @Test
+    void testDelaysStayWithinJitterBounds() {
+        RetryPolicy policy = new RetryPolicy(4, 500, 20000, 60000);
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.nextDelayMs(2000, -1);
+            assertTrue(delay >= 500 && delay <= 6000, "delay " + delay);
+        }
+    }
+
+    @Test
+    void testDelayIsCapped() {
+        RetryPolicy policy = new RetryPolicy(4, 500, 20000, 60000);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.nextDelayMs(50000, -1) <= 20000);
+        }
+    }
+
+    @Test
+    void testServerHintIsHonoured() {
+        RetryPolicy policy = new RetryPolicy(4, 500, 20000, 60000);
+        assertEquals(30000, policy.nextDelayMs(0, 30000));
+    }
+}
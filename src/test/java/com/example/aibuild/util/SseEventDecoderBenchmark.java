@@ -0,0 +1,117 @@
+package com.example.aibuild.util;
+
+import com.google.gson.Gson;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-event cost of decoding a Responses API stream: the previous Gson tree parse
+ * versus SseEventDecoder. Replays a synthetic stream shaped like a 2,500-block plan.
+ *
+ * Run: ./gradlew runSseBenchmark (or run main() directly)
+ */
+public class SseEventDecoderBenchmark {
+
+    private static final Gson GSON = new Gson();
+    private static final int ROUNDS = 200;
+
+    public static void main(String[] args) {
+        List<String[]> events = syntheticStream(2500);
+        System.out.println("\n=== SSE decoding benchmark (" + events.size() + " events per stream) ===\n");
+
+        // Warm up both paths so the JIT has settled before measuring
+        for (int i = 0; i < 20; i++) {
+            runGson(events);
+            runDecoder(events);
+        }
+
+        report("Gson tree parse", events, SseEventDecoderBenchmark::runGson);
+        report("SseEventDecoder", events, SseEventDecoderBenchmark::runDecoder);
+    }
+
+    private interface Pass {
+        long run(List<String[]> events);
+    }
+
+    private static void report(String label, List<String[]> events, Pass pass) {
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long chars = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            chars += pass.run(events);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - bytesBefore;
+        long totalEvents = (long) events.size() * ROUNDS;
+        System.out.printf("%-18s %8.1f bytes/event %8.1f ns/event  (%d delta chars)%n",
+            label, (double) allocated / totalEvents, (double) elapsed / totalEvents, chars / ROUNDS);
+    }
+
+    private static long runGson(List<String[]> events) {
+        long chars = 0;
+        for (String[] event : events) {
+            String delta = gsonDelta(event[1]);
+            if (delta != null) chars += delta.length();
+        }
+        return chars;
+    }
+
+    private static long runDecoder(List<String[]> events) {
+        long chars = 0;
+        for (String[] event : events) {
+            String delta = SseEventDecoder.textDelta(event[0], event[1]);
+            if (delta != null) chars += delta.length();
+        }
+        return chars;
+    }
+
+    /**
+     * The decoding OpenAIClient used before SseEventDecoder
+     */
+    private static String gsonDelta(String rawJson) {
+        Object rootObj = GSON.fromJson(rawJson, Object.class);
+        if (!(rootObj instanceof Map<?, ?> root)) return null;
+        if (SseEventDecoder.TEXT_DELTA.equals(root.get("type")) && root.get("delta") instanceof String s) return s;
+        return null;
+    }
+
+    /**
+     * Bookkeeping events around a delta per block, as the Responses API sends them
+     */
+    private static List<String[]> syntheticStream(int blocks) {
+        List<String[]> events = new ArrayList<>();
+        int seq = 0;
+        events.add(new String[]{"response.created",
+            "{\"type\":\"response.created\",\"sequence_number\":" + seq++ + ",\"response\":{\"id\":\"resp_1\","
+                + "\"object\":\"response\",\"status\":\"in_progress\",\"model\":\"gpt-4o-mini\",\"output\":[]}}"});
+        events.add(new String[]{"response.in_progress",
+            "{\"type\":\"response.in_progress\",\"sequence_number\":" + seq++ + ",\"response\":{\"id\":\"resp_1\","
+                + "\"status\":\"in_progress\"}}"});
+        events.add(new String[]{"response.output_item.added",
+            "{\"type\":\"response.output_item.added\",\"sequence_number\":" + seq++ + ",\"output_index\":0,"
+                + "\"item\":{\"id\":\"msg_1\",\"type\":\"message\",\"status\":\"in_progress\",\"content\":[]}}"});
+        for (int b = 0; b < blocks; b++) {
+            String tuple = "[" + (b % 20) + "," + (b / 400) + "," + (b / 20 % 20) + "," + (b % 4) + "],";
+            events.add(new String[]{SseEventDecoder.TEXT_DELTA,
+                "{\"type\":\"response.output_text.delta\",\"sequence_number\":" + seq++ + ",\"item_id\":\"msg_1\","
+                    + "\"output_index\":0,\"content_index\":0,\"delta\":\"" + tuple + "\",\"logprobs\":[]}"});
+        }
+        events.add(new String[]{"response.output_text.done",
+            "{\"type\":\"response.output_text.done\",\"sequence_number\":" + seq++ + ",\"text\":\"...\"}"});
+        events.add(new String[]{"response.completed",
+            "{\"type\":\"response.completed\",\"sequence_number\":" + seq + ",\"response\":{\"id\":\"resp_1\","
+                + "\"status\":\"completed\",\"usage\":{\"input_tokens\":812,\"output_tokens\":25000}}}"});
+        return events;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sun) {
+            return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
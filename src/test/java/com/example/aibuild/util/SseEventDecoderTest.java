@@ -0,0 +1,72 @@
+package com.example.aibuild.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SseEventDecoder
+ */
+class SseEventDecoderTest {
+
+    private static final String DELTA = SseEventDecoder.TEXT_DELTA;
+
+    @Test
+    void testExtractsDelta() {
+        String data = "{\"type\":\"response.output_text.delta\",\"item_id\":\"msg_1\",\"output_index\":0,"
+            + "\"content_index\":0,\"delta\":\"[1,0,2,3],\",\"sequence_number\":12}";
+        assertEquals("[1,0,2,3],", SseEventDecoder.textDelta(DELTA, data));
+        assertEquals("[1,0,2,3],", SseEventDecoder.textDelta(null, data));
+    }
+
+    @Test
+    void testDeltaBeforeTypeAndWhitespace() {
+        String data = "{ \"delta\" : \"{\\\"s\\\":\" , \"type\" : \"response.output_text.delta\" }";
+        assertEquals("{\"s\":", SseEventDecoder.textDelta(null, data));
+    }
+
+    @Test
+    void testUnescapesSequences() {
+        String data = "{\"type\":\"response.output_text.delta\",\"delta\":\"a\\nb\\t\\u00e9\\\\\"}";
+        assertEquals("a\nb\té\\", SseEventDecoder.textDelta(null, data));
+    }
+
+    @Test
+    void testSkipsOtherEvents() {
+        String created = "{\"type\":\"response.created\",\"response\":{\"id\":\"resp_1\",\"output\":[]}}";
+        assertNull(SseEventDecoder.textDelta("response.created", created));
+        assertNull(SseEventDecoder.textDelta(null, created));
+        // Event name alone is enough to skip, whatever the payload
+        assertNull(SseEventDecoder.textDelta("response.in_progress", "not json"));
+    }
+
+    @Test
+    void testNestedValuesAreSkipped() {
+        String data = "{\"obfuscation\":{\"a\":[1,{\"delta\":\"no\"}],\"b\":\"}\"},\"logprobs\":[],"
+            + "\"type\":\"response.output_text.delta\",\"delta\":\"yes\"}";
+        assertEquals("yes", SseEventDecoder.textDelta(null, data));
+    }
+
+    @Test
+    void testMalformedPayloadsReturnNull() {
+        assertNull(SseEventDecoder.textDelta(null, "{\"type\":\"response.output_text.delta\",\"delta\":\"unterminated"));
+        assertNull(SseEventDecoder.textDelta(null, "[1,2]"));
+        assertNull(SseEventDecoder.textDelta(null, "{\"type\":\"response.output_text.delta\"}"));
+        assertNull(SseEventDecoder.textDelta(null, "{\"type\":\"response.output_text.delta\",\"delta\":\"\\u12\"}"));
+    }
+
+    @Test
+    void testChatCompletionsDelta() {
+        String data = "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion.chunk\",\"model\":\"llama\","
+            + "\"choices\":[{\"index\":0,\"delta\":{\"content\":\"[0,0,\\\"1\\\"]\"},\"finish_reason\":null}]}";
+        assertEquals("[0,0,\"1\"]", SseEventDecoder.chatDelta(data));
+    }
+
+    @Test
+    void testChatChunksWithoutContent() {
+        assertNull(SseEventDecoder.chatDelta("{\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\"}}]}"));
+        assertNull(SseEventDecoder.chatDelta("{\"choices\":[{\"delta\":{\"content\":null},\"finish_reason\":\"stop\"}]}"));
+        assertNull(SseEventDecoder.chatDelta("{\"choices\":[]}"));
+        assertNull(SseEventDecoder.chatDelta("{\"usage\":{\"total_tokens\":12}}"));
+    }
+}
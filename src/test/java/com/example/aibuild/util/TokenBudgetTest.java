@@ -0,0 +1,117 @@
+package com.example.aibuild.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TokenBudget
+ */
+class TokenBudgetTest {
+
+    // 1000 input tokens plus 10 per block
+    private static final TokenBudget.CostEstimator COST = blocks -> 1000 + 10L * blocks;
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    private TokenBudget budget(long maxWaitMs) {
+        return new TokenBudget(0.0, 100, maxWaitMs, clock::get);
+    }
+
+    private static RateLimitHeaders.Snapshot tokens(long limit, long remaining, long resetMs) {
+        return new RateLimitHeaders.Snapshot(limit, remaining, resetMs, 500, 499, 120);
+    }
+
+    private void advanceMs(long ms) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+
+    @Test
+    void testGrantsFullRequestWithoutHeaders() throws Exception {
+        TokenBudget.Grant grant = budget(1000).acquire(500, COST, null);
+
+        assertEquals(500, grant.maxBlocks());
+        assertEquals(6000, grant.cost());
+        assertEquals(Long.MAX_VALUE, budget(1000).availableTokens());
+    }
+
+    @Test
+    void testLowersBlocksWhenBudgetIsShort() throws Exception {
+        TokenBudget budget = budget(1000);
+        budget.onHeaders(tokens(100_000, 4000, 60_000), clock.get());
+
+        TokenBudget.Grant grant = budget.acquire(500, COST, null);
+
+        // 4000 tokens buy 1000 + 10 * 300
+        assertEquals(300, grant.maxBlocks());
+    }
+
+    @Test
+    void testReservationsAreSubtractedUntilCounted() throws Exception {
+        TokenBudget budget = budget(1000);
+        budget.onHeaders(tokens(100_000, 10_000, 0), clock.get());
+        advanceMs(1);
+
+        TokenBudget.Grant first = budget.acquire(500, COST, null);
+        assertEquals(4000, budget.availableTokens());
+        assertFalse(budget.hasHeadroom(6000));
+
+        // Headers from the first request now include its cost
+        budget.onHeaders(tokens(100_000, 4000, 0), first.acquiredAtNanos());
+        assertEquals(4000, budget.availableTokens());
+
+        budget.release(first);
+        assertEquals(4000, budget.availableTokens());
+    }
+
+    @Test
+    void testQuotasOfSeveralKeysAddUp() {
+        TokenBudget budget = budget(1000);
+        budget.onHeaders("key-a", tokens(100_000, 3000, 0), clock.get());
+        budget.onHeaders("key-b", tokens(100_000, 2000, 0), clock.get());
+
+        assertEquals(5000, budget.availableTokens());
+    }
+
+    @Test
+    void testRefillsTowardsLimitOverResetTime() {
+        TokenBudget budget = budget(1000);
+        budget.onHeaders(tokens(10_000, 0, 10_000), clock.get());
+
+        advanceMs(5000);
+        assertEquals(5000, budget.availableTokens());
+        advanceMs(10_000);
+        assertEquals(10_000, budget.availableTokens());
+    }
+
+    @Test
+    void testWaitsWhenEvenMinimumDoesNotFit() throws Exception {
+        // Real clock: the budget must refill while the caller sleeps
+        TokenBudget budget = new TokenBudget(0.0, 100, 5000);
+        budget.onHeaders(tokens(100_000, 0, 2000), System.nanoTime());
+        List<String> messages = new ArrayList<>();
+
+        TokenBudget.Grant grant = budget.acquire(500, COST, messages::add);
+
+        assertTrue(grant.waitedMs() > 0);
+        assertTrue(grant.maxBlocks() >= 100);
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0).contains("Waiting for API budget"));
+    }
+
+    @Test
+    void testGoesAheadSmallAfterMaxWait() throws Exception {
+        TokenBudget budget = new TokenBudget(0.0, 100, 100);
+        budget.onHeaders(tokens(100_000, 0, 3_600_000), System.nanoTime());
+
+        TokenBudget.Grant grant = budget.acquire(500, COST, null);
+
+        assertEquals(100, grant.maxBlocks());
+        assertTrue(grant.waitedMs() >= 100);
+    }
+}